@@ -11,7 +11,7 @@ import java.lang.annotation.Target;
  * @author BazingaLyn
  * @description 服务提供端提供服务的Annotation
  * @time 2016年8月19日
- * @modifytime
+ * @modifytime 2016年10月26日 增加服务独立线程池的配置
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ ElementType.METHOD })
@@ -29,5 +29,8 @@ public @interface RPCService {
 	public String degradeServiceDesc() default "";			//降级服务的描述
 	public boolean isFlowController() default true;		    //是否单位时间限流
 	public long maxCallCountInMinute() default 100000;		//单位时间的最大调用量
+	public int executorThreads() default 0;					//服务独立线程池的线程数，0表示使用provider公共的线程池
+	public int executorQueueSize() default 1024;			//服务独立线程池的等待队列长度，队列满了直接回复HANDLER_BUSY
+	public String executorGroup() default "";				//独立线程池的分组，同一分组的服务共用一个线程池，默认每个服务单独一个
 	
 }
@@ -6,12 +6,14 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.laopopo.client.consumer.cluster.ClusterStrategy;
+
 /**
  * 
  * @author BazingaLyn
  * @description
  * @time
- * @modifytime
+ * @modifytime 2016年10月27日 增加一致性哈希负载均衡使用的参数位置；增加同步调用失败时的处理方式和对冲请求的分位数
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ ElementType.METHOD })
@@ -20,4 +22,14 @@ public @interface RPConsumer {
 	
 	public String serviceName() default "";//服务名
 	
+	public int hashArgIndex() default 0;//负载均衡策略是一致性哈希的时候，用第几个参数(从0开始)的值选择提供者，同一个值总是落到同一个提供者
+	
+	public ClusterStrategy cluster() default ClusterStrategy.FAILFAST;//同步调用失败的时候的处理方式
+	
+	public int retries() default 2;//FAILOVER的时候最多重试的次数，不包括第一次调用
+	
+	public int forks() default 2;//FORKING的时候同时发送请求的提供者数
+	
+	public int hedgePercentile() default 95;//HEDGING的时候，耗时超过该服务耗时的这个分位数还没有返回就发送对冲请求
+	
 }
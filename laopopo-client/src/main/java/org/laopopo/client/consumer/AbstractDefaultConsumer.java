@@ -1,10 +1,17 @@
 package org.laopopo.client.consumer;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.laopopo.client.consumer.breaker.CircuitBreaker;
+import org.laopopo.client.consumer.breaker.CircuitBreakerManager;
+import org.laopopo.client.loadbalance.ConsistentHashLoadBalance;
 import org.laopopo.client.loadbalance.LoadBalanceStrategies;
+import org.laopopo.client.loadbalance.WeightedRandomLoadBalance;
+import org.laopopo.common.exception.rpc.CircuitBreakerOpenException;
 import org.laopopo.common.loadbalance.LoadBalanceStrategy;
 import org.laopopo.common.utils.ChannelGroup;
 import org.laopopo.common.utils.UnresolvedAddress;
@@ -15,8 +22,9 @@ import org.laopopo.common.utils.UnresolvedAddress;
  * @description 消费端的抽象类，这个类的意义：
  * 1)保存从注册中心获取到的每个服务的提供者的信息
  * 2)保存每一个服务的负载均衡的策略
+ * 3)负载均衡选出的提供者被熔断的时候换一个提供者，见{@link CircuitBreaker}
  * @time 2016年9月1日
- * @modifytime
+ * @modifytime 2016年10月27日 注册中心修改的负载均衡策略真正生效；增加最少活跃调用数和peak EWMA策略；增加一致性哈希策略，提供者上下线的时候增量更新哈希环；提供者和权重变化的时候重新计算加权随机的别名表；跳过被熔断的提供者
  */
 public abstract class AbstractDefaultConsumer implements Consumer {
 
@@ -26,6 +34,8 @@ public abstract class AbstractDefaultConsumer implements Consumer {
 	protected final ConcurrentMap<UnresolvedAddress, ChannelGroup> addressGroups = new ConcurrentHashMap<UnresolvedAddress, ChannelGroup>();
 	/*********************某个服务对应的负载均衡的策略***************/
 	protected final ConcurrentHashMap<String, LoadBalanceStrategy> loadConcurrentHashMap = new ConcurrentHashMap<String, LoadBalanceStrategy>();
+	/*********************选中被熔断的提供者的时候按照负载均衡策略重新选择的次数***************/
+	private static final int SELECT_ATTEMPTS = 3;
 	/**
 	 * 为某个服务增加一个ChannelGroup
 	 * @param serviceName
@@ -41,7 +51,12 @@ public abstract class AbstractDefaultConsumer implements Consumer {
 				groupList = newGroupList;
 			}
 		}
-		return groupList.addIfAbsent(group);
+		boolean added = groupList.addIfAbsent(group);
+		if (added) {
+			ConsistentHashLoadBalance.add(_serviceName, group);
+			WeightedRandomLoadBalance.rebuild(_serviceName, groupList);
+		}
+		return added;
 	}
 
 	/**
@@ -55,7 +70,30 @@ public abstract class AbstractDefaultConsumer implements Consumer {
 		if (groupList == null) {
 			return false;
 		}
-		return groupList.remove(group);
+		boolean removed = groupList.remove(group);
+		if (removed) {
+			ConsistentHashLoadBalance.remove(_serviceName, group);
+			WeightedRandomLoadBalance.rebuild(_serviceName, groupList);
+		}
+		return removed;
+	}
+	
+	/**
+	 * 修改某个提供者的权重，并且重新计算包含这个提供者的所有服务的加权随机别名表
+	 * consumer端修改权重需要通过这个方法，直接调用{@link ChannelGroup#setWeight(int)}不会刷新别名表
+	 * @param group
+	 * @param weight
+	 */
+	public static void updateWeight(ChannelGroup group, int weight) {
+		if (group.getWeight() == weight) {
+			return;
+		}
+		group.setWeight(weight);
+		for (Map.Entry<String, CopyOnWriteArrayList<ChannelGroup>> entry : groups.entrySet()) {
+			if (entry.getValue().contains(group)) {
+				WeightedRandomLoadBalance.rebuild(entry.getKey(), entry.getValue());
+			}
+		}
 	}
 
 	public static CopyOnWriteArrayList<ChannelGroup> getChannelGroupByServiceName(String service) {
@@ -64,12 +102,10 @@ public abstract class AbstractDefaultConsumer implements Consumer {
 	
 	@Override
 	public void setServiceLoadBalanceStrategy(String serviceName, LoadBalanceStrategy loadBalanceStrategy) {
-		LoadBalanceStrategy balanceStrategy = loadConcurrentHashMap.get(serviceName);
-		if(null == balanceStrategy){
-			balanceStrategy = LoadBalanceStrategy.WEIGHTINGRANDOM;
-			loadConcurrentHashMap.put(serviceName, balanceStrategy);
+		if(null == loadBalanceStrategy){
+			loadBalanceStrategy = LoadBalanceStrategy.WEIGHTINGRANDOM;
 		}
-		balanceStrategy = loadBalanceStrategy;
+		loadConcurrentHashMap.put(serviceName, loadBalanceStrategy);
 	}
 
 	
@@ -79,6 +115,11 @@ public abstract class AbstractDefaultConsumer implements Consumer {
 	
 	@Override
 	public ChannelGroup loadBalance(String serviceName,LoadBalanceStrategy directBalanceStrategy) {
+		return loadBalance(serviceName, directBalanceStrategy, null);
+	}
+	
+	@Override
+	public ChannelGroup loadBalance(String serviceName,LoadBalanceStrategy directBalanceStrategy, Object hashKey) {
 		LoadBalanceStrategy balanceStrategy = loadConcurrentHashMap.get(serviceName);
 		
 		CopyOnWriteArrayList<ChannelGroup> list = groups.get(serviceName);
@@ -94,14 +135,45 @@ public abstract class AbstractDefaultConsumer implements Consumer {
 		if(null == list || list.size() == 0){
 			return null;
 		}
+		
+		ChannelGroup selected = null;
+		for (int i = 0; i < SELECT_ATTEMPTS; i++) {
+			selected = select(serviceName, balanceStrategy, list, hashKey);
+			if (null == selected || CircuitBreakerManager.allow(selected.getAddress())) {
+				return selected;
+			}
+		}
+		
+		// 多次选中的都是被熔断的提供者，从随机的位置开始找第一个允许调用的提供者
+		ChannelGroup[] snapshot = list.toArray(new ChannelGroup[0]);
+		int offset = ThreadLocalRandom.current().nextInt(snapshot.length);
+		for (int i = 0; i < snapshot.length; i++) {
+			ChannelGroup group = snapshot[(offset + i) % snapshot.length];
+			if (group != selected && CircuitBreakerManager.allow(group.getAddress())) {
+				return group;
+			}
+		}
+		throw new CircuitBreakerOpenException("all providers of service [" + serviceName + "] are circuit broken");
+	}
+	
+	private ChannelGroup select(String serviceName, LoadBalanceStrategy balanceStrategy, CopyOnWriteArrayList<ChannelGroup> list, Object hashKey) {
 		switch (balanceStrategy) {
 		
 			case RANDOM:
-				return LoadBalanceStrategies.RANDOMSTRATEGIES.select(list);
+				return LoadBalanceStrategies.RANDOMSTRATEGIES.select(list, serviceName);
 			case WEIGHTINGRANDOM:
-				return LoadBalanceStrategies.WEIGHTRANDOMSTRATEGIES.select(list);
+				return LoadBalanceStrategies.WEIGHTRANDOMSTRATEGIES.select(list, serviceName);
 			case ROUNDROBIN: 
-				return LoadBalanceStrategies.ROUNDROBIN.select(list);
+				return LoadBalanceStrategies.ROUNDROBIN.select(list, serviceName);
+			case LEASTACTIVE: 
+				return LoadBalanceStrategies.LEASTACTIVE.select(list, serviceName);
+			case PEAKEWMA: 
+				return LoadBalanceStrategies.PEAKEWMA.select(list, serviceName);
+			case CONSISTENTHASH: 
+				if (null == hashKey) {
+					return LoadBalanceStrategies.WEIGHTRANDOMSTRATEGIES.select(list, serviceName);
+				}
+				return ConsistentHashLoadBalance.select(serviceName, hashKey);
 			default:
 				break;
 		}
@@ -2,11 +2,15 @@ package org.laopopo.client.consumer;
 
 import io.netty.channel.Channel;
 
+import org.laopopo.client.consumer.future.InvokeFuture;
 import org.laopopo.common.exception.remoting.RemotingSendRequestException;
 import org.laopopo.common.exception.remoting.RemotingTimeoutException;
 import org.laopopo.common.loadbalance.LoadBalanceStrategy;
+import org.laopopo.common.transport.body.RequestCustomBody;
+import org.laopopo.common.transport.body.ResponseCustomBody;
 import org.laopopo.common.utils.ChannelGroup;
 import org.laopopo.common.utils.UnresolvedAddress;
+import org.laopopo.remoting.InvokeCallback;
 import org.laopopo.remoting.model.RemotingTransporter;
 
 
@@ -16,7 +20,7 @@ import org.laopopo.remoting.model.RemotingTransporter;
  * @author BazingaLyn
  * @description 消费端的接口
  * @time 2016年8月15日
- * @modifytime
+ * @modifytime 2016年10月27日 负载均衡可以传入一致性哈希的key；异步调用可以取消
  */
 public interface Consumer {
 	
@@ -75,6 +79,15 @@ public interface Consumer {
 	 */
 	ChannelGroup loadBalance(String serviceName, LoadBalanceStrategy _balanceStrategy);
 	
+	/**
+	 * 和{@link #loadBalance(String, LoadBalanceStrategy)}一样，负载均衡策略是一致性哈希的时候根据hashKey选择提供者
+	 * @param serviceName
+	 * @param _balanceStrategy
+	 * @param hashKey 一致性哈希的key，为null的时候退化成加权随机
+	 * @return
+	 */
+	ChannelGroup loadBalance(String serviceName, LoadBalanceStrategy _balanceStrategy, Object hashKey);
+	
 	/**
 	 * 当注册中心告之某个服务多了一个提供者之后，我们需要将其更新
 	 * @param serviceName
@@ -103,6 +116,31 @@ public interface Consumer {
 	 */
 	RemotingTransporter sendRpcRequestToProvider(Channel channel, RemotingTransporter request,long timeout) throws RemotingTimeoutException, RemotingSendRequestException, InterruptedException;
 	
+	/**
+	 * 核心方法，异步远程调用，调用线程不阻塞，提供者返回结果之后回调invokeCallback
+	 * @param channel 消费者与服务提供者的之间建立的长连接的channel
+	 * @param request 请求体 包含请求的参数，请求的方法名
+	 * @param timeout 请求超时时间
+	 * @param invokeCallback 结果返回之后的回调函数
+	 */
+	void sendRpcRequestToProviderAsync(Channel channel, RemotingTransporter request, long timeout, InvokeCallback invokeCallback);
+	
+	/**
+	 * 取消一个还没有返回的异步调用，取消成功之后不会再回调invokeCallback
+	 * @param opaque 请求的opaque
+	 * @return 调用已经结束(回调已经或者即将执行)的时候返回false
+	 */
+	boolean cancelRpcRequestToProvider(long opaque);
+	
+	/**
+	 * 核心方法，批量远程调用，时间窗口内发往同一个channel的调用合并成一个批量请求发送
+	 * @param channel 消费者与服务提供者的之间建立的长连接的channel
+	 * @param body 调用的请求体
+	 * @param timeout 请求超时时间
+	 * @return 该调用的响应体的future
+	 */
+	InvokeFuture<ResponseCustomBody> sendRpcRequestToProviderBatch(Channel channel, RequestCustomBody body, long timeout);
+	
 	/**
 	 * 当注册中心推送某个服务的负载均衡策略发送变化之后，需要变更的信息
 	 * @param serviceName
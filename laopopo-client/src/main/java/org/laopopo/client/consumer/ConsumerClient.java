@@ -1,11 +1,12 @@
 package org.laopopo.client.consumer;
 
-import static org.laopopo.common.serialization.SerializerHolder.serializerImpl;
 import io.netty.channel.Channel;
 
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadLocalRandom;
 
+import org.laopopo.client.consumer.batch.RequestBatcher;
+import org.laopopo.client.consumer.future.InvokeFuture;
 import org.laopopo.common.exception.remoting.RemotingSendRequestException;
 import org.laopopo.common.exception.remoting.RemotingTimeoutException;
 import org.laopopo.common.exception.rpc.NoServiceException;
@@ -13,6 +14,8 @@ import org.laopopo.common.protocal.LaopopoProtocol;
 import org.laopopo.common.transport.body.RequestCustomBody;
 import org.laopopo.common.transport.body.ResponseCustomBody;
 import org.laopopo.common.utils.ChannelGroup;
+import org.laopopo.common.utils.SystemClock;
+import org.laopopo.remoting.InvokeCallback;
 import org.laopopo.remoting.model.RemotingTransporter;
 import org.laopopo.remoting.netty.NettyClientConfig;
 
@@ -21,12 +24,14 @@ import org.laopopo.remoting.netty.NettyClientConfig;
  * @author BazingaLyn
  * @description 消费端的代码
  * @time 2016年8月18日
- * @modifytime 2016年9月14日 修改部分的代码，增加代码的健壮性
+ * @modifytime 2016年10月27日 增加批量调用；异步调用可以取消；remoting层没有响应体的拒绝转换成对应状态的响应
  */
 public class ConsumerClient extends DefaultConsumer {
 
 
 	public static final long DEFAULT_TIMEOUT = 3 * 1000l;
+	
+	private final RequestBatcher requestBatcher;
 
 	public ConsumerClient() {
 		this(null, new NettyClientConfig(), new ConsumerConfig());
@@ -42,6 +47,7 @@ public class ConsumerClient extends DefaultConsumer {
 	
 	public ConsumerClient(NettyClientConfig registryClientConfig, NettyClientConfig providerClientConfig, ConsumerConfig consumerConfig) {
 		super(registryClientConfig, providerClientConfig, consumerConfig);
+		this.requestBatcher = new RequestBatcher(this, consumerConfig.getBatchWindowMicros(), consumerConfig.getBatchMaxSize());
 	}
 
 	@Override
@@ -64,9 +70,11 @@ public class ConsumerClient extends DefaultConsumer {
 		RequestCustomBody body = new RequestCustomBody();
 		body.setArgs(args);
 		body.setServiceName(serviceName);
+		body.setTimestamp(SystemClock.millisClock().now());
+		body.setTimeoutMillis(3000l);
 		RemotingTransporter request = RemotingTransporter.createRequestTransporter(LaopopoProtocol.RPC_REQUEST, body);
 		RemotingTransporter response = sendRpcRequestToProvider(channelGroup.next(),request,3000l);
-		ResponseCustomBody customBody = serializerImpl().readObject(response.bytes(), ResponseCustomBody.class);
+		ResponseCustomBody customBody = ResponseReader.read(response);
 		return customBody.getResultWrapper().getResult();
 	}
 
@@ -74,6 +82,21 @@ public class ConsumerClient extends DefaultConsumer {
 	public RemotingTransporter sendRpcRequestToProvider(Channel channel, RemotingTransporter request,long timeout) throws RemotingTimeoutException, RemotingSendRequestException, InterruptedException {
 		return super.providerNettyRemotingClient.invokeSyncImpl(channel, request, timeout);
 	}
+	
+	@Override
+	public void sendRpcRequestToProviderAsync(Channel channel, RemotingTransporter request, long timeout, InvokeCallback invokeCallback) {
+		super.providerNettyRemotingClient.invokeAsyncImpl(channel, request, timeout, invokeCallback);
+	}
+	
+	@Override
+	public boolean cancelRpcRequestToProvider(long opaque) {
+		return super.providerNettyRemotingClient.cancelResponse(opaque);
+	}
+	
+	@Override
+	public InvokeFuture<ResponseCustomBody> sendRpcRequestToProviderBatch(Channel channel, RequestCustomBody body, long timeout) {
+		return requestBatcher.submit(channel, body, timeout);
+	}
 
 	private ChannelGroup getAllMatchedChannel(String serviceName) {
 		CopyOnWriteArrayList<ChannelGroup> channelGroups = getChannelGroupByServiceName(serviceName);
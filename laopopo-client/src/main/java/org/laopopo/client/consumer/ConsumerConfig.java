@@ -5,7 +5,7 @@ package org.laopopo.client.consumer;
  * @author BazingaLyn
  * @description 消费端配置属性
  * @time
- * @modifytime
+ * @modifytime 2016年10月27日 增加monitor的地址和统计信息的上报周期
  */
 public class ConsumerConfig {
 
@@ -14,6 +14,18 @@ public class ConsumerConfig {
 	private long maxRetryConnectionRegsitryTime = 5000;
 	
 	private long registryTimeout = 3000;
+	
+	//批量调用合并请求的时间窗口，单位微秒，小于等于0的时候不合并
+	private long batchWindowMicros = 500;
+	
+	//一个批量请求中最多包含的调用数
+	private int batchMaxSize = 64;
+	
+	//监控中心的地址，为空的时候不上报consumer端的统计信息
+	private String monitorAddress;
+	
+	//上报统计信息的周期，单位秒
+	private long metricsReportIntervalSeconds = 60;
 
 	public int getRetryConnectionRegistryTimes() {
 		return retryConnectionRegistryTimes;
@@ -38,6 +50,37 @@ public class ConsumerConfig {
 	public void setRegistryTimeout(long registryTimeout) {
 		this.registryTimeout = registryTimeout;
 	}
-	
 
+	public long getBatchWindowMicros() {
+		return batchWindowMicros;
+	}
+
+	public void setBatchWindowMicros(long batchWindowMicros) {
+		this.batchWindowMicros = batchWindowMicros;
+	}
+
+	public int getBatchMaxSize() {
+		return batchMaxSize;
+	}
+
+	public void setBatchMaxSize(int batchMaxSize) {
+		this.batchMaxSize = batchMaxSize;
+	}
+
+	public String getMonitorAddress() {
+		return monitorAddress;
+	}
+
+	public void setMonitorAddress(String monitorAddress) {
+		this.monitorAddress = monitorAddress;
+	}
+
+	public long getMetricsReportIntervalSeconds() {
+		return metricsReportIntervalSeconds;
+	}
+
+	public void setMetricsReportIntervalSeconds(long metricsReportIntervalSeconds) {
+		this.metricsReportIntervalSeconds = metricsReportIntervalSeconds;
+	}
+	
 }
@@ -0,0 +1,60 @@
+package org.laopopo.client.consumer;
+
+import io.netty.channel.Channel;
+
+import java.util.List;
+
+import org.laopopo.client.metrics.ConsumerMeterManager;
+import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.rpc.ConsumerMetricsReporter;
+import org.laopopo.common.transport.body.ConsumerMetricsCustomBody;
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description consumer端连接monitor的控制器，定时把按照服务和提供者统计的调用信息发送给monitor
+ * 和provider一样发送的是全量统计，没有收到就丢弃，不要求重发
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class ConsumerMonitorController {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConsumerMonitorController.class);
+
+	private DefaultConsumer defaultConsumer;
+
+	public ConsumerMonitorController(DefaultConsumer defaultConsumer) {
+		this.defaultConsumer = defaultConsumer;
+	}
+
+	public void sendMetricsInfo() {
+
+		String monitorAddress = defaultConsumer.getConsumerConfig().getMonitorAddress();
+		if (monitorAddress == null) {
+			return;
+		}
+
+		List<ConsumerMetricsReporter> reporters = ConsumerMeterManager.export();
+		if (reporters.isEmpty()) {
+			return;
+		}
+
+		ConsumerMetricsCustomBody body = new ConsumerMetricsCustomBody();
+		body.setMetricsReporter(reporters);
+		RemotingTransporter remotingTransporter = RemotingTransporter.createRequestTransporter(LaopopoProtocol.CONSUMER_MERTRICS_SERVICE, body);
+
+		try {
+			//连接是缓存的，断开之后下一次发送的时候重新连接
+			Channel channel = defaultConsumer.getProviderNettyRemotingClient().createChannel(monitorAddress);
+			if (null != channel && channel.isActive() && channel.isWritable()) {
+				channel.writeAndFlush(remotingTransporter);
+			}
+		} catch (InterruptedException e) {
+			logger.warn("connect monitor [{}] failed [{}]", monitorAddress, e.getMessage());
+		}
+	}
+
+}
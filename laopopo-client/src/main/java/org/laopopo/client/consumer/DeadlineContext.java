@@ -0,0 +1,47 @@
+package org.laopopo.client.consumer;
+
+import org.laopopo.common.utils.SystemClock;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 调用的截止时间上下文，provider执行服务的时候把本次调用的截止时间放入当前线程，
+ * 服务中再发起的远程调用(嵌套调用)的超时时间不会超过剩余的时间预算，预算用完之后直接失败，不再发送请求
+ * 截止时间使用的是本地的时钟，跨进程传递的是剩余的时间预算，不受两端时钟偏差的影响
+ * @time 2016年10月26日
+ * @modifytime
+ */
+public class DeadlineContext {
+
+	private static final ThreadLocal<Long> deadlineThreadLocal = new ThreadLocal<Long>();
+
+	/**
+	 * 设置当前线程的截止时间
+	 * @param deadline 本地时钟的毫秒数，小于等于0表示没有截止时间
+	 */
+	public static void set(long deadline) {
+		if (deadline > 0) {
+			deadlineThreadLocal.set(deadline);
+		} else {
+			deadlineThreadLocal.remove();
+		}
+	}
+
+	public static void clear() {
+		deadlineThreadLocal.remove();
+	}
+
+	/**
+	 * 当前线程发起调用可以使用的超时时间
+	 * @param timeoutMillis 调用配置的超时时间
+	 * @return 没有截止时间的时候返回timeoutMillis，否则返回timeoutMillis和剩余预算中较小的一个，预算已经用完的时候返回值小于等于0
+	 */
+	public static long remainingMillis(long timeoutMillis) {
+		Long deadline = deadlineThreadLocal.get();
+		if (null == deadline) {
+			return timeoutMillis;
+		}
+		return Math.min(timeoutMillis, deadline - SystemClock.millisClock().now());
+	}
+
+}
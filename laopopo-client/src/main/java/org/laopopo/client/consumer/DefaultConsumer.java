@@ -6,6 +6,9 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -14,6 +17,7 @@ import org.laopopo.common.protocal.LaopopoProtocol;
 import org.laopopo.common.rpc.RegisterMeta;
 import org.laopopo.common.utils.ChannelGroup;
 import org.laopopo.common.utils.JUnsafe;
+import org.laopopo.common.utils.NamedThreadFactory;
 import org.laopopo.common.utils.NettyChannelGroup;
 import org.laopopo.common.utils.UnresolvedAddress;
 import org.laopopo.remoting.ConnectionUtils;
@@ -28,7 +32,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description 默认的消费类
  * @time 2016年8月18日
- * @modifytime
+ * @modifytime 2016年10月27日 配置了monitor地址的时候定时上报consumer端的统计信息；注册中心推送的权重变化对已经连接的提供者也生效
  */
 public abstract class DefaultConsumer extends AbstractDefaultConsumer {
 
@@ -42,6 +46,8 @@ public abstract class DefaultConsumer extends AbstractDefaultConsumer {
 	private DefaultConsumerRegistry defaultConsumerRegistry;
 	private ConsumerManager consumerManager;
 	private Channel registyChannel;
+	private ConsumerMonitorController consumerMonitorController;
+	private ScheduledExecutorService scheduledExecutorService;
 
 	public DefaultConsumer(NettyClientConfig registryClientConfig, NettyClientConfig providerClientConfig, ConsumerConfig consumerConfig) {
 		this.registryClientConfig = registryClientConfig;
@@ -49,6 +55,7 @@ public abstract class DefaultConsumer extends AbstractDefaultConsumer {
 		this.consumerConfig = consumerConfig;
 		defaultConsumerRegistry = new DefaultConsumerRegistry(this);
 		consumerManager = new ConsumerManager(this);
+		consumerMonitorController = new ConsumerMonitorController(this);
 		initialize();
 	}
 
@@ -94,13 +101,13 @@ public abstract class DefaultConsumer extends AbstractDefaultConsumer {
 
 						final ChannelGroup group = group(new UnresolvedAddress(remoteHost, remotePort));
 						if (event == NotifyEvent.CHILD_ADDED) {
+							// 注册中心修改权重之后也是推送CHILD_ADDED，已经建立连接的group同样需要更新权重
+							updateWeight(group, registerMeta.getWeight());
 							// 链路复用，如果此host和port对应的链接的channelGroup是已经存在的，则无需建立新的链接，只需要将此group与service建立关系即可
 							if (!group.isAvailable()) {
 
 								int connCount = registerMeta.getConnCount() < 0 ? 1 : registerMeta.getConnCount();
 
-								group.setWeight(registerMeta.getWeight());
-
 								for (int i = 0; i < connCount; i++) {
 
 									try {
@@ -227,6 +234,23 @@ public abstract class DefaultConsumer extends AbstractDefaultConsumer {
 		this.providerNettyRemotingClient.setreconnect(false);
 		this.providerNettyRemotingClient.start();
 
+		// 如果监控中心的地址不是null，则需要定时发送统计信息
+		if (null != this.consumerConfig.getMonitorAddress()) {
+			long interval = this.consumerConfig.getMetricsReportIntervalSeconds();
+			this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("consumer-timer", true));
+			this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						DefaultConsumer.this.consumerMonitorController.sendMetricsInfo();
+					} catch (Exception e) {
+						logger.warn("schedule send metrics failed [{}]", e.getMessage());
+					}
+				}
+			}, interval, interval, TimeUnit.SECONDS);
+		}
+
 	}
 
 	@Override
@@ -313,6 +337,10 @@ public abstract class DefaultConsumer extends AbstractDefaultConsumer {
 		this.registryClientConfig = registryClientConfig;
 	}
 
+	public ConsumerMonitorController getConsumerMonitorController() {
+		return consumerMonitorController;
+	}
+
 	public ConsumerManager getConsumerManager() {
 		return consumerManager;
 	}
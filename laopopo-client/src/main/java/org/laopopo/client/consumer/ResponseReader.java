@@ -0,0 +1,70 @@
+package org.laopopo.client.consumer;
+
+import static org.laopopo.common.utils.Status.SERVER_BUSY;
+import static org.laopopo.common.utils.Status.SERVER_ERROR;
+
+import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.transport.body.ResponseCustomBody;
+import org.laopopo.common.transport.body.ResponseCustomBody.ResultWrapper;
+import org.laopopo.common.utils.Status;
+import org.laopopo.remoting.model.RemotingTransporter;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 把provider返回的响应读成ResponseCustomBody
+ * remoting层的拒绝没有响应体：处理器线程池饱和回复HANDLER_BUSY，处理器抛出异常回复HANDLER_ERROR，
+ * 这两种响应按照code转换成SERVER_BUSY和SERVER_ERROR，调用方据此统计和决定是否换一个提供者重试，而不是在空的响应体上抛出空指针
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public final class ResponseReader {
+
+	private ResponseReader() {
+	}
+
+	/**
+	 * @param response 单个调用的响应
+	 * @return 结果包装不为null的响应体
+	 */
+	public static ResponseCustomBody read(RemotingTransporter response) {
+
+		ResponseCustomBody rejected = rejected(response);
+		if (null != rejected) {
+			return rejected;
+		}
+		ResponseCustomBody body = response.readBody(ResponseCustomBody.class);
+		if (null == body.getResultWrapper()) {
+			body.setResultWrapper(new ResultWrapper());
+		}
+		return body;
+	}
+
+	/**
+	 * 响应是否是remoting层没有响应体的拒绝，批量请求被整体拒绝的时候批量中的每个调用都使用这个响应体
+	 * provider在服务线程池饱和的时候也回复HANDLER_BUSY，但是带有响应体，按照正常的响应读取
+	 * @param response
+	 * @return 不是这种拒绝的时候返回null
+	 */
+	public static ResponseCustomBody rejected(RemotingTransporter response) {
+
+		if (response.size() > 0) {
+			return null;
+		}
+		switch (response.getCode()) {
+			case LaopopoProtocol.HANDLER_BUSY:
+				return error(SERVER_BUSY, "provider handler is busy");
+			case LaopopoProtocol.HANDLER_ERROR:
+				return error(SERVER_ERROR, "provider handler occur exception");
+			default:
+				return null;
+		}
+	}
+
+	private static ResponseCustomBody error(Status status, String error) {
+		ResultWrapper result = new ResultWrapper();
+		result.setError(error);
+		return new ResponseCustomBody(status.value(), result);
+	}
+
+}
@@ -0,0 +1,234 @@
+package org.laopopo.client.consumer.batch;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.laopopo.client.consumer.Consumer;
+import org.laopopo.client.consumer.ResponseReader;
+import org.laopopo.client.consumer.future.DefaultInvokeFuture;
+import org.laopopo.client.consumer.future.InvokeFuture;
+import org.laopopo.common.exception.remoting.RemotingSendRequestException;
+import org.laopopo.common.exception.remoting.RemotingTimeoutException;
+import org.laopopo.common.exception.rpc.RemoteException;
+import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.transport.body.BatchRequestCustomBody;
+import org.laopopo.common.transport.body.BatchResponseCustomBody;
+import org.laopopo.common.transport.body.RequestCustomBody;
+import org.laopopo.common.transport.body.ResponseCustomBody;
+import org.laopopo.remoting.ConnectionUtils;
+import org.laopopo.remoting.InvokeCallback;
+import org.laopopo.remoting.model.RemotingResponse;
+import org.laopopo.remoting.model.RemotingTransporter;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description consumer端的请求合并器，时间窗口内发往同一个channel的调用合并成一个{@link LaopopoProtocol#RPC_BATCH_REQUEST}发送
+ * 1)窗口内的第一个调用在channel的EventLoop上注册一个窗口时长的定时任务，任务执行的时候把积攒的调用一起发送
+ * 2)积攒的调用达到maxBatchSize的时候由调用线程立即发送
+ * 3)只有一个调用的时候仍然按照普通的{@link LaopopoProtocol#RPC_REQUEST}发送，兼容不支持批量的provider
+ * 批量的超时时间取其中最大的超时时间
+ * @time 2016年10月25日
+ * @modifytime 2016年10月27日 remoting层没有响应体的拒绝转换成对应状态的响应，整个批量被拒绝的时候每个调用都按照拒绝处理
+ */
+public class RequestBatcher {
+
+	private static final AttributeKey<PendingBatch> PENDING_BATCH = AttributeKey.valueOf("laopopo.pending.batch");
+
+	private final Consumer consumer;
+	private final long windowMicros;
+	private final int maxBatchSize;
+
+	public RequestBatcher(Consumer consumer, long windowMicros, int maxBatchSize) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("maxBatchSize: " + maxBatchSize + " (expected: > 0)");
+		}
+		this.consumer = consumer;
+		this.windowMicros = windowMicros;
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * 提交一个调用，在窗口结束或者批量满了之后发送
+	 * @param channel
+	 * @param body
+	 * @param timeout
+	 * @return 该调用的响应体的future
+	 */
+	public InvokeFuture<ResponseCustomBody> submit(Channel channel, RequestCustomBody body, long timeout) {
+
+		BatchEntry entry = new BatchEntry(body, timeout);
+		if (windowMicros <= 0 || maxBatchSize == 1) {
+			List<BatchEntry> entries = new ArrayList<BatchEntry>(1);
+			entries.add(entry);
+			send(channel, entries);
+			return entry.future;
+		}
+
+		final PendingBatch batch = pendingBatch(channel);
+		List<BatchEntry> full = null;
+		boolean schedule = false;
+		synchronized (batch) {
+			batch.entries.add(entry);
+			if (batch.entries.size() >= maxBatchSize) {
+				full = batch.drain();
+			} else if (!batch.scheduled) {
+				batch.scheduled = true;
+				schedule = true;
+			}
+		}
+
+		if (full != null) {
+			send(channel, full);
+		} else if (schedule) {
+			try {
+				channel.eventLoop().schedule(new Runnable() {
+
+					@Override
+					public void run() {
+						flush(batch);
+					}
+				}, windowMicros, MICROSECONDS);
+			} catch (RejectedExecutionException e) {
+				//EventLoop已经关闭，直接发送，请求会因为channel不可用而失败
+				flush(batch);
+			}
+		}
+		return entry.future;
+	}
+
+	private void flush(PendingBatch batch) {
+		List<BatchEntry> entries;
+		synchronized (batch) {
+			batch.scheduled = false;
+			entries = batch.drain();
+		}
+		if (!entries.isEmpty()) {
+			send(batch.channel, entries);
+		}
+	}
+
+	private void send(final Channel channel, final List<BatchEntry> entries) {
+
+		long timeout = 0;
+		for (BatchEntry entry : entries) {
+			timeout = Math.max(timeout, entry.timeout);
+		}
+		final long time = timeout;
+
+		final boolean single = entries.size() == 1;
+		RemotingTransporter request;
+		if (single) {
+			request = RemotingTransporter.createRequestTransporter(LaopopoProtocol.RPC_REQUEST, entries.get(0).body);
+		} else {
+			BatchRequestCustomBody batchBody = new BatchRequestCustomBody(entries.size());
+			for (BatchEntry entry : entries) {
+				batchBody.add(entry.body);
+			}
+			request = RemotingTransporter.createRequestTransporter(LaopopoProtocol.RPC_BATCH_REQUEST, batchBody);
+		}
+
+		consumer.sendRpcRequestToProviderAsync(channel, request, time, new InvokeCallback() {
+
+			@Override
+			public void operationComplete(RemotingResponse remotingResponse) {
+				RemotingTransporter response = remotingResponse.getRemotingTransporter();
+				if (null == response) {
+					String address = ConnectionUtils.parseChannelRemoteAddr(channel);
+					Throwable cause;
+					if (remotingResponse.getCause() instanceof RemotingTimeoutException) {
+						cause = remotingResponse.getCause();
+					} else if (remotingResponse.isSendRequestOK()) {
+						cause = new RemotingTimeoutException(address, time, remotingResponse.getCause());
+					} else {
+						cause = new RemotingSendRequestException(address, remotingResponse.getCause());
+					}
+					failAll(entries, cause);
+					return;
+				}
+				try {
+					if (single) {
+						entries.get(0).future.setSuccess(ResponseReader.read(response));
+						return;
+					}
+					//整个批量被remoting层拒绝，批量中的每个调用都按照拒绝处理
+					ResponseCustomBody rejected = ResponseReader.rejected(response);
+					if (null != rejected) {
+						for (BatchEntry entry : entries) {
+							entry.future.setSuccess(rejected);
+						}
+						return;
+					}
+					BatchResponseCustomBody batchResponseBody = response.readBody(BatchResponseCustomBody.class);
+					if (batchResponseBody.size() != entries.size()) {
+						failAll(entries, new RemoteException("batch response size " + batchResponseBody.size() + " not match request size " + entries.size(),
+								channel.remoteAddress()));
+						return;
+					}
+					List<ResponseCustomBody> responses = batchResponseBody.getResponses();
+					for (int i = 0; i < entries.size(); i++) {
+						entries.get(i).future.setSuccess(responses.get(i));
+					}
+				} catch (Exception e) {
+					failAll(entries, e);
+				}
+			}
+		});
+	}
+
+	private void failAll(List<BatchEntry> entries, Throwable cause) {
+		for (BatchEntry entry : entries) {
+			entry.future.setFailure(cause);
+		}
+	}
+
+	private PendingBatch pendingBatch(Channel channel) {
+		PendingBatch batch = channel.attr(PENDING_BATCH).get();
+		if (batch == null) {
+			PendingBatch newBatch = new PendingBatch(channel);
+			batch = channel.attr(PENDING_BATCH).setIfAbsent(newBatch);
+			if (batch == null) {
+				batch = newBatch;
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * 每个channel上正在积攒的调用
+	 */
+	static class PendingBatch {
+
+		private final Channel channel;
+		private List<BatchEntry> entries = new ArrayList<BatchEntry>();
+		private boolean scheduled;
+
+		PendingBatch(Channel channel) {
+			this.channel = channel;
+		}
+
+		List<BatchEntry> drain() {
+			List<BatchEntry> drained = entries;
+			entries = new ArrayList<BatchEntry>(drained.size());
+			return drained;
+		}
+	}
+
+	static class BatchEntry {
+
+		private final RequestCustomBody body;
+		private final long timeout;
+		private final DefaultInvokeFuture<ResponseCustomBody> future = new DefaultInvokeFuture<ResponseCustomBody>();
+
+		BatchEntry(RequestCustomBody body, long timeout) {
+			this.body = body;
+			this.timeout = timeout;
+		}
+	}
+
+}
@@ -0,0 +1,252 @@
+package org.laopopo.client.consumer.breaker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.laopopo.common.utils.UnresolvedAddress;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 一个提供者地址的熔断器，三个状态：
+ * 1)CLOSED 正常调用，在滑动窗口中统计调用数，失败数(包括超时)和慢调用数，窗口内调用数达到{@link #MINIMUM_CALLS}之后，
+ * 失败率或者慢调用率超过阈值就进入OPEN
+ * 2)OPEN 负载均衡不再选择这个提供者，调用方不用再等待超时，{@link #OPEN_MILLIS}之后进入HALF_OPEN
+ * 3)HALF_OPEN 只放过{@link #HALF_OPEN_CALLS}个探测调用，全部成功并且不慢就回到CLOSED，有一个失败或者慢调用就重新OPEN
+ * 选中之后没有发出或者被取消的探测调用通过{@link #release()}归还机会；探测的机会用完{@link #OPEN_MILLIS}之后还没有结论的时候，
+ * 重新放过一轮探测调用，避免一直停留在HALF_OPEN，这个提供者再也不会被选中
+ * CLOSED状态下判断是否允许调用只是一次volatile读，统计是按照秒分桶的原子计数，状态的切换很少发生，用synchronized
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 没有使用的探测机会可以归还；HALF_OPEN超过OPEN_MILLIS没有结论的时候重新放过一轮探测
+ */
+public class CircuitBreaker {
+
+	private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	//滑动窗口的桶数和每个桶的时间，窗口一共10秒
+	public static final int WINDOW_BUCKETS = 10;
+	public static final long BUCKET_MILLIS = 1000;
+	//窗口内至少有这么多调用才计算失败率，避免调用很少的时候一两次失败就熔断
+	public static final int MINIMUM_CALLS = 20;
+	//失败率阈值，百分比
+	public static final int FAILURE_RATE_THRESHOLD = 50;
+	//慢调用率阈值，百分比
+	public static final int SLOW_CALL_RATE_THRESHOLD = 50;
+	//耗时超过这个值的调用算作慢调用
+	public static final long SLOW_CALL_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+	//OPEN状态持续的时间
+	public static final long OPEN_MILLIS = 5000;
+	//HALF_OPEN状态下放过的探测调用数
+	public static final int HALF_OPEN_CALLS = 10;
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final UnresolvedAddress address;
+
+	private volatile State state = State.CLOSED;
+	private volatile Window window = new Window();
+	private volatile long openedAt;
+	private volatile long halfOpenedAt;
+	//HALF_OPEN状态下剩余的探测次数和已经成功的探测次数
+	private final AtomicInteger probePermits = new AtomicInteger();
+	private int probeSuccess;
+
+	public CircuitBreaker(UnresolvedAddress address) {
+		this.address = address;
+	}
+
+	/**
+	 * 负载均衡选中这个提供者之后判断是否允许调用，HALF_OPEN状态下允许的时候会消耗一次探测的机会
+	 * @return
+	 */
+	public boolean allow() {
+
+		State current = state;
+		if (current == State.CLOSED) {
+			return true;
+		}
+		if (current == State.OPEN) {
+			if (System.currentTimeMillis() - openedAt < OPEN_MILLIS) {
+				return false;
+			}
+			halfOpen();
+		}
+		if (tryAcquireProbe()) {
+			return true;
+		}
+		//这一轮的探测机会用完了，但是既没有凑够成功的次数也没有失败，超时之后重新放过一轮
+		if (System.currentTimeMillis() - halfOpenedAt >= OPEN_MILLIS && rearm()) {
+			return tryAcquireProbe();
+		}
+		return false;
+	}
+
+	/**
+	 * {@link #allow()}允许之后这次调用没有发出，或者被取消了，不会有结果，HALF_OPEN状态下归还这次探测的机会
+	 * CLOSED状态下allow不消耗机会，这里不知道这次调用是在哪个状态下被允许的，所以归还的机会不超过一轮的探测数
+	 */
+	public void release() {
+		if (state != State.HALF_OPEN) {
+			return;
+		}
+		for (;;) {
+			int permits = probePermits.get();
+			if (permits >= HALF_OPEN_CALLS || probePermits.compareAndSet(permits, permits + 1)) {
+				return;
+			}
+		}
+	}
+
+	private boolean tryAcquireProbe() {
+		for (;;) {
+			int permits = probePermits.get();
+			if (permits <= 0) {
+				return false;
+			}
+			if (probePermits.compareAndSet(permits, permits - 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 记录一次调用的结果
+	 * @param elapsedNanos 调用的耗时
+	 * @param failed 是否失败，超时也算失败
+	 */
+	public void record(long elapsedNanos, boolean failed) {
+
+		boolean slow = elapsedNanos >= SLOW_CALL_NANOS;
+		State current = state;
+		if (current == State.CLOSED) {
+			Window w = window;
+			w.record(System.currentTimeMillis(), failed, slow);
+			if ((failed || slow) && w.shouldTrip(System.currentTimeMillis())) {
+				open(State.CLOSED);
+			}
+		} else if (current == State.HALF_OPEN) {
+			onProbe(failed || slow);
+		}
+		//OPEN状态下收到的是熔断之前发出的调用的结果，忽略
+	}
+
+	private synchronized void halfOpen() {
+		if (state == State.OPEN) {
+			probeSuccess = 0;
+			probePermits.set(HALF_OPEN_CALLS);
+			halfOpenedAt = System.currentTimeMillis();
+			state = State.HALF_OPEN;
+			logger.info("circuit breaker of provider [{}] half open", address);
+		}
+	}
+
+	private synchronized boolean rearm() {
+		if (state != State.HALF_OPEN || System.currentTimeMillis() - halfOpenedAt < OPEN_MILLIS) {
+			//其他线程已经重新放过了一轮，或者已经有了结论
+			return state == State.HALF_OPEN;
+		}
+		probeSuccess = 0;
+		probePermits.set(HALF_OPEN_CALLS);
+		halfOpenedAt = System.currentTimeMillis();
+		logger.info("circuit breaker of provider [{}] half open probes re-armed", address);
+		return true;
+	}
+
+	private synchronized void open(State expect) {
+		if (state == expect) {
+			openedAt = System.currentTimeMillis();
+			state = State.OPEN;
+			logger.warn("circuit breaker of provider [{}] open", address);
+		}
+	}
+
+	private synchronized void onProbe(boolean bad) {
+		if (state != State.HALF_OPEN) {
+			return;
+		}
+		if (bad) {
+			open(State.HALF_OPEN);
+		} else if (++probeSuccess >= HALF_OPEN_CALLS) {
+			//重新开始统计，熔断之前的失败不再计算
+			window = new Window();
+			state = State.CLOSED;
+			logger.info("circuit breaker of provider [{}] closed", address);
+		}
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public UnresolvedAddress getAddress() {
+		return address;
+	}
+
+	/**
+	 * 按照时间分桶的滑动窗口，桶过期之后被复用，复用的时候清零
+	 * 清零和计数之间没有互斥，切换桶的瞬间可能丢失或者多算几次调用，对于计算比例来说可以接受
+	 */
+	static final class Window {
+
+		private final Bucket[] buckets = new Bucket[WINDOW_BUCKETS];
+
+		Window() {
+			for (int i = 0; i < WINDOW_BUCKETS; i++) {
+				buckets[i] = new Bucket();
+			}
+		}
+
+		void record(long now, boolean failed, boolean slow) {
+			long epoch = now / BUCKET_MILLIS;
+			Bucket bucket = buckets[(int) (epoch % WINDOW_BUCKETS)];
+			if (bucket.epoch != epoch) {
+				bucket.reset(epoch);
+			}
+			bucket.calls.incrementAndGet();
+			if (failed) {
+				bucket.failures.incrementAndGet();
+			}
+			if (slow) {
+				bucket.slowCalls.incrementAndGet();
+			}
+		}
+
+		boolean shouldTrip(long now) {
+			long epoch = now / BUCKET_MILLIS;
+			long calls = 0, failures = 0, slowCalls = 0;
+			for (Bucket bucket : buckets) {
+				if (epoch - bucket.epoch < WINDOW_BUCKETS) {
+					calls += bucket.calls.get();
+					failures += bucket.failures.get();
+					slowCalls += bucket.slowCalls.get();
+				}
+			}
+			if (calls < MINIMUM_CALLS) {
+				return false;
+			}
+			return failures * 100 >= calls * FAILURE_RATE_THRESHOLD || slowCalls * 100 >= calls * SLOW_CALL_RATE_THRESHOLD;
+		}
+	}
+
+	static final class Bucket {
+
+		volatile long epoch = -1;
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicInteger slowCalls = new AtomicInteger();
+
+		synchronized void reset(long newEpoch) {
+			if (epoch != newEpoch) {
+				calls.set(0);
+				failures.set(0);
+				slowCalls.set(0);
+				epoch = newEpoch;
+			}
+		}
+	}
+
+}
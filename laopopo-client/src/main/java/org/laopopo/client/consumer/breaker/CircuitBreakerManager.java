@@ -0,0 +1,70 @@
+package org.laopopo.client.consumer.breaker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.laopopo.common.utils.UnresolvedAddress;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description consumer端所有提供者地址的熔断器，一个地址一个熔断器，这个地址上的所有服务共用
+ * 提供者变慢或者不可用(比如长时间GC，网络分区)通常是整个进程的问题，不只是某一个服务
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 增加归还探测机会的方法
+ */
+public class CircuitBreakerManager {
+
+	//key是提供者的地址
+	private static ConcurrentMap<UnresolvedAddress, CircuitBreaker> globalBreakerManager = new ConcurrentHashMap<UnresolvedAddress, CircuitBreaker>();
+
+	/**
+	 * 获取某个提供者的熔断器，不存在的时候原子地创建
+	 * @param address
+	 * @return
+	 */
+	public static CircuitBreaker getOrCreateBreaker(UnresolvedAddress address) {
+
+		CircuitBreaker breaker = globalBreakerManager.get(address);
+		if (breaker == null) {
+			CircuitBreaker newBreaker = new CircuitBreaker(address);
+			breaker = globalBreakerManager.putIfAbsent(address, newBreaker);
+			if (breaker == null) {
+				breaker = newBreaker;
+			}
+		}
+		return breaker;
+	}
+
+	/**
+	 * 是否允许调用某个提供者，还没有调用过的提供者总是允许
+	 * @param address
+	 * @return
+	 */
+	public static boolean allow(UnresolvedAddress address) {
+		if (null == address) {
+			return true;
+		}
+		CircuitBreaker breaker = globalBreakerManager.get(address);
+		return null == breaker || breaker.allow();
+	}
+
+	/**
+	 * {@link #allow}允许之后没有调用这个提供者，归还HALF_OPEN状态下的探测机会
+	 * @param address
+	 */
+	public static void release(UnresolvedAddress address) {
+		if (null == address) {
+			return;
+		}
+		CircuitBreaker breaker = globalBreakerManager.get(address);
+		if (null != breaker) {
+			breaker.release();
+		}
+	}
+
+	public static ConcurrentMap<UnresolvedAddress, CircuitBreaker> getGlobalBreakerManager() {
+		return globalBreakerManager;
+	}
+
+}
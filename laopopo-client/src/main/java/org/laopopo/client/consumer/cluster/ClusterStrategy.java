@@ -0,0 +1,17 @@
+package org.laopopo.client.consumer.cluster;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 同步调用失败的时候的处理方式，在服务接口的方法上通过@RPConsumer的cluster配置
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 增加对冲请求
+ */
+public enum ClusterStrategy {
+
+	FAILFAST, //失败之后立即返回，不重试
+	FAILOVER, //超时，发送失败或者提供者没有执行(繁忙，限流)的时候换一个提供者重试，超时之后重试可能导致服务被执行多次，只用于幂等的服务
+	FORKING, //同时向多个提供者发送请求，返回最先成功的结果，用更多的请求换更低的长尾耗时，只用于幂等的服务
+	HEDGING, //对冲请求，第一个请求超过该服务耗时的某个分位数还没有返回的时候，向另一个提供者再发一个请求，使用先成功的结果，只用于幂等的服务
+
+}
@@ -0,0 +1,98 @@
+package org.laopopo.client.consumer.cluster;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.laopopo.client.metrics.ConsumerMeterManager;
+import org.laopopo.common.metrics.LatencyHistogram;
+import org.laopopo.common.metrics.RollingLatencyHistogram;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对冲请求的策略：第一个请求发出之后超过对冲延迟还没有返回，就向另一个提供者再发一个相同的请求，使用先返回的结果
+ * 对冲延迟是该服务consumer端最近一到两秒耗时的某个分位数，比如p95，只有最慢的5%的调用会发出第二个请求，
+ * 不使用整个生命周期累计的直方图，否则提供者变慢之后对冲延迟还停留在过去的耗时上，对冲过多，变快之后又对冲不够
+ * 计算分位数需要遍历整个直方图，所以每个服务的对冲延迟缓存{@link #REFRESH_MILLIS}毫秒
+ * 所有服务共用一个全局的对冲预算，额外发送的请求不超过调用数的10%，提供者整体变慢的时候不会因为对冲让请求数翻倍
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 对冲延迟按照最近的耗时计算
+ */
+public class HedgePolicy {
+
+	//对冲延迟的缓存时间
+	public static final long REFRESH_MILLIS = 1000;
+	//最近的直方图中的样本数少于这个值的时候不对冲，样本太少的时候分位数没有意义
+	public static final long MINIMUM_SAMPLES = 100;
+
+	//全局的对冲预算，每次调用存入0.1次对冲
+	private static final RetryBudget budget = new RetryBudget(100);
+
+	//key是serviceName，同一个服务的方法一般使用同一个分位数
+	private static final ConcurrentMap<String, Delay> delays = new ConcurrentHashMap<String, Delay>();
+
+	/**
+	 * 某个服务的对冲延迟
+	 * @param serviceName
+	 * @param percentile 分位数，比如95
+	 * @return 微秒，样本不够的时候返回-1，表示不对冲
+	 */
+	public static long delayMicros(String serviceName, int percentile) {
+
+		Delay delay = delays.get(serviceName);
+		if (delay == null) {
+			Delay newDelay = new Delay();
+			delay = delays.putIfAbsent(serviceName, newDelay);
+			if (delay == null) {
+				delay = newDelay;
+			}
+		}
+		long now = System.currentTimeMillis();
+		if (now - delay.computedAt >= REFRESH_MILLIS || delay.percentile != percentile) {
+			//多个线程同时刷新的结果是一样的，不需要互斥
+			delay.micros = compute(serviceName, percentile);
+			delay.percentile = percentile;
+			delay.computedAt = now;
+		}
+		return delay.micros;
+	}
+
+	/**
+	 * 一次可以对冲的调用，存入对冲的额度
+	 */
+	public static void deposit() {
+		budget.deposit();
+	}
+
+	/**
+	 * 发送对冲请求之前取出一次额度
+	 * @return 余额不够的时候返回false，不应该对冲
+	 */
+	public static boolean tryHedge() {
+		return budget.tryWithdraw();
+	}
+
+	private static long compute(String serviceName, int percentile) {
+
+		RollingLatencyHistogram histogram = ConsumerMeterManager.getRecentLatency(serviceName);
+		if (null == histogram) {
+			return -1;
+		}
+		long[] buckets = histogram.snapshot();
+		long total = 0;
+		for (long count : buckets) {
+			total += count;
+		}
+		if (total < MINIMUM_SAMPLES) {
+			return -1;
+		}
+		return LatencyHistogram.valueAtQuantile(buckets, percentile / 100d, histogram.getMax());
+	}
+
+	static final class Delay {
+		volatile long micros = -1;
+		volatile int percentile;
+		volatile long computedAt;
+	}
+
+}
@@ -0,0 +1,96 @@
+package org.laopopo.client.consumer.cluster;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 服务的重试预算，限制重试的次数不超过正常调用次数的一定比例
+ * 提供者大面积不可用的时候，如果每个调用都重试，发往提供者的请求数会成倍增加，让本来就出问题的提供者更难恢复
+ * 每次调用存入{@link #DEPOSIT_PER_CALL}(可以通过构造函数修改)，每次重试取出{@link #RETRY_COST}，余额不够的时候不再重试
+ * 对冲请求也使用同样的预算控制额外发送的请求数
+ * 初始余额让调用很少的服务也能重试几次，余额有上限，避免长时间正常之后积累太多的重试机会
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 每次调用存入的额度可以配置，对冲请求使用一个全局的预算
+ */
+public class RetryBudget {
+
+	//额度以千分之一次重试为单位，每次调用存入0.2次重试，也就是重试不超过调用次数的20%
+	public static final long DEPOSIT_PER_CALL = 200;
+	public static final long RETRY_COST = 1000;
+	public static final long INITIAL_BALANCE = 10 * RETRY_COST;
+	public static final long MAX_BALANCE = 100 * RETRY_COST;
+
+	//key是serviceName
+	private static final ConcurrentMap<String, RetryBudget> budgets = new ConcurrentHashMap<String, RetryBudget>();
+
+	private final AtomicLong balance = new AtomicLong(INITIAL_BALANCE);
+	private final long depositPerCall;
+
+	public RetryBudget() {
+		this(DEPOSIT_PER_CALL);
+	}
+
+	/**
+	 * @param depositPerCall 每次调用存入的额度，千分之一次重试为单位
+	 */
+	public RetryBudget(long depositPerCall) {
+		this.depositPerCall = depositPerCall;
+	}
+
+	/**
+	 * 获取某个服务的重试预算，不存在的时候原子地创建
+	 * @param serviceName
+	 * @return
+	 */
+	public static RetryBudget of(String serviceName) {
+
+		RetryBudget budget = budgets.get(serviceName);
+		if (budget == null) {
+			RetryBudget newBudget = new RetryBudget();
+			budget = budgets.putIfAbsent(serviceName, newBudget);
+			if (budget == null) {
+				budget = newBudget;
+			}
+		}
+		return budget;
+	}
+
+	/**
+	 * 一次调用(不包括重试)存入重试的额度
+	 */
+	public void deposit() {
+		for (;;) {
+			long current = balance.get();
+			if (current >= MAX_BALANCE) {
+				return;
+			}
+			if (balance.compareAndSet(current, Math.min(MAX_BALANCE, current + depositPerCall))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 重试之前取出一次重试的额度
+	 * @return 余额不够的时候返回false，不应该重试
+	 */
+	public boolean tryWithdraw() {
+		for (;;) {
+			long current = balance.get();
+			if (current < RETRY_COST) {
+				return false;
+			}
+			if (balance.compareAndSet(current, current - RETRY_COST)) {
+				return true;
+			}
+		}
+	}
+
+	public long getBalance() {
+		return balance.get();
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.laopopo.client.consumer.future;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 默认的异步调用的future，结果只能被设置一次
+ * @time 2016年10月20日
+ * @modifytime
+ */
+public class DefaultInvokeFuture<V> implements InvokeFuture<V> {
+
+	private static final Logger logger = LoggerFactory.getLogger(DefaultInvokeFuture.class);
+
+	private final CountDownLatch countDownLatch = new CountDownLatch(1);
+	private final AtomicBoolean completed = new AtomicBoolean(false);
+
+	private volatile V result;
+	private volatile Throwable cause;
+
+	// 在结果返回之前注册的监听器，结果返回之后置为null
+	private List<InvokeFutureListener<V>> listeners = new ArrayList<InvokeFutureListener<V>>(1);
+
+	/**
+	 * 设置成功的结果
+	 * @param result
+	 * @return 如果已经被设置过了则返回false
+	 */
+	public boolean setSuccess(V result) {
+		if (!completed.compareAndSet(false, true)) {
+			return false;
+		}
+		this.result = result;
+		complete();
+		return true;
+	}
+
+	/**
+	 * 设置失败的原因
+	 * @param cause
+	 * @return 如果已经被设置过了则返回false
+	 */
+	public boolean setFailure(Throwable cause) {
+		if (!completed.compareAndSet(false, true)) {
+			return false;
+		}
+		this.cause = cause;
+		complete();
+		return true;
+	}
+
+	@Override
+	public InvokeFuture<V> addListener(InvokeFutureListener<V> listener) {
+		synchronized (this) {
+			if (listeners != null) {
+				listeners.add(listener);
+				return this;
+			}
+		}
+		notifyListener(listener);
+		return this;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return setFailure(new CancellationException());
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cause instanceof CancellationException;
+	}
+
+	@Override
+	public boolean isDone() {
+		return countDownLatch.getCount() == 0;
+	}
+
+	@Override
+	public boolean isSuccess() {
+		return isDone() && cause == null;
+	}
+
+	@Override
+	public Throwable cause() {
+		return cause;
+	}
+
+	@Override
+	public V get() throws InterruptedException, ExecutionException {
+		countDownLatch.await();
+		return report();
+	}
+
+	@Override
+	public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!countDownLatch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return report();
+	}
+
+	private V report() throws ExecutionException {
+		Throwable _cause = cause;
+		if (_cause == null) {
+			return result;
+		}
+		if (_cause instanceof CancellationException) {
+			throw (CancellationException) _cause;
+		}
+		throw new ExecutionException(_cause);
+	}
+
+	private void complete() {
+		countDownLatch.countDown();
+		List<InvokeFutureListener<V>> _listeners;
+		synchronized (this) {
+			_listeners = listeners;
+			listeners = null;
+		}
+		for (InvokeFutureListener<V> listener : _listeners) {
+			notifyListener(listener);
+		}
+	}
+
+	private void notifyListener(InvokeFutureListener<V> listener) {
+		try {
+			if (cause == null) {
+				listener.operationSuccess(result);
+			} else {
+				listener.operationFailure(cause);
+			}
+		} catch (Throwable t) {
+			logger.warn("notify invoke future listener [{}] occur exception [{}]", listener, t.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package org.laopopo.client.consumer.future;
+
+import java.util.concurrent.Future;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 异步调用返回的future，可以阻塞等待结果，也可以注册监听器在结果返回的时候被回调
+ * @time 2016年10月20日
+ * @modifytime
+ */
+public interface InvokeFuture<V> extends Future<V> {
+
+	/**
+	 * 增加一个监听器，如果结果已经返回，则直接在当前线程中回调
+	 * @param listener
+	 * @return
+	 */
+	InvokeFuture<V> addListener(InvokeFutureListener<V> listener);
+
+	/**
+	 * 调用是否成功，只有在{@link #isDone()}为true的时候才有意义
+	 * @return
+	 */
+	boolean isSuccess();
+
+	/**
+	 * 调用失败的原因，调用没有完成或者调用成功返回null
+	 * @return
+	 */
+	Throwable cause();
+
+}
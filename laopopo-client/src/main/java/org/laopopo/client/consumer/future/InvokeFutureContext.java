@@ -0,0 +1,39 @@
+package org.laopopo.client.consumer.future;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 异步调用的上下文，当服务接口的返回值不是{@link InvokeFuture}的时候，代理方法返回默认值，
+ * 调用者在同一个线程中通过{@link #future()}拿到本次调用的future
+ * @time 2016年10月20日
+ * @modifytime
+ */
+public class InvokeFutureContext {
+
+	private static final ThreadLocal<InvokeFuture<?>> futureThreadLocal = new ThreadLocal<InvokeFuture<?>>();
+
+	/**
+	 * 获取当前线程最近一次异步调用的future，获取之后清除
+	 * @return
+	 */
+	public static InvokeFuture<?> future() {
+		InvokeFuture<?> future = futureThreadLocal.get();
+		futureThreadLocal.remove();
+		return future;
+	}
+
+	/**
+	 * 获取当前线程最近一次异步调用的future，并转换成期望的返回类型
+	 * @param expectReturnType
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V> InvokeFuture<V> future(Class<V> expectReturnType) {
+		return (InvokeFuture<V>) future();
+	}
+
+	public static void set(InvokeFuture<?> future) {
+		futureThreadLocal.set(future);
+	}
+
+}
@@ -0,0 +1,16 @@
+package org.laopopo.client.consumer.future;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 异步调用结果的监听器，默认在netty的IO线程中被回调，不要在里面做阻塞的操作
+ * @time 2016年10月20日
+ * @modifytime
+ */
+public interface InvokeFutureListener<V> {
+
+	void operationSuccess(V result);
+
+	void operationFailure(Throwable cause);
+
+}
@@ -0,0 +1,209 @@
+package org.laopopo.client.consumer.proxy;
+
+import io.netty.channel.Channel;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.laopopo.client.annotation.RPConsumer;
+import org.laopopo.client.consumer.AbstractDefaultConsumer;
+import org.laopopo.client.consumer.Consumer;
+import org.laopopo.client.consumer.DeadlineContext;
+import org.laopopo.client.consumer.breaker.CircuitBreakerManager;
+import org.laopopo.client.metrics.ConsumerMeter;
+import org.laopopo.client.metrics.ConsumerMeterManager;
+import org.laopopo.common.exception.rpc.NoServiceException;
+import org.laopopo.common.loadbalance.LoadBalanceStrategy;
+import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.transport.body.RequestCustomBody;
+import org.laopopo.common.utils.ChannelGroup;
+import org.laopopo.common.utils.SystemClock;
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 同步调用和异步调用共同的部分：选择服务提供者，构建请求体，计算超时时间
+ * @time 2016年10月20日
+ * @modifytime 2016年10月27日 超时时间不超过当前线程继承的剩余时间预算；按照服务和提供者统计调用次数，失败，超时，耗时和正在进行的调用数；一致性哈希的时候根据参数选择提供者；重试和并行调用的时候选择没有用过的提供者；创建代理的时候计算好每个方法的调用描述，调用的时候不再读取注解；选出但是没有调用的提供者归还熔断器的探测机会
+ */
+public abstract class AbstractInvoker {
+
+	private static final Logger logger = LoggerFactory.getLogger(AbstractInvoker.class);
+
+	public static final long DEFAULT_TIMEOUT = 3000l;
+	//选择没有用过的提供者的时候按照负载均衡策略选择的次数
+	private static final int SELECT_ATTEMPTS = 3;
+
+	protected final Consumer consumer;
+	protected final LoadBalanceStrategy balanceStrategy;
+	//创建之后只读，不需要并发容器
+	private final Map<Method, MethodDescriptor> descriptors;
+
+	public AbstractInvoker(Consumer consumer, Class<?> interfaceClass, long timeoutMillis, Map<String, Long> methodsSpecialTimeoutMillis,
+			LoadBalanceStrategy balanceStrategy) {
+		this.consumer = consumer;
+		this.balanceStrategy = balanceStrategy;
+		this.descriptors = new HashMap<Method, MethodDescriptor>();
+		for (Method method : interfaceClass.getMethods()) {
+			MethodDescriptor descriptor = MethodDescriptor.of(method, timeoutMillis, methodsSpecialTimeoutMillis);
+			if (null != descriptor) {
+				descriptors.put(method, descriptor);
+			}
+		}
+	}
+
+	/**
+	 * 被调用的方法的调用描述
+	 * @param method
+	 * @return
+	 */
+	protected MethodDescriptor descriptor(Method method) {
+		MethodDescriptor descriptor = descriptors.get(method);
+		if (null == descriptor) {
+			throw new UnsupportedOperationException("the method [" + method.getName() + "] has no annotation [@RPConsumer]");
+		}
+		return descriptor;
+	}
+
+	/**
+	 * 根据负载均衡策略选出该服务的一个提供者
+	 * @param serviceName
+	 * @return
+	 */
+	protected ChannelGroup select(String serviceName) {
+		return select(serviceName, null);
+	}
+
+	/**
+	 * 根据负载均衡策略选出该服务的一个提供者
+	 * @param serviceName
+	 * @param hashKey 一致性哈希的key，{@link #hashKey}的结果
+	 * @return
+	 */
+	protected ChannelGroup select(String serviceName, Object hashKey) {
+
+		ChannelGroup channelGroup = consumer.loadBalance(serviceName, balanceStrategy, hashKey);
+
+		if (channelGroup == null || channelGroup.size() == 0) {
+			//如果有channelGroup但是channel中却没有active的Channel的有可能是用户通过直连的方式去调用，我们需要去根据远程的地址去初始化channel
+			if(channelGroup != null && channelGroup.getAddress() != null){
+
+				logger.warn("direct connect provider");
+				Channel channel = null;
+				try {
+					channel = consumer.directGetProviderByChannel(channelGroup.getAddress());
+					channelGroup.add(channel);
+
+				} catch (InterruptedException e) {
+					logger.warn("direction get channel occor exception [{}]",e.getMessage());
+				}
+			}else{
+				throw new NoServiceException("没有第三方提供该服务，请检查服务名");
+			}
+		}
+		return channelGroup;
+	}
+
+	/**
+	 * 选择一个不在excluded中的提供者，失败重试和并行调用的时候使用
+	 * 先按照负载均衡策略选择几次，都选中用过的提供者的时候(比如一致性哈希，或者提供者很少)，再按顺序找一个可以调用的
+	 * @param serviceName
+	 * @param hashKey
+	 * @param excluded 已经用过的提供者
+	 * @return 没有其他可以调用的提供者的时候返回null
+	 */
+	protected ChannelGroup selectExcluding(String serviceName, Object hashKey, List<ChannelGroup> excluded) {
+
+		for (int i = 0; i < SELECT_ATTEMPTS; i++) {
+			ChannelGroup channelGroup = select(serviceName, hashKey);
+			if (!excluded.contains(channelGroup)) {
+				return channelGroup;
+			}
+			//选中的是用过的提供者，不会调用它
+			release(channelGroup);
+		}
+		CopyOnWriteArrayList<ChannelGroup> list = AbstractDefaultConsumer.getChannelGroupByServiceName(serviceName);
+		if (null == list) {
+			return null;
+		}
+		for (ChannelGroup channelGroup : list) {
+			if (!excluded.contains(channelGroup) && channelGroup.isAvailable() && CircuitBreakerManager.allow(channelGroup.getAddress())) {
+				return channelGroup;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 选出的提供者最终没有被调用(比如时间预算已经用完)，归还它的熔断器在HALF_OPEN状态下的探测机会
+	 * @param channelGroup {@link #select}选出的提供者
+	 */
+	protected void release(ChannelGroup channelGroup) {
+		CircuitBreakerManager.release(channelGroup.getAddress());
+	}
+
+	/**
+	 * 一致性哈希使用的key，{@link RPConsumer#hashArgIndex()}指定位置的参数
+	 * @param descriptor
+	 * @param args
+	 * @return 没有这个位置的参数的时候返回null
+	 */
+	protected Object hashKey(MethodDescriptor descriptor, Object[] args) {
+		int index = descriptor.getHashArgIndex();
+		return null == args || index < 0 || index >= args.length ? null : args[index];
+	}
+
+	/**
+	 * 构建远程调用的请求
+	 * @param serviceName
+	 * @param args
+	 * @param timeoutMillis
+	 * @return
+	 */
+	protected RemotingTransporter createRequest(String serviceName, Object[] args, long timeoutMillis) {
+		return RemotingTransporter.createRequestTransporter(LaopopoProtocol.RPC_REQUEST, createRequestBody(serviceName, args, timeoutMillis));
+	}
+
+	/**
+	 * 构建远程调用的请求体
+	 * @param serviceName
+	 * @param args
+	 * @param timeoutMillis 调用的剩余时间预算，provider端据此丢弃已经超时的调用，并传递给嵌套调用
+	 * @return
+	 */
+	protected RequestCustomBody createRequestBody(String serviceName, Object[] args, long timeoutMillis) {
+		RequestCustomBody body = new RequestCustomBody();
+		body.setArgs(args);                                   //调用参数
+		body.setServiceName(serviceName);                     //调用的服务名
+		body.setTimestamp(SystemClock.millisClock().now());   //调用的时间
+		body.setTimeoutMillis(timeoutMillis);                 //调用的剩余时间预算
+		return body;
+	}
+
+	/**
+	 * 调用选中的提供者的统计，调用以{@link ConsumerMeter#begin()}开始，以成功，失败或者超时中的一个结束
+	 * @param serviceName
+	 * @param channelGroup {@link #select}选出的提供者
+	 * @return
+	 */
+	protected ConsumerMeter meter(String serviceName, ChannelGroup channelGroup) {
+		return ConsumerMeterManager.getOrCreateMeter(serviceName, channelGroup.getAddress());
+	}
+
+	/**
+	 * 获取该服务的超时时间，特定的超时时间在创建调用描述的时候已经处理过
+	 * 在provider执行服务的线程中发起的嵌套调用，超时时间不超过上游调用剩余的时间预算
+	 * @param descriptor
+	 * @return 小于等于0表示上游调用的时间预算已经用完，不应该再发送请求
+	 */
+	protected long timeoutMillis(MethodDescriptor descriptor) {
+		return DeadlineContext.remainingMillis(descriptor.getTimeoutMillis());
+	}
+
+}
@@ -0,0 +1,128 @@
+package org.laopopo.client.consumer.proxy;
+
+import io.netty.channel.Channel;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+import org.laopopo.client.consumer.Consumer;
+import org.laopopo.client.consumer.ResponseReader;
+import org.laopopo.client.consumer.future.DefaultInvokeFuture;
+import org.laopopo.client.consumer.future.InvokeFuture;
+import org.laopopo.client.consumer.future.InvokeFutureContext;
+import org.laopopo.client.metrics.ConsumerMeter;
+import org.laopopo.common.exception.remoting.RemotingSendRequestException;
+import org.laopopo.common.exception.remoting.RemotingTimeoutException;
+import org.laopopo.common.exception.rpc.RemoteException;
+import org.laopopo.common.loadbalance.LoadBalanceStrategy;
+import org.laopopo.common.transport.body.ResponseCustomBody;
+import org.laopopo.common.utils.ChannelGroup;
+import org.laopopo.common.utils.Status;
+import org.laopopo.remoting.ConnectionUtils;
+import org.laopopo.remoting.InvokeCallback;
+import org.laopopo.remoting.model.RemotingResponse;
+import org.laopopo.remoting.model.RemotingTransporter;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 异步调用的类，调用线程发送完请求之后立即返回，不阻塞等待结果
+ * 1)如果服务接口方法的返回类型是{@link InvokeFuture}，则直接返回future
+ * 2)否则返回该类型的默认值，调用者通过{@link InvokeFutureContext#future()}拿到本次调用的future
+ * future在netty的IO线程中被完成
+ * @time 2016年10月20日
+ * @modifytime 2016年10月27日 时间预算用完的嵌套调用直接以超时失败；在回调中按照提供者统计调用的结果和耗时；一致性哈希的时候按照参数选择提供者；使用创建代理时计算好的调用描述；先检查时间预算再选择提供者；remoting层没有响应体的拒绝以带有原因的RemoteException失败；只有发送失败，超时和SERVER_BUSY记录为熔断器的失败
+ */
+public class AsyncInvoker extends AbstractInvoker {
+
+	public AsyncInvoker(Consumer consumer, Class<?> interfaceClass, long timeoutMillis, Map<String, Long> methodsSpecialTimeoutMillis,
+			LoadBalanceStrategy balanceStrategy) {
+		super(consumer, interfaceClass, timeoutMillis, methodsSpecialTimeoutMillis, balanceStrategy);
+	}
+
+	@RuntimeType
+	public Object invoke(@Origin Method method, @AllArguments @RuntimeType Object[] args) {
+
+		MethodDescriptor descriptor = descriptor(method);
+
+		final String serviceName = descriptor.getServiceName();
+		final long time = timeoutMillis(descriptor);
+		final DefaultInvokeFuture<Object> future = new DefaultInvokeFuture<Object>();
+		if (time <= 0) {
+			//上游调用的时间预算已经用完，不再选择提供者和发送请求
+			future.setFailure(new RemotingTimeoutException("service [" + serviceName + "] deadline exceeded before call"));
+			return returnFuture(descriptor, future);
+		}
+		ChannelGroup channelGroup = select(serviceName, hashKey(descriptor, args));
+		RemotingTransporter request = createRequest(serviceName, args, time);
+		final Channel channel = channelGroup.next();
+		final ConsumerMeter meter = meter(serviceName, channelGroup);
+		final long beginNanos = meter.begin();
+
+		consumer.sendRpcRequestToProviderAsync(channel, request, time, new InvokeCallback() {
+
+			@Override
+			public void operationComplete(RemotingResponse remotingResponse) {
+				RemotingTransporter response = remotingResponse.getRemotingTransporter();
+				if (null == response) {
+					String address = ConnectionUtils.parseChannelRemoteAddr(channel);
+					if (remotingResponse.getCause() instanceof RemotingTimeoutException) {
+						//时间轮判定的超时
+						meter.timeout(beginNanos);
+						future.setFailure(remotingResponse.getCause());
+					} else if (remotingResponse.isSendRequestOK()) {
+						meter.timeout(beginNanos);
+						future.setFailure(new RemotingTimeoutException(address, time, remotingResponse.getCause()));
+					} else {
+						meter.failure(beginNanos);
+						future.setFailure(new RemotingSendRequestException(address, remotingResponse.getCause()));
+					}
+					return;
+				}
+				try {
+					//remoting层的HANDLER_BUSY和HANDLER_ERROR没有响应体，转换成SERVER_BUSY和SERVER_ERROR
+					ResponseCustomBody customBody = ResponseReader.read(response);
+					if (customBody.getStatus() == Status.OK.value()) {
+						meter.success(beginNanos);
+						future.setSuccess(customBody.getResultWrapper().getResult());
+					} else {
+						meter.failure(beginNanos, customBody.getStatus());
+						future.setFailure(new RemoteException(failureMessage(serviceName, customBody), channel.remoteAddress()));
+					}
+				} catch (Exception e) {
+					meter.abort(beginNanos);
+					future.setFailure(e);
+				}
+			}
+		});
+
+		return returnFuture(descriptor, future);
+	}
+
+	/**
+	 * 失败的响应中provider给出的原因，没有原因的时候使用响应的状态
+	 */
+	private static String failureMessage(String serviceName, ResponseCustomBody customBody) {
+		String error = customBody.getResultWrapper().getError();
+		if (null != error) {
+			return error;
+		}
+		Status status = Status.parse(customBody.getStatus());
+		return "service [" + serviceName + "] failed with status [" + (null == status ? customBody.getStatus() : status.description()) + "]";
+	}
+
+	private Object returnFuture(MethodDescriptor descriptor, InvokeFuture<Object> future) {
+
+		InvokeFutureContext.set(future);
+
+		if (descriptor.isReturnFuture()) {
+			return future;
+		}
+		return descriptor.getDefaultReturnValue();
+	}
+
+}
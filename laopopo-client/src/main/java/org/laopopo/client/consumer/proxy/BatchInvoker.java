@@ -0,0 +1,94 @@
+package org.laopopo.client.consumer.proxy;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import net.bytebuddy.implementation.bind.annotation.AllArguments;
+import net.bytebuddy.implementation.bind.annotation.Origin;
+import net.bytebuddy.implementation.bind.annotation.RuntimeType;
+
+import org.laopopo.client.consumer.Consumer;
+import org.laopopo.client.consumer.future.InvokeFuture;
+import org.laopopo.client.metrics.ConsumerMeter;
+import org.laopopo.common.exception.remoting.RemotingSendRequestException;
+import org.laopopo.common.exception.remoting.RemotingTimeoutException;
+import org.laopopo.common.loadbalance.LoadBalanceStrategy;
+import org.laopopo.common.transport.body.RequestCustomBody;
+import org.laopopo.common.transport.body.ResponseCustomBody;
+import org.laopopo.common.utils.ChannelGroup;
+import org.laopopo.common.utils.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 批量调用的类，对调用者来说和同步调用一样阻塞等待结果
+ * 请求交给{@link Consumer#sendRpcRequestToProviderBatch}，和其他线程在时间窗口内发往同一个provider的调用合并成一个批量请求
+ * @time 2016年10月25日
+ * @modifytime 2016年10月27日 时间预算用完的嵌套调用直接失败；按照提供者统计调用的结果和耗时；一致性哈希的时候按照参数选择提供者；使用创建代理时计算好的调用描述；先检查时间预算再选择提供者；只有发送失败，超时和SERVER_BUSY记录为熔断器的失败
+ */
+public class BatchInvoker extends AbstractInvoker {
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchInvoker.class);
+
+	public BatchInvoker(Consumer consumer, Class<?> interfaceClass, long timeoutMillis, Map<String, Long> methodsSpecialTimeoutMillis,
+			LoadBalanceStrategy balanceStrategy) {
+		super(consumer, interfaceClass, timeoutMillis, methodsSpecialTimeoutMillis, balanceStrategy);
+	}
+
+	@RuntimeType
+	public Object invoke(@Origin Method method, @AllArguments @RuntimeType Object[] args) {
+
+		MethodDescriptor descriptor = descriptor(method);
+
+		String serviceName = descriptor.getServiceName();
+		long time = timeoutMillis(descriptor);
+		if (time <= 0) {
+			logger.warn("service [{}] deadline exceeded before call", serviceName);
+			return null;
+		}
+		ChannelGroup channelGroup = select(serviceName, hashKey(descriptor, args));
+		RequestCustomBody body = createRequestBody(serviceName, args, time);
+
+		ConsumerMeter meter = meter(serviceName, channelGroup);
+		long beginNanos = meter.begin();
+		try {
+			InvokeFuture<ResponseCustomBody> future = consumer.sendRpcRequestToProviderBatch(channelGroup.next(), body, time);
+			//超时由时间轮判定，这里多等一点时间，避免和时间轮竞争
+			ResponseCustomBody customBody = future.get(time << 1, MILLISECONDS);
+			if (customBody.getStatus() == Status.OK.value()) {
+				meter.success(beginNanos);
+			} else {
+				meter.failure(beginNanos, customBody.getStatus());
+			}
+			return customBody.getResult();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RemotingTimeoutException) {
+				meter.timeout(beginNanos);
+			} else if (e.getCause() instanceof RemotingSendRequestException) {
+				meter.failure(beginNanos);
+			} else {
+				meter.abort(beginNanos);
+			}
+			logger.warn("batch call remoting occur exception [{}]", e.getCause().getMessage());
+			return null;
+		} catch (TimeoutException e) {
+			meter.timeout(beginNanos);
+			logger.warn("batch call remoting timeout [{}]", time);
+			return null;
+		} catch (InterruptedException e) {
+			meter.abort(beginNanos);
+			logger.error("interrupted exception [{}]", e.getMessage());
+			return null;
+		} catch (RuntimeException e) {
+			meter.abort(beginNanos);
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package org.laopopo.client.consumer.proxy;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 服务调用的方式
+ * @time 2016年10月20日
+ * @modifytime 2016年10月25日 增加批量调用
+ */
+public enum InvokeType {
+
+	SYNC,  //同步调用，调用线程阻塞直到结果返回或者超时
+	ASYNC, //异步调用，调用线程发送请求之后立即返回future
+	BATCH  //批量调用，调用线程阻塞直到结果返回或者超时，时间窗口内发往同一个provider的调用合并成一个请求发送
+
+}
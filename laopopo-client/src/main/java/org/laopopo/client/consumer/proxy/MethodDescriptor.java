@@ -0,0 +1,110 @@
+package org.laopopo.client.consumer.proxy;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import org.laopopo.client.annotation.RPConsumer;
+import org.laopopo.client.consumer.cluster.ClusterStrategy;
+import org.laopopo.client.consumer.future.InvokeFuture;
+import org.laopopo.common.utils.Reflects;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 服务接口中一个方法的调用描述，创建代理的时候根据@RPConsumer和ProxyFactory的配置计算好，之后不再改变
+ * 每次调用直接读取这里的字段，不再反射读取注解，也不再查找方法特定的超时时间
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public final class MethodDescriptor {
+
+	private final String serviceName;
+	//方法特定的超时时间优先，没有的时候是接口整体的超时时间
+	private final long timeoutMillis;
+	private final int hashArgIndex;
+	private final ClusterStrategy cluster;
+	private final int retries;
+	private final int forks;
+	private final int hedgePercentile;
+	//异步调用的返回值
+	private final boolean returnFuture;
+	private final Object defaultReturnValue;
+
+	private MethodDescriptor(Method method, RPConsumer rpcConsumer, long timeoutMillis) {
+		this.serviceName = rpcConsumer.serviceName();
+		this.timeoutMillis = timeoutMillis;
+		this.hashArgIndex = rpcConsumer.hashArgIndex();
+		this.cluster = rpcConsumer.cluster();
+		this.retries = rpcConsumer.retries();
+		this.forks = rpcConsumer.forks();
+		this.hedgePercentile = rpcConsumer.hedgePercentile();
+		Class<?> returnType = method.getReturnType();
+		this.returnFuture = returnType.isAssignableFrom(InvokeFuture.class);
+		this.defaultReturnValue = Reflects.getTypeDefaultValue(returnType);
+	}
+
+	/**
+	 * @param method 服务接口的方法
+	 * @param timeoutMillis 接口整体的超时时间，0表示使用默认的超时时间
+	 * @param methodsSpecialTimeoutMillis 按照服务名配置的特定的超时时间
+	 * @return 方法上没有@RPConsumer注解的时候返回null
+	 */
+	public static MethodDescriptor of(Method method, long timeoutMillis, Map<String, Long> methodsSpecialTimeoutMillis) {
+
+		RPConsumer rpcConsumer = method.getAnnotation(RPConsumer.class);
+		if (null == rpcConsumer) {
+			return null;
+		}
+		long time = timeoutMillis == 0l ? AbstractInvoker.DEFAULT_TIMEOUT : timeoutMillis;
+		if (methodsSpecialTimeoutMillis != null) {
+			Long methodTime = methodsSpecialTimeoutMillis.get(rpcConsumer.serviceName());
+			if (null != methodTime) {
+				time = methodTime;
+			}
+		}
+		return new MethodDescriptor(method, rpcConsumer, time);
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public int getHashArgIndex() {
+		return hashArgIndex;
+	}
+
+	public ClusterStrategy getCluster() {
+		return cluster;
+	}
+
+	public int getRetries() {
+		return retries;
+	}
+
+	public int getForks() {
+		return forks;
+	}
+
+	public int getHedgePercentile() {
+		return hedgePercentile;
+	}
+
+	public boolean isReturnFuture() {
+		return returnFuture;
+	}
+
+	public Object getDefaultReturnValue() {
+		return defaultReturnValue;
+	}
+
+	@Override
+	public String toString() {
+		return "MethodDescriptor [serviceName=" + serviceName + ", timeoutMillis=" + timeoutMillis + ", hashArgIndex=" + hashArgIndex + ", cluster="
+				+ cluster + ", retries=" + retries + ", forks=" + forks + ", hedgePercentile=" + hedgePercentile + "]";
+	}
+
+}
@@ -3,6 +3,7 @@ package org.laopopo.client.consumer.proxy;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,7 +18,7 @@ import org.laopopo.common.utils.UnresolvedAddress;
  * @author BazingaLyn
  * @description 代理工厂类，用于对服务接口的编织
  * @time 2016年9月1日
- * @modifytime 2016年10月17日
+ * @modifytime 2016年10月27日 增加异步调用和批量调用的方式；调用者创建的时候计算每个方法的调用描述
  */
 public class ProxyFactory<T> {
 	
@@ -28,12 +29,14 @@ public class ProxyFactory<T> {
 	private long timeoutMillis;								//接口整理超时时间
     private Map<String, Long> methodsSpecialTimeoutMillis;  //每个方法特定的超时时间
     private LoadBalanceStrategy balanceStrategy;			//负载均衡的策略
+    private InvokeType invokeType = InvokeType.SYNC;		//调用方式，默认同步调用
     
     
 	public static <I> ProxyFactory<I> factory(Class<I> interfaceClass) {
         ProxyFactory<I> factory = new ProxyFactory<>(interfaceClass);
         // 初始化数据
         factory.addresses = new ArrayList<UnresolvedAddress>();
+        factory.methodsSpecialTimeoutMillis = new HashMap<String, Long>();
 
         return factory;
     }
@@ -88,6 +91,16 @@ public class ProxyFactory<T> {
         return this;
     }
 
+    /**
+     * 设置调用方式，同步，异步或者批量
+     * @param invokeType
+     * @return
+     */
+    public ProxyFactory<T> invokeType(InvokeType invokeType) {
+        this.invokeType = invokeType;
+        return this;
+    }
+
     public ProxyFactory<T> methodSpecialTimeoutMillis(String methodName, long timeoutMillis) {
         methodsSpecialTimeoutMillis.put(methodName, timeoutMillis);
         return this;
@@ -121,7 +134,18 @@ public class ProxyFactory<T> {
 			throw new UnsupportedOperationException("the interfaceClass no any annotation [@RPConsumer]");
 		}
 		
-		Object handler = new SynInvoker(consumer, timeoutMillis, methodsSpecialTimeoutMillis, balanceStrategy);
+		Object handler = null;
+		switch (invokeType) {
+		case ASYNC:
+			handler = new AsyncInvoker(consumer, interfaceClass, timeoutMillis, methodsSpecialTimeoutMillis, balanceStrategy);
+			break;
+		case BATCH:
+			handler = new BatchInvoker(consumer, interfaceClass, timeoutMillis, methodsSpecialTimeoutMillis, balanceStrategy);
+			break;
+		default:
+			handler = new SynInvoker(consumer, interfaceClass, timeoutMillis, methodsSpecialTimeoutMillis, balanceStrategy);
+			break;
+		}
 		
 		return Proxies.getDefault().newProxy(interfaceClass, handler);
 	}
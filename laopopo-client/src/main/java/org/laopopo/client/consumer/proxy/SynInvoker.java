@@ -1,116 +1,391 @@
 package org.laopopo.client.consumer.proxy;
 
-import static org.laopopo.common.serialization.SerializerHolder.serializerImpl;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import io.netty.channel.Channel;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.bytebuddy.implementation.bind.annotation.AllArguments;
 import net.bytebuddy.implementation.bind.annotation.Origin;
 import net.bytebuddy.implementation.bind.annotation.RuntimeType;
 
-import org.laopopo.client.annotation.RPConsumer;
 import org.laopopo.client.consumer.Consumer;
+import org.laopopo.client.consumer.ResponseReader;
+import org.laopopo.client.consumer.cluster.ClusterStrategy;
+import org.laopopo.client.consumer.cluster.HedgePolicy;
+import org.laopopo.client.consumer.cluster.RetryBudget;
+import org.laopopo.client.consumer.future.DefaultInvokeFuture;
+import org.laopopo.client.metrics.ConsumerMeter;
 import org.laopopo.common.exception.remoting.RemotingSendRequestException;
 import org.laopopo.common.exception.remoting.RemotingTimeoutException;
-import org.laopopo.common.exception.rpc.NoServiceException;
+import org.laopopo.common.exception.rpc.CircuitBreakerOpenException;
+import org.laopopo.common.exception.rpc.RemoteException;
 import org.laopopo.common.loadbalance.LoadBalanceStrategy;
-import org.laopopo.common.protocal.LaopopoProtocol;
-import org.laopopo.common.transport.body.RequestCustomBody;
 import org.laopopo.common.transport.body.ResponseCustomBody;
 import org.laopopo.common.utils.ChannelGroup;
-import org.laopopo.common.utils.SystemClock;
+import org.laopopo.common.utils.Status;
+import org.laopopo.remoting.InvokeCallback;
+import org.laopopo.remoting.model.RemotingResponse;
 import org.laopopo.remoting.model.RemotingTransporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * 
+ *
  * @author BazingaLyn
- * @description 同步调用的类
+ * @description 同步调用的类，失败的时候按照@RPConsumer配置的{@link ClusterStrategy}处理
  * @time 2016年8月27日
- * @modifytime
+ * @modifytime 2016年10月27日 选择提供者和构建请求的逻辑提取到{@link AbstractInvoker}；时间预算用完的嵌套调用直接失败；按照提供者统计调用的结果和耗时；一致性哈希的时候按照参数选择提供者；增加failover和forking两种调用方式；增加对冲请求，结果确定之后取消输掉的请求；使用创建代理时计算好的调用描述；没有发送的调用归还熔断器的探测机会；forking先检查时间预算，其他提供者都熔断的时候使用已经选出的提供者；remoting层没有响应体的拒绝按照code转换成对应的状态，忙碌的拒绝可以重试；只有发送失败，超时和SERVER_BUSY记录为熔断器的失败
  */
-public class SynInvoker {
-	
+public class SynInvoker extends AbstractInvoker {
+
 	private static final Logger logger = LoggerFactory.getLogger(SynInvoker.class);
 
-	private Consumer consumer;
-	private long timeoutMillis;
-	private Map<String, Long> methodsSpecialTimeoutMillis;
-	private LoadBalanceStrategy balanceStrategy;
-	
-
-	public SynInvoker(Consumer consumer, long timeoutMillis, Map<String, Long> methodsSpecialTimeoutMillis, LoadBalanceStrategy balanceStrategy) {
-		this.consumer = consumer;
-		this.timeoutMillis = timeoutMillis;
-		this.methodsSpecialTimeoutMillis = methodsSpecialTimeoutMillis;
-		this.balanceStrategy = balanceStrategy;
+	public SynInvoker(Consumer consumer, Class<?> interfaceClass, long timeoutMillis, Map<String, Long> methodsSpecialTimeoutMillis,
+			LoadBalanceStrategy balanceStrategy) {
+		super(consumer, interfaceClass, timeoutMillis, methodsSpecialTimeoutMillis, balanceStrategy);
 	}
 
 	@RuntimeType
 	public Object invoke(@Origin Method method, @AllArguments @RuntimeType Object[] args)  {
-		
-		RPConsumer rpcConsumer = method.getAnnotation(RPConsumer.class);
-		
-		String serviceName = rpcConsumer.serviceName();
-		LoadBalanceStrategy _balanceStrategy = balanceStrategy;
-		ChannelGroup channelGroup = consumer.loadBalance(serviceName,_balanceStrategy);
-		
-		if (channelGroup == null || channelGroup.size() == 0) {
-			//如果有channelGroup但是channel中却没有active的Channel的有可能是用户通过直连的方式去调用，我们需要去根据远程的地址去初始化channel
-			if(channelGroup != null && channelGroup.getAddress() != null){
-				
-				logger.warn("direct connect provider");
-				Channel channel = null;
+
+		MethodDescriptor descriptor = descriptor(method);
+
+		Object hashKey = hashKey(descriptor, args);
+
+		switch (descriptor.getCluster()) {
+			case FAILOVER:
+				return failover(descriptor, hashKey, args);
+			case FORKING:
+				return forking(descriptor, hashKey, args);
+			case HEDGING:
+				return hedging(descriptor, hashKey, args);
+			default:
+				return failfast(descriptor, hashKey, args);
+		}
+	}
+
+	/**
+	 * 调用一次，失败之后直接返回null
+	 */
+	private Object failfast(MethodDescriptor descriptor, Object hashKey, Object[] args) {
+
+		String serviceName = descriptor.getServiceName();
+		//先检查时间预算再选择提供者，不发送的调用不占用熔断器的探测机会
+		long time = timeoutMillis(descriptor);
+		if (time <= 0) {
+			logger.warn("service [{}] deadline exceeded before call", serviceName);
+			return null;
+		}
+		ChannelGroup channelGroup = select(serviceName, hashKey);
+		try {
+			ResponseCustomBody customBody = call(serviceName, channelGroup, args, time);
+			return null == customBody ? null : customBody.getResult();
+		} catch (InterruptedException e) {
+			logger.error("interrupted exception [{}]",e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * 超时，发送失败或者提供者没有执行的时候换一个提供者重试
+	 * 每次重试的超时时间重新计算，不超过上游调用剩余的时间预算，预算用完，没有其他提供者或者服务的重试预算用完的时候停止重试
+	 */
+	private Object failover(MethodDescriptor descriptor, Object hashKey, Object[] args) {
+
+		String serviceName = descriptor.getServiceName();
+		int retries = descriptor.getRetries();
+		RetryBudget budget = RetryBudget.of(serviceName);
+		budget.deposit();
+
+		List<ChannelGroup> tried = new ArrayList<ChannelGroup>(retries + 1);
+		ChannelGroup channelGroup = select(serviceName, hashKey);
+		for (int attempt = 0;; attempt++) {
+
+			long time = timeoutMillis(descriptor);
+			if (time <= 0) {
+				logger.warn("service [{}] deadline exceeded before call, attempt [{}]", serviceName, attempt);
+				release(channelGroup);
+				return null;
+			}
+			ResponseCustomBody customBody;
+			try {
+				customBody = call(serviceName, channelGroup, args, time);
+			} catch (InterruptedException e) {
+				logger.error("interrupted exception [{}]",e.getMessage());
+				return null;
+			}
+			if (null != customBody && !retryable(customBody.getStatus())) {
+				return customBody.getResult();
+			}
+
+			tried.add(channelGroup);
+			if (attempt >= retries || !budget.tryWithdraw()) {
+				return null == customBody ? null : customBody.getResult();
+			}
+			try {
+				channelGroup = selectExcluding(serviceName, hashKey, tried);
+			} catch (CircuitBreakerOpenException e) {
+				channelGroup = null;
+			}
+			if (null == channelGroup) {
+				logger.warn("service [{}] no other provider to retry", serviceName);
+				return null == customBody ? null : customBody.getResult();
+			}
+			logger.warn("service [{}] retry on provider [{}], attempt [{}]", serviceName, channelGroup.getAddress(), attempt + 1);
+		}
+	}
+
+	/**
+	 * 同时向forks个不同的提供者发送请求，返回最先成功的结果，都失败的时候返回null
+	 * 结果确定之后取消其他还没有返回的请求
+	 */
+	private Object forking(MethodDescriptor descriptor, Object hashKey, Object[] args) {
+
+		String serviceName = descriptor.getServiceName();
+		//先检查时间预算再选择提供者，不发送的调用不占用熔断器的探测机会
+		long time = timeoutMillis(descriptor);
+		if (time <= 0) {
+			logger.warn("service [{}] deadline exceeded before call", serviceName);
+			return null;
+		}
+
+		int forks = descriptor.getForks();
+		List<ChannelGroup> channelGroups = new ArrayList<ChannelGroup>(forks);
+		channelGroups.add(select(serviceName, hashKey));
+		while (channelGroups.size() < forks) {
+			ChannelGroup channelGroup;
+			try {
+				channelGroup = selectExcluding(serviceName, hashKey, channelGroups);
+			} catch (CircuitBreakerOpenException e) {
+				//其他提供者都熔断了，用已经选出的提供者
+				channelGroup = null;
+			}
+			if (null == channelGroup) {
+				break;
+			}
+			channelGroups.add(channelGroup);
+		}
+
+		RaceCall call = new RaceCall(serviceName, args);
+		try {
+			for (ChannelGroup channelGroup : channelGroups) {
+				call.send(channelGroup, time);
+			}
+			//超时由时间轮判定，这里多等一点时间，避免和时间轮竞争
+			return call.future.get(time << 1, MILLISECONDS);
+		} catch (ExecutionException e) {
+			logger.warn("service [{}] forking call failed [{}]", serviceName, e.getCause());
+			return null;
+		} catch (TimeoutException e) {
+			logger.warn("service [{}] forking call timeout", serviceName);
+			return null;
+		} catch (InterruptedException e) {
+			logger.error("interrupted exception [{}]",e.getMessage());
+			return null;
+		} finally {
+			call.cancelPending();
+		}
+	}
+
+	/**
+	 * 对冲请求，第一个请求超过对冲延迟(该服务耗时的某个分位数)还没有返回的时候，向另一个提供者发送第二个请求，使用先成功的结果
+	 * 第二个请求的超时时间是第一个请求剩余的时间，两个请求的截止时间相同
+	 * 样本不够，全局的对冲预算用完或者没有其他提供者的时候不对冲，和failfast一样
+	 */
+	private Object hedging(MethodDescriptor descriptor, Object hashKey, Object[] args) {
+
+		String serviceName = descriptor.getServiceName();
+		long time = timeoutMillis(descriptor);
+		if (time <= 0) {
+			logger.warn("service [{}] deadline exceeded before call", serviceName);
+			return null;
+		}
+		ChannelGroup channelGroup = select(serviceName, hashKey);
+
+		HedgePolicy.deposit();
+		long delayMicros = HedgePolicy.delayMicros(serviceName, descriptor.getHedgePercentile());
+		RaceCall call = new RaceCall(serviceName, args);
+		long beginNanos = System.nanoTime();
+		try {
+			call.send(channelGroup, time);
+			if (delayMicros >= 0 && delayMicros < MILLISECONDS.toMicros(time)) {
 				try {
-					channel = consumer.directGetProviderByChannel(channelGroup.getAddress());
-					channelGroup.add(channel);
-					
-				} catch (InterruptedException e) {
-					logger.warn("direction get channel occor exception [{}]",e.getMessage());
+					return call.future.get(delayMicros, MICROSECONDS);
+				} catch (TimeoutException e) {
+					hedge(call, serviceName, hashKey, channelGroup, time - NANOSECONDS.toMillis(System.nanoTime() - beginNanos));
 				}
-			}else{
-				throw new NoServiceException("没有第三方提供该服务，请检查服务名");
 			}
+			return call.future.get(time << 1, MILLISECONDS);
+		} catch (ExecutionException e) {
+			logger.warn("service [{}] hedging call failed [{}]", serviceName, e.getCause());
+			return null;
+		} catch (TimeoutException e) {
+			logger.warn("service [{}] hedging call timeout", serviceName);
+			return null;
+		} catch (InterruptedException e) {
+			logger.error("interrupted exception [{}]",e.getMessage());
+			return null;
+		} finally {
+			call.cancelPending();
 		}
+	}
 
-		RequestCustomBody body = new RequestCustomBody();
-		body.setArgs(args);                                   //调用参数
-		body.setServiceName(serviceName);                     //调用的服务名
-		body.setTimestamp(SystemClock.millisClock().now());   //调用的时间
-		
-		Long time = null;
-		if(methodsSpecialTimeoutMillis != null){
-			
-			Long methodTime = methodsSpecialTimeoutMillis.get(serviceName);
-			if(null != methodTime){
-				time = methodTime;
-			}
-		}else{
-			time = timeoutMillis == 0l ? 3000l :timeoutMillis;
+	private void hedge(RaceCall call, String serviceName, Object hashKey, ChannelGroup first, long remainingMillis) {
+
+		if (remainingMillis <= 0 || !HedgePolicy.tryHedge()) {
+			return;
 		}
-		
-		
-		RemotingTransporter request = RemotingTransporter.createRequestTransporter(LaopopoProtocol.RPC_REQUEST, body);
-		RemotingTransporter response;
+		ChannelGroup second;
 		try {
-			
-			response = consumer.sendRpcRequestToProvider(channelGroup.next(),request,time);
-			ResponseCustomBody customBody = serializerImpl().readObject(response.bytes(), ResponseCustomBody.class);
-			return customBody.getResult();
-			
+			second = selectExcluding(serviceName, hashKey, Collections.singletonList(first));
+		} catch (CircuitBreakerOpenException e) {
+			second = null;
+		}
+		if (null == second) {
+			return;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("service [{}] hedge to provider [{}]", serviceName, second.getAddress());
+		}
+		call.send(second, remainingMillis);
+	}
+
+	/**
+	 * 向选中的提供者发送一次请求并等待结果，按照提供者统计调用的结果和耗时
+	 * @return 超时或者发送失败的时候返回null
+	 * @throws InterruptedException
+	 */
+	private ResponseCustomBody call(String serviceName, ChannelGroup channelGroup, Object[] args, long time) throws InterruptedException {
+
+		RemotingTransporter request = createRequest(serviceName, args, time);
+
+		ConsumerMeter meter = meter(serviceName, channelGroup);
+		long beginNanos = meter.begin();
+		try {
+
+			RemotingTransporter response = consumer.sendRpcRequestToProvider(channelGroup.next(),request,time);
+			//remoting层的HANDLER_BUSY没有响应体，转换成SERVER_BUSY，failover据此换一个提供者重试
+			ResponseCustomBody customBody = ResponseReader.read(response);
+			if (customBody.getStatus() == Status.OK.value()) {
+				meter.success(beginNanos);
+			} else {
+				meter.failure(beginNanos, customBody.getStatus());
+			}
+			return customBody;
+
 		} catch (RemotingTimeoutException e) {
+			meter.timeout(beginNanos);
 			logger.warn("call remoting timeout [{}]",e.getMessage());
 			return null;
 		} catch (RemotingSendRequestException e) {
+			meter.failure(beginNanos);
 			logger.warn("send request orror exception [{}]",e.getMessage());
 			return null;
 		} catch (InterruptedException e) {
-			logger.error("interrupted exception [{}]",e.getMessage());
-			return null;
+			meter.abort(beginNanos);
+			throw e;
+		} catch (RuntimeException e) {
+			meter.abort(beginNanos);
+			throw e;
+		}
+	}
+
+	/**
+	 * 同一个调用发往多个提供者的一组请求，最先成功的结果完成future，全部失败的时候future失败
+	 * send和cancelPending只在调用线程中执行
+	 */
+	private final class RaceCall {
+
+		private final String serviceName;
+		private final Object[] args;
+		private final DefaultInvokeFuture<Object> future = new DefaultInvokeFuture<Object>();
+		private final AtomicInteger pending = new AtomicInteger();
+		private final List<RemotingTransporter> requests = new ArrayList<RemotingTransporter>(2);
+		private final List<ConsumerMeter> meters = new ArrayList<ConsumerMeter>(2);
+
+		RaceCall(String serviceName, Object[] args) {
+			this.serviceName = serviceName;
+			this.args = args;
 		}
+
+		void send(ChannelGroup channelGroup, long time) {
+
+			final Channel channel = channelGroup.next();
+			final ConsumerMeter meter = meter(serviceName, channelGroup);
+			RemotingTransporter request = createRequest(serviceName, args, time);
+			requests.add(request);
+			meters.add(meter);
+			pending.incrementAndGet();
+			final long beginNanos = meter.begin();
+			consumer.sendRpcRequestToProviderAsync(channel, request, time, new InvokeCallback() {
+
+				@Override
+				public void operationComplete(RemotingResponse remotingResponse) {
+					RemotingTransporter response = remotingResponse.getRemotingTransporter();
+					if (null == response) {
+						if (remotingResponse.isSendRequestOK()) {
+							meter.timeout(beginNanos);
+						} else {
+							meter.failure(beginNanos);
+						}
+						failed(channel, remotingResponse.getCause());
+						return;
+					}
+					try {
+						ResponseCustomBody customBody = ResponseReader.read(response);
+						if (customBody.getStatus() == Status.OK.value()) {
+							meter.success(beginNanos);
+							future.setSuccess(customBody.getResult());
+						} else {
+							meter.failure(beginNanos, customBody.getStatus());
+							failed(channel, null);
+						}
+					} catch (Exception e) {
+						meter.abort(beginNanos);
+						failed(channel, e);
+					}
+				}
+			});
+		}
+
+		private void failed(Channel channel, Throwable cause) {
+			//最后一个请求也失败了，调用失败
+			if (pending.decrementAndGet() == 0) {
+				future.setFailure(null == cause ? new RemoteException("service [" + serviceName + "] all calls failed", channel.remoteAddress()) : cause);
+			}
+		}
+
+		/**
+		 * 取消还没有返回的请求，从responseTable中移除，输掉的请求不再占用内存和时间轮
+		 * 取消成功的请求不会再回调，在这里结束它的统计
+		 */
+		void cancelPending() {
+			for (int i = 0; i < requests.size(); i++) {
+				if (consumer.cancelRpcRequestToProvider(requests.get(i).getOpaque())) {
+					meters.get(i).cancel();
+				}
+			}
+		}
+	}
+
+	/**
+	 * 提供者没有执行服务的状态，换一个提供者重试是安全的
+	 * @param status
+	 * @return
+	 */
+	private static boolean retryable(byte status) {
+		return status == Status.SERVER_BUSY.value() || status == Status.APP_FLOW_CONTROL.value() || status == Status.PROVIDER_FLOW_CONTROL.value()
+				|| status == Status.SERVICE_NOT_FOUND.value();
 	}
 
 }
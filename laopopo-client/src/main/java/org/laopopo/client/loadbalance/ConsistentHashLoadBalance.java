@@ -0,0 +1,110 @@
+package org.laopopo.client.loadbalance;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.laopopo.common.utils.ChannelGroup;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 一致性哈希负载均衡，给在本地按照key缓存数据的提供者使用，同一个key总是落到同一个提供者，提高缓存的命中率
+ * 每个服务一个哈希环，每个提供者在环上有{@link #VIRTUAL_NODES}个虚拟节点，让key分布得更均匀
+ * 提供者上线和下线的时候只增加或者删除这个提供者自己的虚拟节点，不重建整个环，其他提供者上的key不会迁移
+ * 环是ConcurrentSkipListMap，选择的时候不加锁
+ * key和虚拟节点都对字符串做哈希，key用{@link String#valueOf(Object)}转换，所以作为key的参数需要有稳定的toString，不同的consumer实例才会选出同一个提供者
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class ConsistentHashLoadBalance {
+
+	//每个提供者的虚拟节点数
+	public static final int VIRTUAL_NODES = 160;
+
+	//key是serviceName
+	private static final ConcurrentMap<String, ConcurrentSkipListMap<Long, ChannelGroup>> rings = new ConcurrentHashMap<String, ConcurrentSkipListMap<Long, ChannelGroup>>();
+
+	/**
+	 * 提供者上线，把它的虚拟节点加入到服务的哈希环上
+	 * @param serviceName
+	 * @param group
+	 */
+	public static void add(String serviceName, ChannelGroup group) {
+
+		if (null == group.getAddress()) {
+			return;
+		}
+		ConcurrentSkipListMap<Long, ChannelGroup> ring = rings.get(serviceName);
+		if (ring == null) {
+			ConcurrentSkipListMap<Long, ChannelGroup> newRing = new ConcurrentSkipListMap<Long, ChannelGroup>();
+			ring = rings.putIfAbsent(serviceName, newRing);
+			if (ring == null) {
+				ring = newRing;
+			}
+		}
+		String address = group.getAddress().toString();
+		for (int i = 0; i < VIRTUAL_NODES; i++) {
+			//哈希冲突的时候保留先加入的节点
+			ring.putIfAbsent(hash(address + "#" + i), group);
+		}
+	}
+
+	/**
+	 * 提供者下线，从服务的哈希环上删除它的虚拟节点，原来落在这些节点上的key顺延到环上的下一个提供者
+	 * @param serviceName
+	 * @param group
+	 */
+	public static void remove(String serviceName, ChannelGroup group) {
+
+		ConcurrentSkipListMap<Long, ChannelGroup> ring = rings.get(serviceName);
+		if (null == ring || null == group.getAddress()) {
+			return;
+		}
+		String address = group.getAddress().toString();
+		for (int i = 0; i < VIRTUAL_NODES; i++) {
+			ring.remove(hash(address + "#" + i), group);
+		}
+	}
+
+	/**
+	 * 选择key落到的提供者，环上哈希值大于等于key的第一个虚拟节点，超过最后一个节点的时候回到第一个
+	 * @param serviceName
+	 * @param key
+	 * @return 服务没有提供者的时候返回null
+	 */
+	public static ChannelGroup select(String serviceName, Object key) {
+
+		ConcurrentSkipListMap<Long, ChannelGroup> ring = rings.get(serviceName);
+		if (null == ring) {
+			return null;
+		}
+		Map.Entry<Long, ChannelGroup> entry = ring.ceilingEntry(hash(String.valueOf(key)));
+		if (null == entry) {
+			entry = ring.firstEntry();
+		}
+		return null == entry ? null : entry.getValue();
+	}
+
+	/**
+	 * 64位的FNV-1a哈希，再用MurmurHash3的fmix64打散，String.hashCode只有32位并且相近的字符串哈希值也相近
+	 * @param key
+	 * @return
+	 */
+	static long hash(String key) {
+
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
@@ -1,10 +1,11 @@
 package org.laopopo.client.loadbalance;
 
-import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.laopopo.client.metrics.ConsumerMeter;
+import org.laopopo.client.metrics.ConsumerMeterManager;
 import org.laopopo.common.utils.ChannelGroup;
 
 /**
@@ -12,7 +13,7 @@ import org.laopopo.common.utils.ChannelGroup;
  * @author BazingaLyn
  * @description 负载均衡算法
  * @time 2016年9月1日17:48:47
- * @modifytime 2016年9月8日
+ * @modifytime 2016年10月27日 增加最少活跃调用数和peak EWMA两种根据consumer端统计选择提供者的策略；加权随机使用预先计算的别名表，随机不再每次创建Random
  */
 public enum LoadBalanceStrategies {
 	
@@ -20,20 +21,30 @@ public enum LoadBalanceStrategies {
 	RANDOMSTRATEGIES(new LoadBalance(){
 
 		@Override
-		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList) {
-			Random random = new Random();
-			int randomPos = random.nextInt(arrayList.size());
+		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList, String serviceName) {
+			int randomPos = ThreadLocalRandom.current().nextInt(arrayList.size());
 			
 			return arrayList.get(randomPos);
 		}
 		
 	}),
 	
-	//加权随机
+	//加权随机，别名表在提供者和权重变化的时候预先计算好，见{@link WeightedRandomLoadBalance}
 	WEIGHTRANDOMSTRATEGIES(new LoadBalance(){
 
 		@Override
-		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList) {
+		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList, String serviceName) {
+			return WeightedRandomLoadBalance.select(serviceName, arrayList);
+		}
+		
+	}), 
+	
+	ROUNDROBIN(new LoadBalance(){
+		
+		AtomicInteger position = new AtomicInteger(0);
+
+		@Override
+		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList, String serviceName) {
 			int count = arrayList.size();
 			if (count == 0) {
 				throw new IllegalArgumentException("empty elements for select");
@@ -41,48 +52,62 @@ public enum LoadBalanceStrategies {
 			if (count == 1) {
 				return arrayList.get(0);
 			}
-			int totalWeight = 0;
-			int[] weightSnapshots = new int[count];
-			for (int i = 0; i < count; i++) {
-				totalWeight += (weightSnapshots[i] = getWeight(arrayList.get(i)));
-			}
+			
+			int index = position.getAndIncrement() % count;
+			ChannelGroup channelGroup = arrayList.get(index);
+			
+			return channelGroup;
 
-			boolean allSameWeight = true;
-			for (int i = 1; i < count; i++) {
-				if (weightSnapshots[0] != weightSnapshots[i]) {
-					allSameWeight = false;
-					break;
-				}
-			}
+		}
+	}),
+	
+	//最少活跃调用数，正在进行的调用数最少的提供者优先，调用数相同的时候按照权重随机
+	//慢的提供者(比如正在GC)积压的调用多，自然分到的请求就少
+	LEASTACTIVE(new LoadBalance(){
 
+		@Override
+		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList, String serviceName) {
+			int count = arrayList.size();
+			if (count == 0) {
+				throw new IllegalArgumentException("empty elements for select");
+			}
+			if (count == 1) {
+				return arrayList.get(0);
+			}
+			
 			ThreadLocalRandom random = ThreadLocalRandom.current();
-			// 如果权重不相同且总权重大于0, 则按总权重数随机
-			if (!allSameWeight && totalWeight > 0) {
-				int offset = random.nextInt(totalWeight);
-				// 确定随机值落在哪个片
-				for (int i = 0; i < count; i++) {
-					offset -= weightSnapshots[i];
-					if (offset < 0) {
-						return arrayList.get(i);
+			ChannelGroup selected = null;
+			int leastActive = Integer.MAX_VALUE;
+			int totalWeight = 0;
+			for (ChannelGroup channelGroup : arrayList) {
+				ConsumerMeter meter = ConsumerMeterManager.getMeter(serviceName, channelGroup.getAddress());
+				int active = null == meter ? 0 : meter.getInFlight();
+				int weight = Math.max(channelGroup.getWeight(), 1);
+				if (active < leastActive) {
+					leastActive = active;
+					totalWeight = weight;
+					selected = channelGroup;
+				} else if (active == leastActive) {
+					//按照权重的蓄水池抽样，一次遍历完成加权随机，不需要额外的数组
+					totalWeight += weight;
+					if (random.nextInt(totalWeight) < weight) {
+						selected = channelGroup;
 					}
 				}
 			}
-
-			return (ChannelGroup) arrayList.get(random.nextInt(count));
+			return selected;
 		}
-		
-		private int getWeight(ChannelGroup channelGroup) {
-			return channelGroup.getWeight();
-		}
-		
-	}), 
+	}),
 	
-	ROUNDROBIN(new LoadBalance(){
+	//peak EWMA + 两次随机选择(power of two choices)，随机选出两个提供者，选择耗时EWMA * (正在进行的调用数 + 1)较小的一个
+	//只比较两个提供者，选择的代价和提供者的数量无关，又能避开耗时突然变长的提供者
+	PEAKEWMA(new LoadBalance(){
 		
-		AtomicInteger position = new AtomicInteger(0);
+		//有正在进行的调用但是还没有耗时样本的提供者的代价，避免新加入的提供者在第一次响应之前被大量选中
+		private static final double PENALTY = Long.MAX_VALUE >> 16;
 
 		@Override
-		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList) {
+		public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList, String serviceName) {
 			int count = arrayList.size();
 			if (count == 0) {
 				throw new IllegalArgumentException("empty elements for select");
@@ -91,11 +116,28 @@ public enum LoadBalanceStrategies {
 				return arrayList.get(0);
 			}
 			
-			int index = position.getAndIncrement() % count;
-			ChannelGroup channelGroup = arrayList.get(index);
-			
-			return channelGroup;
-
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int a = random.nextInt(count);
+			int b = random.nextInt(count - 1);
+			if (b >= a) {
+				b++;
+			}
+			ChannelGroup first = arrayList.get(a);
+			ChannelGroup second = arrayList.get(b);
+			return cost(serviceName, first) <= cost(serviceName, second) ? first : second;
+		}
+		
+		private double cost(String serviceName, ChannelGroup channelGroup) {
+			ConsumerMeter meter = ConsumerMeterManager.getMeter(serviceName, channelGroup.getAddress());
+			if (null == meter) {
+				return 0;
+			}
+			int active = meter.getInFlight();
+			double ewma = meter.getEwmaLatencyNanos();
+			if (ewma == 0 && active > 0) {
+				return PENALTY + active;
+			}
+			return ewma * (active + 1);
 		}
 	});
 	
@@ -106,13 +148,19 @@ public enum LoadBalanceStrategies {
         this.loadBalance = loadBalance;
     }
 	
-	public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList){
-		return loadBalance.select(arrayList);
+	/**
+	 * 选择一个提供者
+	 * @param arrayList 服务的所有提供者
+	 * @param serviceName 服务名，根据consumer端统计选择的策略用它找到每个提供者的统计
+	 * @return
+	 */
+	public ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList, String serviceName){
+		return loadBalance.select(arrayList, serviceName);
 	}
 	
 	interface LoadBalance {
 		
-		ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList);
+		ChannelGroup select(CopyOnWriteArrayList<ChannelGroup> arrayList, String serviceName);
 	}
 
 }
@@ -0,0 +1,148 @@
+package org.laopopo.client.loadbalance;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.laopopo.common.utils.ChannelGroup;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 加权随机负载均衡，每个服务预先计算好一张别名表(Walker/Vose alias method)，选择的时候两次随机数，O(1)，不分配对象
+ * 服务的提供者增加，减少或者权重变化的时候调用{@link #rebuild}重新计算，这些操作很少发生，计算的代价是O(n)
+ * 别名表是不可变的，重新计算之后整体替换，选择的时候不加锁
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class WeightedRandomLoadBalance {
+
+	private static final ChannelGroup[] EMPTY = new ChannelGroup[0];
+
+	//key是serviceName
+	private static final ConcurrentMap<String, AliasTable> tables = new ConcurrentHashMap<String, AliasTable>();
+
+	/**
+	 * 根据服务当前的提供者和权重重新计算别名表
+	 * 同一个列表的重新计算串行执行，并且在锁内读取列表，最后一次计算一定能看到之前所有的修改
+	 * @param serviceName
+	 * @param groupList 服务的所有提供者
+	 */
+	public static void rebuild(String serviceName, List<ChannelGroup> groupList) {
+		synchronized (groupList) {
+			tables.put(serviceName, new AliasTable(groupList.toArray(EMPTY)));
+		}
+	}
+
+	/**
+	 * 按照权重随机选择一个提供者
+	 * @param serviceName
+	 * @param groupList 服务的所有提供者，还没有计算过别名表的时候用它计算
+	 * @return
+	 */
+	public static ChannelGroup select(String serviceName, List<ChannelGroup> groupList) {
+
+		AliasTable table = tables.get(serviceName);
+		if (table == null) {
+			rebuild(serviceName, groupList);
+			table = tables.get(serviceName);
+		}
+		return table.select();
+	}
+
+	/**
+	 * 别名表，把n个权重平铺成n列，每一列的容量都是总权重，第i列的前threshold[i]属于第i个提供者，剩下的属于alias[i]
+	 * 选择的时候先等概率选一列，再在这一列中随机一个位置
+	 * 用整数计算，没有浮点误差，每个提供者被选中的概率严格等于权重/总权重
+	 */
+	static final class AliasTable {
+
+		private final ChannelGroup[] groups;
+		private final int[] threshold;
+		private final int[] alias;
+		private final int totalWeight;
+		//权重都相同或者总权重不大于0的时候直接等概率随机，和原来的加权随机的行为一致
+		private final boolean uniform;
+
+		AliasTable(ChannelGroup[] groups) {
+
+			int count = groups.length;
+			this.groups = groups;
+			this.threshold = new int[count];
+			this.alias = new int[count];
+
+			int total = 0;
+			boolean allSameWeight = true;
+			int[] weights = new int[count];
+			for (int i = 0; i < count; i++) {
+				//负的权重按0处理
+				weights[i] = Math.max(groups[i].getWeight(), 0);
+				total += weights[i];
+				if (weights[i] != weights[0]) {
+					allSameWeight = false;
+				}
+			}
+			this.totalWeight = total;
+			this.uniform = allSameWeight || total <= 0;
+			if (uniform) {
+				return;
+			}
+
+			//每一列按照 权重 * n 计算，和列的容量total比较，小于容量的列用大于容量的列补齐
+			long[] scaled = new long[count];
+			int[] small = new int[count];
+			int[] large = new int[count];
+			int smallSize = 0, largeSize = 0;
+			for (int i = 0; i < count; i++) {
+				scaled[i] = (long) weights[i] * count;
+				if (scaled[i] < total) {
+					small[smallSize++] = i;
+				} else {
+					large[largeSize++] = i;
+				}
+			}
+			while (smallSize > 0 && largeSize > 0) {
+				int s = small[--smallSize];
+				int l = large[--largeSize];
+				threshold[s] = (int) scaled[s];
+				alias[s] = l;
+				scaled[l] -= total - scaled[s];
+				if (scaled[l] < total) {
+					small[smallSize++] = l;
+				} else {
+					large[largeSize++] = l;
+				}
+			}
+			//剩下的列正好是满的
+			while (largeSize > 0) {
+				int l = large[--largeSize];
+				threshold[l] = total;
+				alias[l] = l;
+			}
+			while (smallSize > 0) {
+				int s = small[--smallSize];
+				threshold[s] = total;
+				alias[s] = s;
+			}
+		}
+
+		ChannelGroup select() {
+
+			int count = groups.length;
+			if (count == 0) {
+				throw new IllegalArgumentException("empty elements for select");
+			}
+			if (count == 1) {
+				return groups[0];
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int column = random.nextInt(count);
+			if (uniform) {
+				return groups[column];
+			}
+			return random.nextInt(totalWeight) < threshold[column] ? groups[column] : groups[alias[column]];
+		}
+	}
+
+}
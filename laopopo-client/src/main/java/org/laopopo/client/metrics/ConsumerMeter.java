@@ -0,0 +1,177 @@
+package org.laopopo.client.metrics;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.chmv8.LongAdderV8;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.laopopo.client.consumer.breaker.CircuitBreaker;
+import org.laopopo.client.consumer.breaker.CircuitBreakerManager;
+import org.laopopo.common.metrics.LatencyHistogram;
+import org.laopopo.common.utils.Status;
+import org.laopopo.common.utils.UnresolvedAddress;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description consumer端对某个服务的某个提供者的调用统计
+ * 一次调用以{@link #begin()}开始，以{@link #success}，{@link #failure}，{@link #timeout}，{@link #abort}或者{@link #cancel}中的一个结束，
+ * 结束的时候减少正在进行的调用数并记录耗时，负载均衡可以根据正在进行的调用数和耗时选择提供者
+ * 同一个地址上的所有服务共用一个熔断器，只有超时，发送失败和SERVER_BUSY说明提供者本身有问题，记录为熔断器的失败；
+ * 业务异常，限流等状态只算作失败的调用，不会因为一个服务的业务异常让其他服务也无法调用这个提供者
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 增加peak EWMA耗时，给延迟感知的负载均衡使用；调用的结果同时记录到提供者地址的熔断器；调用可以被取消；取消的调用归还熔断器的探测机会；只有超时，发送失败和SERVER_BUSY记录为熔断器的失败
+ */
+public class ConsumerMeter {
+
+	private final String serviceName;										 //服务名
+	private final UnresolvedAddress address;								 //提供者的地址
+	private final LongCounter callCount = new LongAdderV8();       			 //调用次数
+	private final LongCounter failedCount = new LongAdderV8();	 			 //失败的次数，包括服务端的异常，拒绝和发送失败，不包括超时
+	private final LongCounter timeoutCount = new LongAdderV8();	 			 //超时的次数
+	private final AtomicInteger inFlight = new AtomicInteger();				 //已经发出还没有结束的调用数
+	private final LatencyHistogram latency = new LatencyHistogram();		 //从发送到结束的耗时分布
+	private final CircuitBreaker breaker;									 //提供者地址的熔断器
+	
+	//peak EWMA的衰减时间常数，单位纳秒
+	private static final double EWMA_DECAY_NANOS = 10d * 1000 * 1000 * 1000;
+	//耗时的peak EWMA，单位纳秒，以及上一次更新的时间
+	//两个字段的更新没有加锁，并发更新的时候可能丢失一次样本，对于一个估计值来说是可以接受的
+	private volatile double ewmaNanos;
+	private volatile long ewmaStamp;
+
+	public ConsumerMeter(String serviceName, UnresolvedAddress address) {
+		this.serviceName = serviceName;
+		this.address = address;
+		this.breaker = CircuitBreakerManager.getOrCreateBreaker(address);
+	}
+
+	/**
+	 * 开始一次调用
+	 * @return 开始的纳秒时间，结束的时候传回来计算耗时
+	 */
+	public long begin() {
+		callCount.increment();
+		inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	public void success(long beginNanos) {
+		end(beginNanos, false);
+	}
+
+	/**
+	 * 请求没有发送出去
+	 * @param beginNanos
+	 */
+	public void failure(long beginNanos) {
+		failedCount.increment();
+		end(beginNanos, true);
+	}
+
+	/**
+	 * provider回复了失败的状态，只有SERVER_BUSY记录为熔断器的失败，其他状态下提供者是正常工作的
+	 * @param beginNanos
+	 * @param status 响应的状态
+	 */
+	public void failure(long beginNanos, byte status) {
+		failedCount.increment();
+		end(beginNanos, status == Status.SERVER_BUSY.value());
+	}
+
+	/**
+	 * consumer本地的原因(比如被中断，读取响应出错)导致的失败，和提供者的健康状况无关，不记录为熔断器的失败
+	 * @param beginNanos
+	 */
+	public void abort(long beginNanos) {
+		failedCount.increment();
+		end(beginNanos, false);
+	}
+
+	public void timeout(long beginNanos) {
+		timeoutCount.increment();
+		end(beginNanos, true);
+	}
+
+	/**
+	 * 调用被调用者取消(比如对冲请求中输掉的那一个)，只减少正在进行的调用数，不记录结果和耗时
+	 * 这次调用不会有结果，熔断器HALF_OPEN状态下归还它占用的探测机会
+	 */
+	public void cancel() {
+		inFlight.decrementAndGet();
+		breaker.release();
+	}
+
+	/**
+	 * @param beginNanos
+	 * @param failed 是否记录为熔断器的失败
+	 */
+	private void end(long beginNanos, boolean failed) {
+		inFlight.decrementAndGet();
+		long now = System.nanoTime();
+		long elapsed = now - beginNanos;
+		long micros = elapsed / 1000;
+		latency.record(micros);
+		ConsumerMeterManager.recordLatency(serviceName, micros);
+		observe(now, elapsed);
+		breaker.record(elapsed, failed);
+	}
+
+	/**
+	 * 更新耗时的peak EWMA，比当前值大的耗时直接取代当前值，比当前值小的耗时按照距离上一次更新的时间衰减之后加权平均
+	 * 这样提供者变慢(比如GC停顿)的时候立即被发现，恢复之后按照时间逐渐恢复
+	 * @param now
+	 * @param elapsed
+	 */
+	private void observe(long now, long elapsed) {
+		double current = ewmaNanos;
+		if (elapsed > current) {
+			ewmaNanos = elapsed;
+		} else {
+			double w = Math.exp(-(now - ewmaStamp) / EWMA_DECAY_NANOS);
+			ewmaNanos = current * w + elapsed * (1 - w);
+		}
+		ewmaStamp = now;
+	}
+
+	/**
+	 * 当前耗时的peak EWMA，距离上一次更新越久衰减得越多，长时间没有被调用的提供者会重新得到机会
+	 * @return 纳秒，没有完成过调用的时候返回0
+	 */
+	public double getEwmaLatencyNanos() {
+		double current = ewmaNanos;
+		if (current == 0) {
+			return 0;
+		}
+		return current * Math.exp(-(System.nanoTime() - ewmaStamp) / EWMA_DECAY_NANOS);
+	}
+
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	public UnresolvedAddress getAddress() {
+		return address;
+	}
+
+	public LongCounter getCallCount() {
+		return callCount;
+	}
+
+	public LongCounter getFailedCount() {
+		return failedCount;
+	}
+
+	public LongCounter getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+}
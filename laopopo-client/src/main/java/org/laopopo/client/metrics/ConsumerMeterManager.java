@@ -0,0 +1,155 @@
+package org.laopopo.client.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.laopopo.common.metrics.LatencyHistogram;
+import org.laopopo.common.metrics.RollingLatencyHistogram;
+import org.laopopo.common.rpc.ConsumerMetricsReporter;
+import org.laopopo.common.utils.UnresolvedAddress;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description consumer端的调用统计，记录每个服务从发出请求到拿到结果(包括失败和超时)的耗时直方图
+ * 和provider端的耗时相比多了网络和两端排队的时间
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 增加按照服务和提供者地址的统计{@link ConsumerMeter}，可以导出给monitor，也可以给负载均衡使用；增加只反映最近耗时的直方图
+ */
+public class ConsumerMeterManager {
+
+	//最近耗时的直方图的轮换周期
+	public static final long RECENT_PERIOD_MILLIS = 1000;
+
+	//key是serviceName
+	private static ConcurrentMap<String, LatencyHistogram> globalLatencyManager = new ConcurrentHashMap<String, LatencyHistogram>();
+	//key是serviceName，只包含最近一到两个周期的耗时
+	private static ConcurrentMap<String, RollingLatencyHistogram> globalRecentLatencyManager = new ConcurrentHashMap<String, RollingLatencyHistogram>();
+	//key是serviceName，value的key是提供者的地址
+	private static ConcurrentMap<String, ConcurrentMap<UnresolvedAddress, ConsumerMeter>> globalMeterManager = new ConcurrentHashMap<String, ConcurrentMap<UnresolvedAddress, ConsumerMeter>>();
+
+	/**
+	 * 记录一次调用的耗时
+	 * @param serviceName
+	 * @param micros 微秒
+	 */
+	public static void recordLatency(String serviceName, long micros) {
+
+		LatencyHistogram histogram = globalLatencyManager.get(serviceName);
+
+		if (histogram == null) {
+			LatencyHistogram newHistogram = new LatencyHistogram();
+			histogram = globalLatencyManager.putIfAbsent(serviceName, newHistogram);
+			if (histogram == null) {
+				histogram = newHistogram;
+			}
+		}
+		histogram.record(micros);
+
+		RollingLatencyHistogram recent = globalRecentLatencyManager.get(serviceName);
+
+		if (recent == null) {
+			RollingLatencyHistogram newRecent = new RollingLatencyHistogram(RECENT_PERIOD_MILLIS);
+			recent = globalRecentLatencyManager.putIfAbsent(serviceName, newRecent);
+			if (recent == null) {
+				recent = newRecent;
+			}
+		}
+		recent.record(micros);
+	}
+
+	/**
+	 * 获取某个服务的耗时直方图
+	 * @param serviceName
+	 * @return 还没有调用过的时候返回null
+	 */
+	public static LatencyHistogram getLatency(String serviceName) {
+		return globalLatencyManager.get(serviceName);
+	}
+
+	/**
+	 * 获取某个服务最近{@link #RECENT_PERIOD_MILLIS}到两倍{@link #RECENT_PERIOD_MILLIS}毫秒内的耗时直方图，
+	 * 提供者变快或者变慢之后分位数很快跟着变化，不会被很久之前的耗时拖住
+	 * @param serviceName
+	 * @return 还没有调用过的时候返回null
+	 */
+	public static RollingLatencyHistogram getRecentLatency(String serviceName) {
+		return globalRecentLatencyManager.get(serviceName);
+	}
+
+	/**
+	 * 获取某个服务的某个提供者的统计，负载均衡选择提供者的时候使用
+	 * @param serviceName
+	 * @param address
+	 * @return 还没有调用过的时候返回null
+	 */
+	public static ConsumerMeter getMeter(String serviceName, UnresolvedAddress address) {
+
+		ConcurrentMap<UnresolvedAddress, ConsumerMeter> meters = globalMeterManager.get(serviceName);
+		return null == meters || null == address ? null : meters.get(address);
+	}
+
+	/**
+	 * 获取某个服务的某个提供者的统计，不存在的时候原子地创建
+	 * @param serviceName
+	 * @param address
+	 * @return
+	 */
+	public static ConsumerMeter getOrCreateMeter(String serviceName, UnresolvedAddress address) {
+
+		ConcurrentMap<UnresolvedAddress, ConsumerMeter> meters = globalMeterManager.get(serviceName);
+		if (meters == null) {
+			ConcurrentMap<UnresolvedAddress, ConsumerMeter> newMeters = new ConcurrentHashMap<UnresolvedAddress, ConsumerMeter>();
+			meters = globalMeterManager.putIfAbsent(serviceName, newMeters);
+			if (meters == null) {
+				meters = newMeters;
+			}
+		}
+
+		ConsumerMeter meter = meters.get(address);
+		if (meter == null) {
+			ConsumerMeter newMeter = new ConsumerMeter(serviceName, address);
+			meter = meters.putIfAbsent(address, newMeter);
+			if (meter == null) {
+				meter = newMeter;
+			}
+		}
+		return meter;
+	}
+
+	/**
+	 * 导出所有的统计，发送给monitor
+	 * @return
+	 */
+	public static List<ConsumerMetricsReporter> export() {
+
+		List<ConsumerMetricsReporter> reporters = new ArrayList<ConsumerMetricsReporter>();
+		for (ConcurrentMap<UnresolvedAddress, ConsumerMeter> meters : globalMeterManager.values()) {
+			for (ConsumerMeter meter : meters.values()) {
+				ConsumerMetricsReporter reporter = new ConsumerMetricsReporter();
+				reporter.setServiceName(meter.getServiceName());
+				reporter.setProviderHost(meter.getAddress().getHost());
+				reporter.setProviderPort(meter.getAddress().getPort());
+				reporter.setCallCount(meter.getCallCount().value());
+				reporter.setFailCount(meter.getFailedCount().value());
+				reporter.setTimeoutCount(meter.getTimeoutCount().value());
+				reporter.setInFlight(meter.getInFlight());
+				reporter.setLatencyBuckets(meter.getLatency().snapshot());
+				reporter.setMaxLatency(meter.getLatency().getMax());
+				reporters.add(reporter);
+			}
+		}
+		return reporters;
+	}
+
+	public static ConcurrentMap<String, LatencyHistogram> getGlobalLatencyManager() {
+		return globalLatencyManager;
+	}
+
+	public static ConcurrentMap<String, ConcurrentMap<UnresolvedAddress, ConsumerMeter>> getGlobalMeterManager() {
+		return globalMeterManager;
+	}
+
+}
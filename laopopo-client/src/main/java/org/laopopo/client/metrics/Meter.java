@@ -1,21 +1,34 @@
 package org.laopopo.client.metrics;
 
-import java.util.concurrent.atomic.AtomicLong;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.chmv8.LongAdderV8;
+
+import org.laopopo.common.metrics.LatencyHistogram;
+import org.laopopo.common.metrics.RollingLatencyHistogram;
 
 /**
  * 
  * @author BazingaLyn
  * @description RPC调用统计
+ * 所有的provider线程都在累加同一个服务的计数器，计数器使用分段累加的LongAdderV8代替AtomicLong，
+ * 多个线程累加的时候分散到不同的cell上，避免在同一个缓存行上CAS竞争，读取的时候再求和
  * @time 2016年9月18日
- * @modifytime
+ * @modifytime 2016年10月27日 计数器换成LongAdderV8，增加被拒绝，超时丢弃和到达时已经超时的次数；增加耗时直方图；到达时已经超时的次数不再包含在超时丢弃的次数中；增加最近的执行耗时分布
  */
 public class Meter {
 	
-	private String serviceName;								 //服务名
-	private AtomicLong callCount = new AtomicLong(0l);       //调用次数
-	private AtomicLong failedCount = new AtomicLong(0l);	 //失败次数
-	private AtomicLong totalCallTime = new AtomicLong(0l);   //总的调用时间
-	private AtomicLong totalRequestSize = new AtomicLong(0l);//入参大小
+	private final String serviceName;										 //服务名
+	private final LongCounter callCount = new LongAdderV8();       			 //调用次数
+	private final LongCounter failedCount = new LongAdderV8();	 			 //失败次数
+	private final LongCounter totalCallTime = new LongAdderV8();   			 //总的调用时间
+	private final LongCounter totalRequestSize = new LongAdderV8();			 //入参大小
+	private final LongCounter rejectedCount = new LongAdderV8();	 		 //服务线程池满被拒绝的次数
+	private final LongCounter expiredCount = new LongAdderV8();	 			 //执行之前已经超时被丢弃的次数
+	private final LongCounter arrivedExpiredCount = new LongAdderV8();		 //到达provider的时候已经没有时间预算的次数，和expiredCount分开统计
+	private final LatencyHistogram latency = new LatencyHistogram();		 //从请求到达到响应发送完成的耗时分布
+	private final RollingLatencyHistogram execution = new RollingLatencyHistogram(1000); //最近的服务执行耗时分布，不包含排队的时间
+	private volatile long expectedExecutionMicros;							 //缓存的最近执行耗时的中位数
+	private volatile long expectedComputedAt;								 //上次计算中位数的时间
 	
 	public Meter(String serviceName) {
 		this.serviceName = serviceName;
@@ -25,40 +38,56 @@ public class Meter {
 		return serviceName;
 	}
 
-	public void setServiceName(String serviceName) {
-		this.serviceName = serviceName;
+	public LongCounter getCallCount() {
+		return callCount;
 	}
 
-	public AtomicLong getCallCount() {
-		return callCount;
+	public LongCounter getFailedCount() {
+		return failedCount;
 	}
 
-	public void setCallCount(AtomicLong callCount) {
-		this.callCount = callCount;
+	public LongCounter getTotalCallTime() {
+		return totalCallTime;
 	}
 
-	public AtomicLong getFailedCount() {
-		return failedCount;
+	public LongCounter getTotalRequestSize() {
+		return totalRequestSize;
 	}
 
-	public void setFailedCount(AtomicLong failedCount) {
-		this.failedCount = failedCount;
+	public LongCounter getRejectedCount() {
+		return rejectedCount;
 	}
 
-	public AtomicLong getTotalCallTime() {
-		return totalCallTime;
+	public LongCounter getExpiredCount() {
+		return expiredCount;
 	}
 
-	public void setTotalCallTime(AtomicLong totalCallTime) {
-		this.totalCallTime = totalCallTime;
+	public LongCounter getArrivedExpiredCount() {
+		return arrivedExpiredCount;
 	}
 
-	public AtomicLong getTotalRequestSize() {
-		return totalRequestSize;
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public RollingLatencyHistogram getExecution() {
+		return execution;
+	}
+
+	public long getExpectedExecutionMicros() {
+		return expectedExecutionMicros;
+	}
+
+	public void setExpectedExecutionMicros(long expectedExecutionMicros) {
+		this.expectedExecutionMicros = expectedExecutionMicros;
+	}
+
+	public long getExpectedComputedAt() {
+		return expectedComputedAt;
 	}
 
-	public void setTotalRequestSize(AtomicLong totalRequestSize) {
-		this.totalRequestSize = totalRequestSize;
+	public void setExpectedComputedAt(long expectedComputedAt) {
+		this.expectedComputedAt = expectedComputedAt;
 	}
 	
 }
@@ -3,15 +3,22 @@ package org.laopopo.client.metrics;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.laopopo.common.metrics.LatencyHistogram;
+
 /**
  * 
  * @author BazingaLyn
  * @description 服务统计管理
  * @time 2016年9月18日
- * @modifytime
+ * @modifytime 2016年10月27日 Meter通过putIfAbsent原子创建；增加被拒绝，超时丢弃和到达时已经超时次数的统计；增加耗时直方图；统计最近的执行耗时，估计一次执行需要的时间
  */
 public class ServiceMeterManager {
 	
+	//最近的执行耗时的样本数少于这个值的时候不估计执行耗时
+	public static final long MINIMUM_EXECUTION_SAMPLES = 20;
+	//估计的执行耗时的缓存时间，计算中位数需要遍历整个直方图
+	public static final long EXPECTED_REFRESH_MILLIS = 100;
+	
 	//key是serviceName
 	private static ConcurrentMap<String, Meter> globalMeterManager = new ConcurrentHashMap<String, Meter>();
 	
@@ -28,15 +35,15 @@ public class ServiceMeterManager {
 			return 0;
 		}
 		
-		int callCount = meter.getCallCount().intValue();
-		int failCount = meter.getFailedCount().intValue();
+		long callCount = meter.getCallCount().value();
+		long failCount = meter.getFailedCount().value();
 		
 		//如果调用的此时是0.默认成功率是100%
 		if(callCount == 0){
 			return 100;
 		}
 		
-		return (100 *(callCount - failCount ) / callCount);
+		return (int) (100 *(callCount - failCount ) / callCount);
 		
 	}
 	
@@ -47,13 +54,7 @@ public class ServiceMeterManager {
 	 */
 	public static void incrementCallTimes(String serviceName){
 		
-		Meter meter = globalMeterManager.get(serviceName);
-		
-		if(meter == null){
-			meter = new Meter(serviceName);
-			globalMeterManager.put(serviceName, meter);
-		}
-		meter.getCallCount().incrementAndGet();
+		getOrCreateMeter(serviceName).getCallCount().increment();
 		
 	}
 	
@@ -63,13 +64,7 @@ public class ServiceMeterManager {
 	 */
 	public static void incrementFailTimes(String serviceName){
 		
-		Meter meter = globalMeterManager.get(serviceName);
-		
-		if(meter == null){
-			meter = new Meter(serviceName);
-			globalMeterManager.put(serviceName, meter);
-		}
-		meter.getFailedCount().incrementAndGet();
+		getOrCreateMeter(serviceName).getFailedCount().increment();
 	}
 	
 	/**
@@ -77,15 +72,55 @@ public class ServiceMeterManager {
 	 * @param serviceName
 	 * @param byteSize
 	 */
-	public static void incrementTotalTime(String serviceName,Long timecost){
+	public static void incrementTotalTime(String serviceName,long timecost){
 		
-		Meter meter = globalMeterManager.get(serviceName);
+		getOrCreateMeter(serviceName).getTotalCallTime().add(timecost);
+	}
+	
+	/**
+	 * 记录某个服务一次调用的耗时到直方图中
+	 * @param serviceName
+	 * @param micros 微秒
+	 */
+	public static void recordLatency(String serviceName,long micros){
 		
+		getOrCreateMeter(serviceName).getLatency().record(micros);
+	}
+	
+	/**
+	 * 记录某个服务一次执行的耗时，只包含服务本身的执行时间，不包含在线程池中排队的时间
+	 * @param serviceName
+	 * @param micros 微秒
+	 */
+	public static void recordExecution(String serviceName,long micros){
+		
+		getOrCreateMeter(serviceName).getExecution().record(micros);
+	}
+	
+	/**
+	 * 估计某个服务一次执行需要的时间，取最近一到两秒执行耗时的中位数
+	 * 剩余的时间预算不够执行一次的调用，执行完成的时候调用者大概率已经超时了，执行也是浪费
+	 * @param serviceName
+	 * @return 微秒，还没有足够的样本的时候返回0
+	 */
+	public static long expectedExecutionMicros(String serviceName){
+		
+		Meter meter = globalMeterManager.get(serviceName);
 		if(meter == null){
-			meter = new Meter(serviceName);
-			globalMeterManager.put(serviceName, meter);
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		if(now - meter.getExpectedComputedAt() >= EXPECTED_REFRESH_MILLIS){
+			//多个线程同时刷新的结果基本一样，不需要互斥
+			long[] buckets = meter.getExecution().snapshot();
+			long total = 0;
+			for (long count : buckets) {
+				total += count;
+			}
+			meter.setExpectedExecutionMicros(total < MINIMUM_EXECUTION_SAMPLES ? 0 : LatencyHistogram.valueAtQuantile(buckets, 0.5, meter.getExecution().getMax()));
+			meter.setExpectedComputedAt(now);
 		}
-		meter.getTotalCallTime().addAndGet(timecost);
+		return meter.getExpectedExecutionMicros();
 	}
 	
 	/**
@@ -95,16 +130,59 @@ public class ServiceMeterManager {
 	 */
 	public static void incrementRequestSize(String serviceName,int byteSize){
 		
+		getOrCreateMeter(serviceName).getTotalRequestSize().add(byteSize);
+	}
+
+	
+	/**
+	 * 增加一次因为服务线程池饱和被拒绝的次数
+	 * @param serviceName
+	 */
+	public static void incrementRejectedTimes(String serviceName){
+		
+		getOrCreateMeter(serviceName).getRejectedCount().increment();
+	}
+
+	
+	/**
+	 * 增加一次执行之前已经超时被丢弃的次数
+	 * @param serviceName
+	 */
+	public static void incrementExpiredTimes(String serviceName){
+		
+		getOrCreateMeter(serviceName).getExpiredCount().increment();
+	}
+
+	
+	/**
+	 * 增加一次到达provider的时候已经没有剩余时间预算的次数，时间预算在consumer端和网络上已经用完
+	 * @param serviceName
+	 */
+	public static void incrementArrivedExpiredTimes(String serviceName){
+		
+		getOrCreateMeter(serviceName).getArrivedExpiredCount().increment();
+	}
+
+
+	/**
+	 * 获取某个服务的统计，不存在的时候原子地创建，并发第一次调用的时候不会有线程的统计被覆盖丢失
+	 * @param serviceName
+	 * @return
+	 */
+	private static Meter getOrCreateMeter(String serviceName){
+		
 		Meter meter = globalMeterManager.get(serviceName);
 		
 		if(meter == null){
-			meter = new Meter(serviceName);
-			globalMeterManager.put(serviceName, meter);
+			Meter newMeter = new Meter(serviceName);
+			meter = globalMeterManager.putIfAbsent(serviceName, newMeter);
+			if(meter == null){
+				meter = newMeter;
+			}
 		}
-		meter.getTotalRequestSize().addAndGet(byteSize);
+		return meter;
 	}
 
-
 	public static void scheduledSendReport() {
 	}
 
@@ -4,11 +4,13 @@ import static org.laopopo.common.serialization.SerializerHolder.serializerImpl;
 import io.netty.channel.Channel;
 
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.laopopo.client.provider.DefaultServiceProviderContainer.CurrentServiceState;
@@ -21,7 +23,9 @@ import org.laopopo.common.transport.body.ManagerServiceCustomBody;
 import org.laopopo.common.transport.body.PublishServiceCustomBody;
 import org.laopopo.common.utils.NamedThreadFactory;
 import org.laopopo.common.utils.Pair;
+import org.laopopo.common.utils.VirtualThreadExecutor;
 import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.ExecutionMode;
 import org.laopopo.remoting.netty.NettyClientConfig;
 import org.laopopo.remoting.netty.NettyRemotingClient;
 import org.laopopo.remoting.netty.NettyRemotingServer;
@@ -34,7 +38,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description 服务提供者端的具体实现
  * @time 2016年8月16日
- * @modifytime 2016年8月23日
+ * @modifytime 2016年10月27日 业务线程池使用有界队列；支持虚拟线程的执行方式
  */
 public class DefaultProvider implements Provider {
 
@@ -93,8 +97,9 @@ public class DefaultProvider implements Provider {
 		this.nettyRemotingClient = new NettyRemotingClient(this.clientConfig);
 		this.nettyRemotingVipServer = new NettyRemotingServer(this.serverConfig);
 
-		this.remotingExecutor = Executors.newFixedThreadPool(serverConfig.getServerWorkerThreads(), new NamedThreadFactory("providerExecutorThread_"));
-		this.remotingVipExecutor = Executors.newFixedThreadPool(serverConfig.getServerWorkerThreads() / 2, new NamedThreadFactory("providerExecutorThread_"));
+		// 有界队列，队列满了之后由remoting层直接回复HANDLER_BUSY，已经超时的请求在出队执行的时候被丢弃
+		this.remotingExecutor = newRemotingExecutor(serverConfig.getServerWorkerThreads());
+		this.remotingVipExecutor = newRemotingExecutor(serverConfig.getServerWorkerThreads() / 2);
 		// 注册处理器
 		this.registerProcessor();
 
@@ -170,6 +175,23 @@ public class DefaultProvider implements Provider {
 		}, 30, 60, TimeUnit.SECONDS);
 	}
 
+	private ExecutorService newRemotingExecutor(int threads) {
+		if (serverConfig.getExecutionMode() == ExecutionMode.VIRTUAL_THREAD) {
+			ExecutorService executor = VirtualThreadExecutor.create("providerVirtualThread_", serverConfig.getVirtualThreadMaxConcurrency());
+			if (null != executor) {
+				return executor;
+			}
+			logger.warn("virtual thread is not supported, fall back to thread pool with [{}] threads", threads);
+		}
+		return newBoundedExecutor(threads, serverConfig.getServerWorkerQueueSize());
+	}
+
+	private ExecutorService newBoundedExecutor(int threads, int queueSize) {
+		threads = Math.max(threads, 1);
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)),
+				new NamedThreadFactory("providerExecutorThread_"), new ThreadPoolExecutor.AbortPolicy());
+	}
+
 	private void registerProcessor() {
 		DefaultProviderRegistryProcessor defaultProviderRegistryProcessor = new DefaultProviderRegistryProcessor(this);
 		// provider端作为client端去连接registry注册中心的处理器
@@ -205,6 +227,11 @@ public class DefaultProvider implements Provider {
 	public void handlerRPCRequest(RemotingTransporter request, Channel channel) {
 		providerRPCController.handlerRPCRequest(request, channel);
 	}
+	
+	@Override
+	public void handlerBatchRPCRequest(RemotingTransporter request, Channel channel) {
+		providerRPCController.handlerBatchRPCRequest(request, channel);
+	}
 
 	@Override
 	public Provider serviceListenPort(int port) {
@@ -338,6 +365,10 @@ public class DefaultProvider implements Provider {
 		return this.nettyRemotingClient.createChannel(monitorAddress);
 	}
 
+	public NettyRemotingServer getNettyRemotingServer() {
+		return nettyRemotingServer;
+	}
+
 	public NettyRemotingClient getNettyRemotingClient() {
 		return nettyRemotingClient;
 	}
@@ -1,5 +1,6 @@
 package org.laopopo.client.provider;
 
+import static org.laopopo.common.protocal.LaopopoProtocol.RPC_BATCH_REQUEST;
 import static org.laopopo.common.protocal.LaopopoProtocol.RPC_REQUEST;
 import io.netty.channel.ChannelHandlerContext;
 
@@ -41,6 +42,9 @@ public class DefaultProviderRPCProcessor implements NettyRequestProcessor {
 			   //这边稍微特殊处理一下，可以返回null,我们不需要叫外层代码帮我们writeAndFlush 发出请求，因为我们持有channel，这样做rpc可以更加灵活一点
 			    this.defaultProvider.handlerRPCRequest(request,ctx.channel());
 			    break;
+		   case RPC_BATCH_REQUEST:
+			    this.defaultProvider.handlerBatchRPCRequest(request,ctx.channel());
+			    break;
 		}
 		return null;
 	}
@@ -173,6 +173,9 @@ public class LocalServerWrapperManager {
 							}
 							ServiceFlowControllerManager serviceFlowControllerManager = providerController.getServiceFlowControllerManager();
 							serviceFlowControllerManager.setServiceLimitVal(serviceName, maxCallCount);
+							//服务的独立线程池，避免一个慢服务耗尽所有的工作线程
+							providerController.getServiceExecutorManager().registerServiceExecutor(serviceName, rpcService.executorGroup(),
+									rpcService.executorThreads(), rpcService.executorQueueSize());
 							//如果是支持服务降级服务，则需要根据降级方法的路径去创建这个实例，并编制proxy
 							if(isSupportDegradeService){
 								Class<?> degradeClass = null;
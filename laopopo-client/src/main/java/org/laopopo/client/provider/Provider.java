@@ -77,5 +77,12 @@ public interface Provider {
 	 */
 	void handlerRPCRequest(RemotingTransporter request, Channel channel);
 	
+	/**
+	 * 处理消费者的批量rpc请求
+	 * @param request
+	 * @param channel
+	 */
+	void handlerBatchRPCRequest(RemotingTransporter request, Channel channel);
+	
 	
 }
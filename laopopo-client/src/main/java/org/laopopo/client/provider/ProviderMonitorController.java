@@ -21,7 +21,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description provider 端连接monitor端的控制端
  * @time 提供者连接监控中心的全局管控器
- * @modifytime
+ * @modifytime 2016年10月27日 上报被拒绝，排队和超时丢弃的统计；上报耗时直方图
  */
 public class ProviderMonitorController {
 
@@ -75,10 +75,16 @@ public class ProviderMonitorController {
 					metricsReporter.setServiceName(serviceName);
 					metricsReporter.setHost(body.getHost());
 					metricsReporter.setPort(body.isVIPService() ? (body.getPort() -2):body.getPort());
-					metricsReporter.setCallCount(meters.get(i).getCallCount().get());
-					metricsReporter.setFailCount(meters.get(i).getFailedCount().get());
-					metricsReporter.setTotalReuqestTime(meters.get(i).getTotalCallTime().get());
-					metricsReporter.setRequestSize(meters.get(i).getTotalRequestSize().get());
+					metricsReporter.setCallCount(meters.get(i).getCallCount().value());
+					metricsReporter.setFailCount(meters.get(i).getFailedCount().value());
+					metricsReporter.setTotalReuqestTime(meters.get(i).getTotalCallTime().value());
+					metricsReporter.setRequestSize(meters.get(i).getTotalRequestSize().value());
+					metricsReporter.setRejectCount(meters.get(i).getRejectedCount().value());
+					metricsReporter.setExpireCount(meters.get(i).getExpiredCount().value());
+					metricsReporter.setArrivedExpireCount(meters.get(i).getArrivedExpiredCount().value());
+					metricsReporter.setLatencyBuckets(meters.get(i).getLatency().snapshot());
+					metricsReporter.setMaxLatency(meters.get(i).getLatency().getMax());
+					metricsReporter.setQueueDepth(defaultProvider.getProviderController().getServiceExecutorManager().getQueueDepth(serviceName));
 					reporters.add(metricsReporter);
 				}
 				ProviderMetricsCustomBody body = new ProviderMetricsCustomBody();
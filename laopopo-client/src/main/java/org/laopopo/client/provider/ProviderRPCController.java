@@ -1,22 +1,32 @@
 package org.laopopo.client.provider;
 
-import static org.laopopo.common.serialization.SerializerHolder.serializerImpl;
 import static org.laopopo.common.utils.Reflects.fastInvoke;
 import static org.laopopo.common.utils.Reflects.findMatchingParameterTypes;
 import static org.laopopo.common.utils.Status.APP_FLOW_CONTROL;
 import static org.laopopo.common.utils.Status.BAD_REQUEST;
+import static org.laopopo.common.utils.Status.SERVER_BUSY;
+import static org.laopopo.common.utils.Status.SERVER_ERROR;
+import static org.laopopo.common.utils.Status.SERVER_TIMEOUT;
+import static org.laopopo.common.utils.Status.SERVICE_ERROR;
 import static org.laopopo.common.utils.Status.SERVICE_NOT_FOUND;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.laopopo.client.consumer.DeadlineContext;
 import org.laopopo.client.metrics.ServiceMeterManager;
 import org.laopopo.client.provider.DefaultServiceProviderContainer.CurrentServiceState;
 import org.laopopo.client.provider.flow.control.ServiceFlowControllerManager;
+import org.laopopo.client.provider.invoker.ServiceInvoker;
 import org.laopopo.client.provider.model.ServiceWrapper;
 import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.transport.body.BatchRequestCustomBody;
+import org.laopopo.common.transport.body.BatchResponseCustomBody;
 import org.laopopo.common.transport.body.RequestCustomBody;
 import org.laopopo.common.transport.body.ResponseCustomBody;
 import org.laopopo.common.transport.body.ResponseCustomBody.ResultWrapper;
@@ -32,7 +42,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description 处理consumer rpc请求的核心控制器，并统计处理的次数
  * @time 2016年8月30日
- * @modifytime
+ * @modifytime 2016年10月27日 配置了独立线程池的服务在自己的线程池中执行，线程池饱和时快速拒绝；丢弃排队期间已经超时的调用；服务执行期间设置截止时间，嵌套调用继承剩余的时间预算；记录从请求到达到响应发送完成的耗时直方图；使用ServiceWrapper创建时生成的ServiceInvoker调用服务；到达时已经超时的次数按照到达的时间和调用者的发送时间统计，不再和排队超时重复；按照标记判断是否记录过到达的纳秒时间；服务线程池中执行出错的回复带上响应体；剩余的时间预算不够执行一次的调用也被丢弃
  */
 public class ProviderRPCController {
 
@@ -44,7 +54,7 @@ public class ProviderRPCController {
 		this.defaultProvider = defaultProvider;
 	}
 
-	public void handlerRPCRequest(RemotingTransporter request, Channel channel) {
+	public void handlerRPCRequest(final RemotingTransporter request, Channel channel) {
 		
 		
 		String serviceName = null;
@@ -52,11 +62,10 @@ public class ProviderRPCController {
 		int requestSize = 0;
 
 		try {
-			byte[] bytes = request.bytes();
-			requestSize = bytes.length;
+			requestSize = request.size();
+			//零拷贝解码的情况下直接在ByteBuf上反序列化
+			body = request.readBody(RequestCustomBody.class);
 			request.bytes(null);
-
-			body = serializerImpl().readObject(bytes, RequestCustomBody.class);
 			
 			request.setCustomHeader(body);
 			serviceName = body.getServiceName();
@@ -69,6 +78,17 @@ public class ProviderRPCController {
 			return;
 		}
 		
+		//到达provider的时候已经没有剩余的时间预算了
+		if (isArrivedExpired(request, body)) {
+			ServiceMeterManager.incrementArrivedExpiredTimes(serviceName);
+		}
+		
+		//在remoting的线程池中排队的时候已经超时
+		if (isExpired(request, body)) {
+			expired(serviceName);
+			return;
+		}
+		
 		final Pair<CurrentServiceState, ServiceWrapper> pair = defaultProvider.getProviderController().getProviderContainer().lookupService(serviceName);
 		if (pair == null || pair.getValue() == null) {
             rejected(SERVICE_NOT_FOUND, channel, request,serviceName);
@@ -85,8 +105,38 @@ public class ProviderRPCController {
 	        }
 		}
 		
-        
-        process(pair,request,channel,serviceName,body.getTimestamp());
+		ThreadPoolExecutor executor = defaultProvider.getProviderController().getServiceExecutorManager().getServiceExecutor(serviceName);
+		if (null == executor) {
+			process(pair,request,channel,serviceName,body.getTimestamp());
+			return;
+		}
+		
+		//服务配置了独立的线程池，交给服务自己的线程池执行，线程池饱和的时候直接回复HANDLER_BUSY
+		final Channel _channel = channel;
+		final String _serviceName = serviceName;
+		final long beginTime = body.getTimestamp();
+		try {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					//在服务的线程池中排队的时候可能已经超时
+					if (isExpired(request, (RequestCustomBody) request.getCustomHeader())) {
+						expired(_serviceName);
+						return;
+					}
+					try {
+						process(pair, request, _channel, _serviceName, beginTime);
+					} catch (Throwable t) {
+						logger.warn("service [{}] occur exception [{}]", _serviceName, t.getMessage());
+						rejected(SERVER_ERROR, _channel, request, _serviceName);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			ServiceMeterManager.incrementRejectedTimes(serviceName);
+			rejected(SERVER_BUSY, channel, request, serviceName);
+		}
 	}
 
 
@@ -101,26 +151,8 @@ public class ProviderRPCController {
 	 */
 	private void process(Pair<CurrentServiceState, ServiceWrapper> pair, final RemotingTransporter request, Channel channel,final String serviceName,final long beginTime) {
 		
-		Object invokeResult = null;
-		
-		CurrentServiceState currentServiceState = pair.getKey();
-		ServiceWrapper serviceWrapper = pair.getValue();
-		
-		Object targetCallObj = serviceWrapper.getServiceProvider();
-		
-		Object[] args = ((RequestCustomBody)request.getCustomHeader()).getArgs();
-		
-		//判断服务是否已经被设定为自动降级，如果被设置为自动降级且有它自己的mock类的话，则将targetCallObj切换到mock方法上来
-		if(currentServiceState.getHasDegrade().get() && serviceWrapper.getMockDegradeServiceProvider() != null){
-			targetCallObj = serviceWrapper.getMockDegradeServiceProvider();
-		}
-		
-		String methodName = serviceWrapper.getMethodName();
-		List<Class<?>[]> parameterTypesList = serviceWrapper.getParamters();
-		
-		
-		Class<?>[] parameterTypes = findMatchingParameterTypes(parameterTypesList, args);
-		invokeResult = fastInvoke(targetCallObj, methodName, parameterTypes, args);
+		RequestCustomBody requestBody = (RequestCustomBody) request.getCustomHeader();
+		Object invokeResult = invokeTarget(pair, requestBody.getArgs(), deadline(request, requestBody));
 		
 		ResultWrapper result = new ResultWrapper();
 		result.setResult(invokeResult);
@@ -137,6 +169,7 @@ public class ProviderRPCController {
 				if (future.isSuccess()) {
 					
 					ServiceMeterManager.incrementTotalTime(serviceName, elapsed);
+					recordLatency(request, serviceName);
 				} else {
 					logger.info("request {} get failed response {}", request, response);
 				}
@@ -145,8 +178,274 @@ public class ProviderRPCController {
 		
 	}
 
+	/**
+	 * 处理批量的rpc请求，批量中的调用逐个在当前线程中执行，配置了独立线程池的服务交给服务自己的线程池执行，
+	 * 所有的调用完成之后结果合并成一个响应发送，单个调用的失败只体现在它自己的响应中，不影响批量中的其他调用
+	 * @param request
+	 * @param channel
+	 */
+	public void handlerBatchRPCRequest(final RemotingTransporter request, Channel channel) {
+		
+		BatchRequestCustomBody batchBody = null;
+		int requestSize = 0;
+		try {
+			requestSize = request.size();
+			batchBody = request.readBody(BatchRequestCustomBody.class);
+			request.bytes(null);
+		} catch (Exception e) {
+			//反序列化失败的时候回复一个空的批量响应，consumer端会把批量中的所有调用置为失败
+			logger.warn("bad batch request [{}]", e.getMessage());
+		}
+		
+		int size = batchBody == null ? 0 : batchBody.size();
+		PendingBatchResponse batch = new PendingBatchResponse(request, channel, size);
+		if (size == 0) {
+			batch.flush();
+			return;
+		}
+		
+		for (int i = 0; i < size; i++) {
+			RequestCustomBody body = batchBody.getRequests().get(i);
+			String serviceName = body.getServiceName();
+			if (null == serviceName) {
+				batch.complete(i, null, rejectedBody(BAD_REQUEST, null));
+				continue;
+			}
+			//批量请求的大小平摊到每一个调用上
+			ServiceMeterManager.incrementRequestSize(serviceName, requestSize / size);
+			ServiceMeterManager.incrementCallTimes(serviceName);
+			dispatch(batch, i, body);
+		}
+	}
+
+	/**
+	 * 批量中的一次调用，查找服务，限流，在当前线程或者服务的独立线程池中执行
+	 * @param batch
+	 * @param index
+	 * @param body
+	 */
+	private void dispatch(final PendingBatchResponse batch, final int index, final RequestCustomBody body) {
+		
+		String serviceName = body.getServiceName();
+		
+		if (isArrivedExpired(batch.request, body)) {
+			ServiceMeterManager.incrementArrivedExpiredTimes(serviceName);
+		}
+		
+		if (isExpired(batch.request, body)) {
+			ServiceMeterManager.incrementExpiredTimes(serviceName);
+			batch.complete(index, body, rejectedBody(SERVER_TIMEOUT, serviceName));
+			return;
+		}
+		
+		final Pair<CurrentServiceState, ServiceWrapper> pair = defaultProvider.getProviderController().getProviderContainer().lookupService(serviceName);
+		if (pair == null || pair.getValue() == null) {
+			batch.complete(index, body, rejectedBody(SERVICE_NOT_FOUND, serviceName));
+			return;
+		}
+		
+		if (pair.getValue().isFlowController()) {
+			ServiceFlowControllerManager serviceFlowControllerManager = defaultProvider.getProviderController().getServiceFlowControllerManager();
+			if (!serviceFlowControllerManager.isAllow(serviceName)) {
+				batch.complete(index, body, rejectedBody(APP_FLOW_CONTROL, serviceName));
+				return;
+			}
+		}
+		
+		ThreadPoolExecutor executor = defaultProvider.getProviderController().getServiceExecutorManager().getServiceExecutor(serviceName);
+		if (null == executor) {
+			batch.complete(index, body, invoke(batch.request, pair, body));
+			return;
+		}
+		try {
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					batch.complete(index, body, invoke(batch.request, pair, body));
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			ServiceMeterManager.incrementRejectedTimes(serviceName);
+			batch.complete(index, body, rejectedBody(SERVER_BUSY, serviceName));
+		}
+	}
+
+	/**
+	 * 执行批量中的一次调用，返回该调用的响应
+	 * @param request
+	 * @param pair
+	 * @param body
+	 * @return
+	 */
+	private ResponseCustomBody invoke(RemotingTransporter request, Pair<CurrentServiceState, ServiceWrapper> pair, RequestCustomBody body) {
+		
+		String serviceName = body.getServiceName();
+		//批量中的调用各自有超时时间，已经超时的调用不再执行，但仍然要占据批量响应中对应的位置
+		if (isExpired(request, body)) {
+			ServiceMeterManager.incrementExpiredTimes(serviceName);
+			return rejectedBody(SERVER_TIMEOUT, serviceName);
+		}
+		ResultWrapper result = new ResultWrapper();
+		try {
+			result.setResult(invokeTarget(pair, body.getArgs(), deadline(request, body)));
+			return new ResponseCustomBody(Status.OK.value(), result);
+		} catch (Throwable t) {
+			logger.warn("batch invoke service [{}] occur exception [{}]", serviceName, t.getMessage());
+			ServiceMeterManager.incrementFailTimes(serviceName);
+			result.setError(t.getMessage());
+			return new ResponseCustomBody(SERVICE_ERROR.value(), result);
+		}
+	}
+
+	/**
+	 * 调用服务的实现，服务被自动降级并且有mock类的时候调用mock类
+	 * 执行期间当前线程持有本次调用的截止时间，服务中发起的嵌套调用不会超过剩余的时间预算
+	 * 执行成功的耗时记录为服务最近的执行耗时，用于判断剩余的时间预算是否还够执行一次
+	 * @param pair
+	 * @param args
+	 * @param deadline 本地时钟的截止时间，0表示没有截止时间
+	 * @return
+	 */
+	private Object invokeTarget(Pair<CurrentServiceState, ServiceWrapper> pair, Object[] args, long deadline) {
+		
+		DeadlineContext.set(deadline);
+		try {
+			long begin = System.nanoTime();
+			Object result = invokeTarget(pair, args);
+			ServiceMeterManager.recordExecution(pair.getValue().getServiceName(), (System.nanoTime() - begin) / 1000);
+			return result;
+		} finally {
+			DeadlineContext.clear();
+		}
+	}
+
+	private Object invokeTarget(Pair<CurrentServiceState, ServiceWrapper> pair, Object[] args) {
+		
+		CurrentServiceState currentServiceState = pair.getKey();
+		ServiceWrapper serviceWrapper = pair.getValue();
+		
+		Object targetCallObj = serviceWrapper.getServiceProvider();
+		ServiceInvoker invoker = serviceWrapper.getInvoker();
+		
+		//判断服务是否已经被设定为自动降级，如果被设置为自动降级且有它自己的mock类的话，则将targetCallObj切换到mock方法上来
+		if(currentServiceState.getHasDegrade().get() && serviceWrapper.getMockDegradeServiceProvider() != null){
+			targetCallObj = serviceWrapper.getMockDegradeServiceProvider();
+			invoker = serviceWrapper.getMockDegradeInvoker();
+		}
+		
+		//ServiceWrapper创建的时候已经生成了该方法的调用者，直接调用
+		if (null != invoker) {
+			return invoker.invoke(targetCallObj, args);
+		}
+		
+		//入参有多个候选的时候按照实际参数的类型匹配
+		String methodName = serviceWrapper.getMethodName();
+		List<Class<?>[]> parameterTypesList = serviceWrapper.getParamters();
+		
+		Class<?>[] parameterTypes = findMatchingParameterTypes(parameterTypesList, args);
+		return fastInvoke(targetCallObj, methodName, parameterTypes, args);
+	}
+
+	/**
+	 * 调用者剩余的时间预算已经不够执行一次服务，执行完成的时候调用者已经放弃等待，没有必要再执行
+	 * 一次执行需要的时间按照该服务最近执行耗时的中位数估计，还没有足够样本的时候只丢弃预算已经用完的调用
+	 * 使用provider本地的到达时间计算，不受consumer和provider之间时钟偏差的影响
+	 * @param request
+	 * @param body
+	 * @return
+	 */
+	private boolean isExpired(RemotingTransporter request, RequestCustomBody body) {
+		long timeoutMillis = body.getTimeoutMillis();
+		long arrived = request.timestamp();
+		if (timeoutMillis <= 0 || arrived <= 0) {
+			return false;
+		}
+		long remainingMillis = arrived + timeoutMillis - SystemClock.millisClock().now();
+		return remainingMillis <= 0 || remainingMillis * 1000 < ServiceMeterManager.expectedExecutionMicros(body.getServiceName());
+	}
+
+	/**
+	 * 请求到达provider的时候调用者的时间预算是否已经用完，也就是预算在consumer端和网络上已经花光了
+	 * 按照请求到达时记录的时间判断，和之后在线程池中排队的时间无关，排队期间超时的调用由{@link #isExpired}统计
+	 * 发送的时间来自consumer的时钟，受时钟偏差的影响，只用于统计，是否丢弃仍然按照本地的到达时间判断
+	 * @param request
+	 * @param body
+	 * @return
+	 */
+	private boolean isArrivedExpired(RemotingTransporter request, RequestCustomBody body) {
+		long timeoutMillis = body.getTimeoutMillis();
+		long sent = body.getTimestamp();
+		long arrived = request.timestamp();
+		return timeoutMillis > 0 && sent > 0 && arrived > 0 && arrived - sent >= timeoutMillis;
+	}
+
+	/**
+	 * 调用在provider本地时钟上的截止时间，请求到达的时间加上调用者传递过来的剩余时间预算
+	 * @param request
+	 * @param body
+	 * @return 调用者没有传递时间预算的时候返回0
+	 */
+	private long deadline(RemotingTransporter request, RequestCustomBody body) {
+		long timeoutMillis = body.getTimeoutMillis();
+		long arrived = request.timestamp();
+		return timeoutMillis > 0 && arrived > 0 ? arrived + timeoutMillis : 0;
+	}
+
+	/**
+	 * 记录请求从到达provider到响应发送完成的耗时，包含了在线程池中排队的时间
+	 * @param request
+	 * @param serviceName
+	 */
+	private static void recordLatency(RemotingTransporter request, String serviceName) {
+		if (request.hasArrivedNanos()) {
+			ServiceMeterManager.recordLatency(serviceName, (System.nanoTime() - request.arrivedNanos()) / 1000);
+		}
+	}
+
+	/**
+	 * 丢弃已经超时的调用，调用者已经按照超时处理，不再回复响应
+	 * @param serviceName
+	 */
+	private void expired(String serviceName) {
+		ServiceMeterManager.incrementExpiredTimes(serviceName);
+		ServiceMeterManager.incrementFailTimes(serviceName);
+		if (logger.isDebugEnabled()) {
+			logger.debug("service [{}] request expired before execution, dropped", serviceName);
+		}
+	}
+
 	private void rejected(Status status, Channel channel, final RemotingTransporter request,String serviceName) {
 
+		ResponseCustomBody responseCustomBody = rejectedBody(status, serviceName);
+		if (null == responseCustomBody) {
+			return;
+		}
+		//服务线程池饱和的拒绝以HANDLER_BUSY回复，服务线程池中执行出错以HANDLER_ERROR回复，响应体中同样带上了拒绝的原因
+		byte code = status == SERVER_BUSY ? LaopopoProtocol.HANDLER_BUSY : status == SERVER_ERROR ? LaopopoProtocol.HANDLER_ERROR : LaopopoProtocol.RPC_RESPONSE;
+		final RemotingTransporter response = RemotingTransporter.createResponseTransporter(code, responseCustomBody,
+				request.getOpaque());
+
+		channel.writeAndFlush(response).addListener(new ChannelFutureListener() {
+
+			public void operationComplete(ChannelFuture future) throws Exception {
+				if (future.isSuccess()) {
+					logger.info("request error {} get success response {}", request, response);
+				} else {
+					logger.info("request error {} get failed response {}", request, response);
+				}
+			}
+		});
+	}
+
+	/**
+	 * 构建被拒绝的调用的响应体
+	 * @param status
+	 * @param serviceName
+	 * @return 未知的状态返回null
+	 */
+	private ResponseCustomBody rejectedBody(Status status, String serviceName) {
+
 		if(null != serviceName){
 			ServiceMeterManager.incrementFailTimes(serviceName);
 		}
@@ -154,33 +453,99 @@ public class ProviderRPCController {
 		switch (status) {
 		case BAD_REQUEST:
 			result.setError("bad request");
+			break;
 		case SERVICE_NOT_FOUND:
-			result.setError(((RequestCustomBody) request.getCustomHeader()).getServiceName() +" no service found");
+			result.setError(serviceName +" no service found");
 			break;
 		case APP_FLOW_CONTROL:
 		case PROVIDER_FLOW_CONTROL:
 			result.setError("over unit time call limit");
 			break;
+		case SERVER_BUSY:
+			result.setError(serviceName + " executor is busy");
+			break;
+		case SERVER_TIMEOUT:
+			result.setError(serviceName + " request expired before execution");
+			break;
+		case SERVER_ERROR:
+			result.setError(serviceName + " handler occur exception");
+			break;
 		default:
 			logger.warn("Unexpected status.", status.description());
-			return;
+			return null;
 		}
 		logger.warn("Service rejected: {}.", result.getError());
 
-		ResponseCustomBody responseCustomBody = new ResponseCustomBody(status.value(), result);
-		final RemotingTransporter response = RemotingTransporter.createResponseTransporter(LaopopoProtocol.RPC_RESPONSE, responseCustomBody,
-				request.getOpaque());
+		return new ResponseCustomBody(status.value(), result);
+	}
 
-		channel.writeAndFlush(response).addListener(new ChannelFutureListener() {
+	/**
+	 * 批量请求的响应，批量中的调用可能在不同的线程池中完成，最后一个完成的调用负责发送合并的响应
+	 */
+	private static class PendingBatchResponse {
+		
+		private final RemotingTransporter request;
+		private final Channel channel;
+		private final ResponseCustomBody[] responses;
+		private final String[] serviceNames;
+		private final long[] beginTimes;
+		private final AtomicInteger pending;
+		
+		public PendingBatchResponse(RemotingTransporter request, Channel channel, int size) {
+			this.request = request;
+			this.channel = channel;
+			this.responses = new ResponseCustomBody[size];
+			this.serviceNames = new String[size];
+			this.beginTimes = new long[size];
+			this.pending = new AtomicInteger(size);
+		}
+		
+		/**
+		 * 批量中的第index个调用完成
+		 * @param index
+		 * @param body 调用的请求，成功的调用用来统计调用时间
+		 * @param response
+		 */
+		public void complete(int index, RequestCustomBody body, ResponseCustomBody response) {
+			responses[index] = response;
+			if (null != body && response.getStatus() == Status.OK.value()) {
+				serviceNames[index] = body.getServiceName();
+				beginTimes[index] = body.getTimestamp();
+			}
+			//AtomicInteger的递减保证了之前写入数组的结果对发送线程可见
+			if (pending.decrementAndGet() == 0) {
+				flush();
+			}
+		}
+		
+		public void flush() {
+			
+			final int size = responses.length;
+			BatchResponseCustomBody batchResponseBody = new BatchResponseCustomBody(size);
+			for (int i = 0; i < size; i++) {
+				batchResponseBody.add(responses[i]);
+			}
+			
+			final RemotingTransporter response = RemotingTransporter.createResponseTransporter(LaopopoProtocol.RPC_BATCH_RESPONSE, batchResponseBody, request.getOpaque());
+			
+			channel.writeAndFlush(response).addListener(new ChannelFutureListener() {
 
-			public void operationComplete(ChannelFuture future) throws Exception {
-				if (future.isSuccess()) {
-					logger.info("request error {} get success response {}", request, response);
-				} else {
-					logger.info("request error {} get failed response {}", request, response);
+				public void operationComplete(ChannelFuture future) throws Exception {
+					
+					if (future.isSuccess()) {
+						long now = SystemClock.millisClock().now();
+						for (int i = 0; i < size; i++) {
+							if (serviceNames[i] != null) {
+								ServiceMeterManager.incrementTotalTime(serviceNames[i], now - beginTimes[i]);
+								recordLatency(request, serviceNames[i]);
+							}
+						}
+					} else {
+						logger.info("batch request {} get failed response {}", request, response);
+					}
 				}
-			}
-		});
+			});
+		}
 	}
 
 }
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.laopopo.client.metrics.ServiceMeterManager;
 import org.laopopo.client.provider.DefaultServiceProviderContainer.CurrentServiceState;
+import org.laopopo.client.provider.executor.ServiceExecutorManager;
 import org.laopopo.client.provider.flow.control.ServiceFlowControllerManager;
 import org.laopopo.client.provider.model.ServiceWrapper;
 import org.laopopo.common.utils.Pair;
@@ -14,7 +15,7 @@ import org.laopopo.common.utils.Pair;
  * @author BazingaLyn
  * @description provider端的控制器
  * @time 2016年8月16日
- * @modifytime
+ * @modifytime 2016年10月26日 增加服务的独立线程池管理
  */
 public class ProviderRegistryController {
 	
@@ -28,6 +29,8 @@ public class ProviderRegistryController {
 	private LocalServerWrapperManager localServerWrapperManager;
 	private final ServiceProviderContainer providerContainer;
 	private ServiceFlowControllerManager serviceFlowControllerManager = new ServiceFlowControllerManager();
+	//服务的独立线程池管理
+	private ServiceExecutorManager serviceExecutorManager = new ServiceExecutorManager();
 	
 	public ProviderRegistryController(DefaultProvider defaultProvider) {
 		this.defaultProvider = defaultProvider;
@@ -110,6 +113,10 @@ public class ProviderRegistryController {
 		return serviceFlowControllerManager;
 	}
 
+	public ServiceExecutorManager getServiceExecutorManager() {
+		return serviceExecutorManager;
+	}
+
 	public void setServiceFlowControllerManager(ServiceFlowControllerManager serviceFlowControllerManager) {
 		this.serviceFlowControllerManager = serviceFlowControllerManager;
 	}
@@ -0,0 +1,86 @@
+package org.laopopo.client.provider.executor;
+
+import io.netty.util.internal.StringUtil;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.laopopo.common.utils.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 服务的独立线程池管理(舱壁隔离)，一个慢服务只能耗尽自己的线程，不会拖垮其他服务
+ * 同一个executorGroup的服务共用一个线程池，没有指定group的服务单独使用一个线程池，线程数为0的服务使用provider公共的线程池
+ * 线程池的队列是有界的，队列满了之后直接拒绝，由调用方回复HANDLER_BUSY
+ * @time 2016年10月26日
+ * @modifytime
+ */
+public class ServiceExecutorManager {
+
+	private static final Logger logger = LoggerFactory.getLogger(ServiceExecutorManager.class);
+
+	//key是executorGroup
+	private final ConcurrentMap<String, ThreadPoolExecutor> groupExecutors = new ConcurrentHashMap<String, ThreadPoolExecutor>();
+	//key是serviceName
+	private final ConcurrentMap<String, ThreadPoolExecutor> serviceExecutors = new ConcurrentHashMap<String, ThreadPoolExecutor>();
+
+	/**
+	 * 为某个服务设置独立的线程池
+	 * @param serviceName
+	 * @param group 线程池的分组名，为空的时候以服务名作为分组
+	 * @param threads 线程数，小于等于0的时候使用公共线程池
+	 * @param queueSize 等待队列的长度
+	 */
+	public void registerServiceExecutor(String serviceName, String group, int threads, int queueSize) {
+
+		if (threads <= 0) {
+			return;
+		}
+
+		String groupName = StringUtil.isNullOrEmpty(group) ? serviceName : group;
+		ThreadPoolExecutor executor = groupExecutors.get(groupName);
+		if (null == executor) {
+			ThreadPoolExecutor newExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(queueSize, 1)),
+					new NamedThreadFactory("providerServiceThread_" + groupName + "_", true),
+					new ThreadPoolExecutor.AbortPolicy());
+			executor = groupExecutors.putIfAbsent(groupName, newExecutor);
+			if (null == executor) {
+				executor = newExecutor;
+			} else {
+				newExecutor.shutdown();
+			}
+		}
+		//同一个group的服务以第一个注册的线程数和队列长度为准
+		if (executor.getMaximumPoolSize() != threads) {
+			logger.warn("service [{}] executor group [{}] already exists with [{}] threads, ignore [{}]", serviceName, groupName, executor.getMaximumPoolSize(), threads);
+		}
+		serviceExecutors.put(serviceName, executor);
+	}
+
+	/**
+	 * 获取某个服务的独立线程池
+	 * @param serviceName
+	 * @return 没有设置独立线程池的时候返回null
+	 */
+	public ThreadPoolExecutor getServiceExecutor(String serviceName) {
+		return serviceExecutors.get(serviceName);
+	}
+
+	/**
+	 * 某个服务所在线程池当前排队等待执行的任务数，同一个group的服务返回的是整个group的排队数
+	 * @param serviceName
+	 * @return
+	 */
+	public int getQueueDepth(String serviceName) {
+		ThreadPoolExecutor executor = serviceExecutors.get(serviceName);
+		return null == executor ? 0 : executor.getQueue().size();
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.laopopo.client.provider.invoker;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 调用服务实现上的一个方法，每个ServiceWrapper在创建的时候生成自己的ServiceInvoker
+ * 服务抛出的异常原样抛出，不包装成InvocationTargetException
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public interface ServiceInvoker {
+
+	/**
+	 * @param target 服务的实例，原生类或者降级类
+	 * @param args 调用的参数，基本类型是对应的包装类
+	 * @return 返回值，基本类型返回包装类，void方法返回null
+	 */
+	Object invoke(Object target, Object[] args);
+
+}
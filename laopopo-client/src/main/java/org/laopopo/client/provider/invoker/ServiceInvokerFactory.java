@@ -0,0 +1,221 @@
+package org.laopopo.client.provider.invoker;
+
+import static net.bytebuddy.dynamic.loading.ClassLoadingStrategy.Default.INJECTION;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.ClassFileVersion;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.scaffold.InstrumentedType;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.StackManipulation;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.assign.TypeCasting;
+import net.bytebuddy.implementation.bytecode.collection.ArrayAccess;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+import net.bytebuddy.implementation.bytecode.constant.NullConstant;
+import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
+import net.bytebuddy.implementation.bytecode.member.MethodReturn;
+import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.sf.cglib.reflect.FastMethod;
+
+import org.laopopo.common.utils.Reflects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 为服务实现上的方法生成专用的{@link ServiceInvoker}，生成的invoke方法相当于：
+ * return ((ServiceImpl) target).method((String) args[0], ((Integer) args[1]).intValue());
+ * 直接调用目标方法，参数按照方法的入参类型强转和拆箱，基本类型的返回值装箱，没有按照方法名或者下标的查找
+ * 生成的类和方法的声明类在同一个包和ClassLoader中，包可见的服务实现也可以直接调用
+ * 方法的声明类或者入参类型对生成的类不可见(比如私有的内部类)，或者生成失败的时候，使用cglib的FastMethod
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 生成的类固定使用Java 7的class文件版本
+ */
+public final class ServiceInvokerFactory {
+
+	private static final Logger logger = LoggerFactory.getLogger(ServiceInvokerFactory.class);
+
+	//key是在目标类上解析出来的方法，同一个方法只生成一次
+	private static final ConcurrentMap<Method, ServiceInvoker> invokers = new ConcurrentHashMap<Method, ServiceInvoker>();
+	//生成的类名的序号，同一个声明类上的多个方法各自生成一个类
+	private static final AtomicInteger sequence = new AtomicInteger();
+
+	private ServiceInvokerFactory() {
+	}
+
+	/**
+	 * @param targetClass 服务实例的类，可能是编织了拦截器的子类
+	 * @param methodName
+	 * @param parameterTypes
+	 * @return 目标类上没有这个public方法的时候返回null
+	 */
+	public static ServiceInvoker create(Class<?> targetClass, String methodName, Class<?>[] parameterTypes) {
+
+		Method method;
+		try {
+			method = targetClass.getMethod(methodName, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+		ServiceInvoker invoker = invokers.get(method);
+		if (invoker == null) {
+			ServiceInvoker newInvoker = generate(targetClass, method);
+			invoker = invokers.putIfAbsent(method, newInvoker);
+			if (invoker == null) {
+				invoker = newInvoker;
+			}
+		}
+		return invoker;
+	}
+
+	private static ServiceInvoker generate(Class<?> targetClass, Method method) {
+
+		Class<?> owner = method.getDeclaringClass();
+		if (accessible(owner, method)) {
+			try {
+				//显式指定class文件的版本，ByteBuddy 1.2.3不认识Java 9之后的java.version，默认的构造方法会抛出Unknown Java version
+				Class<?> invokerClass = new ByteBuddy(ClassFileVersion.JAVA_V7)
+				.subclass(Object.class)
+				.name(owner.getName() + "$$LaopopoInvoker$$" + sequence.incrementAndGet())
+				.implement(ServiceInvoker.class)
+				.intercept(new DirectCall(method))
+				.make()
+				.load(owner.getClassLoader(), INJECTION)
+				.getLoaded();
+				return (ServiceInvoker) invokerClass.newInstance();
+			} catch (Throwable t) {
+				logger.warn("generate invoker of method [{}] failed, use FastMethod instead: {}", method, t.getMessage());
+			}
+		}
+		return new FastMethodInvoker(Reflects.fastMethod(targetClass, method.getName(), method.getParameterTypes()));
+	}
+
+	/**
+	 * 生成的类能否直接引用方法的声明类和入参类型
+	 */
+	private static boolean accessible(Class<?> owner, Method method) {
+		if (owner.getClassLoader() == null || !visible(owner, owner)) {
+			return false;
+		}
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			if (!visible(parameterType, owner)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean visible(Class<?> type, Class<?> owner) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (type.isPrimitive()) {
+			return true;
+		}
+		for (Class<?> cls = type; cls != null; cls = cls.getDeclaringClass()) {
+			int modifiers = cls.getModifiers();
+			if (Modifier.isPrivate(modifiers)) {
+				return false;
+			}
+			if (!Modifier.isPublic(modifiers) && !samePackage(cls, owner)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean samePackage(Class<?> cls, Class<?> owner) {
+		return cls.getClassLoader() == owner.getClassLoader() && packageName(cls).equals(packageName(owner));
+	}
+
+	private static String packageName(Class<?> cls) {
+		String name = cls.getName();
+		int index = name.lastIndexOf('.');
+		return index < 0 ? "" : name.substring(0, index);
+	}
+
+	/**
+	 * 生成ServiceInvoker#invoke(Object target, Object[] args)的字节码
+	 */
+	static final class DirectCall implements Implementation {
+
+		private final Method method;
+
+		DirectCall(Method method) {
+			this.method = method;
+		}
+
+		@Override
+		public InstrumentedType prepare(InstrumentedType instrumentedType) {
+			return instrumentedType;
+		}
+
+		@Override
+		public ByteCodeAppender appender(Target implementationTarget) {
+			return new ByteCodeAppender() {
+
+				@Override
+				public Size apply(MethodVisitor methodVisitor, Context implementationContext, MethodDescription instrumentedMethod) {
+
+					List<StackManipulation> code = new ArrayList<StackManipulation>();
+					//(ServiceImpl) target
+					code.add(MethodVariableAccess.REFERENCE.loadOffset(1));
+					code.add(TypeCasting.to(new TypeDescription.ForLoadedType(method.getDeclaringClass())));
+					//(Type) args[i]，基本类型强转成包装类之后拆箱
+					Class<?>[] parameterTypes = method.getParameterTypes();
+					for (int i = 0; i < parameterTypes.length; i++) {
+						code.add(MethodVariableAccess.REFERENCE.loadOffset(2));
+						code.add(IntegerConstant.forValue(i));
+						code.add(ArrayAccess.REFERENCE.load());
+						code.add(Assigner.DEFAULT.assign(TypeDescription.Generic.OBJECT, new TypeDescription.ForLoadedType(parameterTypes[i]).asGenericType(),
+								Assigner.Typing.DYNAMIC));
+					}
+					code.add(MethodInvocation.invoke(new MethodDescription.ForLoadedMethod(method)));
+					//基本类型的返回值装箱，void返回null
+					Class<?> returnType = method.getReturnType();
+					if (returnType == void.class) {
+						code.add(NullConstant.INSTANCE);
+					} else {
+						code.add(Assigner.DEFAULT.assign(new TypeDescription.ForLoadedType(returnType).asGenericType(), TypeDescription.Generic.OBJECT,
+								Assigner.Typing.DYNAMIC));
+					}
+					code.add(MethodReturn.REFERENCE);
+
+					StackManipulation.Size size = new StackManipulation.Compound(code).apply(methodVisitor, implementationContext);
+					return new Size(size.getMaximalSize(), instrumentedMethod.getStackSize());
+				}
+			};
+		}
+	}
+
+	/**
+	 * 不能生成专用的类的时候使用cglib的FastMethod，方法的下标在创建的时候已经解析好
+	 */
+	static final class FastMethodInvoker implements ServiceInvoker {
+
+		private final FastMethod fastMethod;
+
+		FastMethodInvoker(FastMethod fastMethod) {
+			this.fastMethod = fastMethod;
+		}
+
+		@Override
+		public Object invoke(Object target, Object[] args) {
+			return Reflects.fastInvoke(fastMethod, target, args);
+		}
+	}
+
+}
@@ -6,12 +6,15 @@ import static org.laopopo.common.utils.Constants.DEFAULT_WEIGHT;
 
 import java.util.List;
 
+import org.laopopo.client.provider.invoker.ServiceInvoker;
+import org.laopopo.client.provider.invoker.ServiceInvokerFactory;
+
 /**
  * 
  * @author BazingaLyn
  * @description provider端需要编织的service类
  * @time
- * @modifytime
+ * @modifytime 2016年10月27日 创建的时候生成原生类和降级类上该方法的ServiceInvoker，调用的时候不再按照方法名和入参查找方法
  */
 public class ServiceWrapper {
 
@@ -43,6 +46,10 @@ public class ServiceWrapper {
 	private boolean isFlowController;
 	/****单位时间内最大的调用次数****/
 	private long maxCallCountInMinute = DEFAULT_MAX_CALLCOUN_TINMINUTE;
+	/****原生类上该方法的调用者，入参有多个候选的时候是null****/
+	private volatile ServiceInvoker invoker;
+	/****降级类上该方法的调用者，没有降级类或者降级类上没有这个方法的时候是null****/
+	private volatile ServiceInvoker mockDegradeInvoker;
 	
 	public ServiceWrapper(Object serviceProvider, Object mockDegradeServiceProvider, String serviceName,
 			String responsiblityName, String methodName, List<Class<?>[]> paramters, boolean isSupportDegradeService, String degradeServicePath,
@@ -61,6 +68,30 @@ public class ServiceWrapper {
 		this.isVIPService = isVIPService;
 		this.isFlowController = isFlowController;
 		this.maxCallCountInMinute = maxCallCountInMinute;
+		resolveInvokers();
+	}
+
+	/**
+	 * 方法名，入参和实例都确定之后生成调用者，任何一个改变的时候重新生成
+	 */
+	private void resolveInvokers() {
+		this.invoker = resolveInvoker(serviceProvider);
+		this.mockDegradeInvoker = resolveInvoker(mockDegradeServiceProvider);
+	}
+
+	private ServiceInvoker resolveInvoker(Object target) {
+		if (null == target || null == methodName || null == paramters || paramters.size() != 1) {
+			return null;
+		}
+		return ServiceInvokerFactory.create(target.getClass(), methodName, paramters.get(0));
+	}
+
+	public ServiceInvoker getInvoker() {
+		return invoker;
+	}
+
+	public ServiceInvoker getMockDegradeInvoker() {
+		return mockDegradeInvoker;
 	}
 
 	public Object getServiceProvider() {
@@ -69,6 +100,7 @@ public class ServiceWrapper {
 
 	public void setServiceProvider(Object serviceProvider) {
 		this.serviceProvider = serviceProvider;
+		resolveInvokers();
 	}
 
 	public Object getMockDegradeServiceProvider() {
@@ -77,6 +109,7 @@ public class ServiceWrapper {
 
 	public void setMockDegradeServiceProvider(Object mockDegradeServiceProvider) {
 		this.mockDegradeServiceProvider = mockDegradeServiceProvider;
+		resolveInvokers();
 	}
 
 	public String getServiceName() {
@@ -101,6 +134,7 @@ public class ServiceWrapper {
 
 	public void setMethodName(String methodName) {
 		this.methodName = methodName;
+		resolveInvokers();
 	}
 
 	public List<Class<?>[]> getParamters() {
@@ -109,6 +143,7 @@ public class ServiceWrapper {
 
 	public void setParamters(List<Class<?>[]> paramters) {
 		this.paramters = paramters;
+		resolveInvokers();
 	}
 
 	public boolean isSupportDegradeService() {
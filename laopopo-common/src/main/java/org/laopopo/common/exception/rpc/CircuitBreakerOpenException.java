@@ -0,0 +1,30 @@
+package org.laopopo.common.exception.rpc;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 服务的所有提供者都被熔断了，调用直接失败，不再等待超时
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+	private static final long serialVersionUID = 2861752915406498323L;
+
+	public CircuitBreakerOpenException() {
+		super();
+	}
+
+	public CircuitBreakerOpenException(String message) {
+		super(message);
+	}
+
+	public CircuitBreakerOpenException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public CircuitBreakerOpenException(Throwable cause) {
+		super(cause);
+	}
+
+}
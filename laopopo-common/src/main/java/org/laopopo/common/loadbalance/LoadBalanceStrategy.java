@@ -5,12 +5,15 @@ package org.laopopo.common.loadbalance;
  * @author BazingaLyn
  * @description 负载均衡的访问策略
  * @time 2016年8月31日
- * @modifytime
+ * @modifytime 2016年10月27日 增加最少活跃调用数和peak EWMA；增加一致性哈希
  */
 public enum LoadBalanceStrategy {
 	
 	RANDOM, //随机
 	WEIGHTINGRANDOM, //加权随机
 	ROUNDROBIN, //轮询
+	LEASTACTIVE, //最少活跃调用数
+	PEAKEWMA, //耗时的peak EWMA，两次随机选择
+	CONSISTENTHASH, //一致性哈希，根据@RPConsumer的hashArgIndex指定的参数选择提供者
 
 }
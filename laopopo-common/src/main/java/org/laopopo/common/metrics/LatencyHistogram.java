@@ -0,0 +1,160 @@
+package org.laopopo.common.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 调用耗时的直方图，单位是微秒，用来统计p50/p90/p99/p999这些平均值看不出来的长尾耗时
+ * 桶的划分和HdrHistogram类似：小于32微秒的值每个值一个桶，之后每个2的幂区间均分成32个桶，相对误差不超过1/32
+ * 记录的时候只是在固定的数组上做一次原子累加，不分配对象，不加锁
+ * 上报和合并使用{@link #snapshot()}得到的桶数组，两个直方图的合并就是桶数组对应位置相加，合并之后再计算分位数，
+ * 不能对各个provider的分位数取平均
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	//能够区分的最大耗时是2^37微秒(约38小时)，更大的值记录在最后一个桶中
+	private static final int MAX_EXPONENT = 36;
+	public static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+	private static final long[] EMPTY = new long[0];
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * 记录一次调用的耗时
+	 * @param micros 微秒，小于0的按0记录
+	 */
+	public void record(long micros) {
+
+		if (micros < 0) {
+			micros = 0;
+		}
+		buckets.incrementAndGet(indexOf(micros));
+
+		long current = max.get();
+		while (micros > current && !max.compareAndSet(current, micros)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * 当前各个桶的计数，去掉了末尾计数为0的桶，用于上报
+	 * 和记录并发执行的时候得到的是一个近似的快照，各个桶之间不保证是同一时刻的值
+	 * @return
+	 */
+	public long[] snapshot() {
+
+		int length = BUCKET_COUNT;
+		while (length > 0 && buckets.get(length - 1) == 0) {
+			length--;
+		}
+		if (length == 0) {
+			return EMPTY;
+		}
+		long[] counts = new long[length];
+		for (int i = 0; i < length; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return counts;
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * 耗时所在的桶
+	 * @param micros
+	 * @return
+	 */
+	static int indexOf(long micros) {
+
+		if (micros < SUB_BUCKET_COUNT) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * 桶中能够记录的最大耗时，分位数按照桶的上界计算，宁可高估不会低估
+	 * @param index
+	 * @return
+	 */
+	static long highestValueOf(int index) {
+
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		long subBucket = index % SUB_BUCKET_COUNT;
+		int shift = exponent - SUB_BUCKET_BITS;
+		return ((SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * 合并两个直方图的桶数组
+	 * @param a
+	 * @param b
+	 * @return 新的数组，参数都为null的时候返回空数组
+	 */
+	public static long[] merge(long[] a, long[] b) {
+
+		if (null == a) {
+			return null == b ? EMPTY : Arrays.copyOf(b, b.length);
+		}
+		if (null == b) {
+			return Arrays.copyOf(a, a.length);
+		}
+		long[] merged = Arrays.copyOf(a, Math.max(a.length, b.length));
+		for (int i = 0; i < b.length; i++) {
+			merged[i] += b[i];
+		}
+		return merged;
+	}
+
+	/**
+	 * 根据桶数组计算分位数
+	 * @param counts {@link #snapshot()}或者{@link #merge}的结果
+	 * @param quantile 0到1之间，比如0.99
+	 * @param max 记录过的最大值，分位数不会超过它
+	 * @return 没有记录的时候返回0
+	 */
+	public static long valueAtQuantile(long[] counts, double quantile, long max) {
+
+		if (null == counts) {
+			return 0;
+		}
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		//第rank个值所在的桶，rank从1开始
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				long value = highestValueOf(i);
+				return max > 0 ? Math.min(value, max) : value;
+			}
+		}
+		return max;
+	}
+
+}
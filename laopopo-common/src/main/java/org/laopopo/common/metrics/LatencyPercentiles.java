@@ -0,0 +1,78 @@
+package org.laopopo.common.metrics;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 根据耗时直方图计算出来的分位数，单位微秒，用于管理页面展示
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class LatencyPercentiles {
+
+	private long p50;
+	private long p90;
+	private long p99;
+	private long p999;
+	private long max;
+
+	/**
+	 * @param buckets {@link LatencyHistogram}的桶数组，可以是多个直方图合并之后的结果
+	 * @param max 最大耗时
+	 * @return
+	 */
+	public static LatencyPercentiles of(long[] buckets, long max) {
+		LatencyPercentiles percentiles = new LatencyPercentiles();
+		percentiles.setP50(LatencyHistogram.valueAtQuantile(buckets, 0.5, max));
+		percentiles.setP90(LatencyHistogram.valueAtQuantile(buckets, 0.9, max));
+		percentiles.setP99(LatencyHistogram.valueAtQuantile(buckets, 0.99, max));
+		percentiles.setP999(LatencyHistogram.valueAtQuantile(buckets, 0.999, max));
+		percentiles.setMax(max);
+		return percentiles;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public void setP50(long p50) {
+		this.p50 = p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public void setP90(long p90) {
+		this.p90 = p90;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public void setP99(long p99) {
+		this.p99 = p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+	public void setP999(long p999) {
+		this.p999 = p999;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public void setMax(long max) {
+		this.max = max;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyPercentiles [p50=" + p50 + ", p90=" + p90 + ", p99=" + p99 + ", p999=" + p999 + ", max=" + max + "]";
+	}
+
+}
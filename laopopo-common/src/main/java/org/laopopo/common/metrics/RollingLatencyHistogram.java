@@ -0,0 +1,72 @@
+package org.laopopo.common.metrics;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 只反映最近耗时的直方图，{@link LatencyHistogram}累计的是整个生命周期的耗时，启动时的慢调用和很久之前的耗时会一直影响分位数
+ * 这里用两个直方图轮换，每隔一个周期丢弃上一个周期的直方图，读取的是上一个周期和当前周期合并的结果，也就是最近一到两个周期的耗时
+ * 轮换的瞬间有少量记录可能落在被丢弃的直方图中，对于估计分位数来说可以接受
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class RollingLatencyHistogram {
+
+	private final long periodMillis;
+
+	private volatile LatencyHistogram current = new LatencyHistogram();
+	private volatile LatencyHistogram previous = new LatencyHistogram();
+	private volatile long rotatedAt = System.currentTimeMillis();
+
+	/**
+	 * @param periodMillis 轮换的周期
+	 */
+	public RollingLatencyHistogram(long periodMillis) {
+		this.periodMillis = periodMillis;
+	}
+
+	/**
+	 * 记录一次调用的耗时
+	 * @param micros 微秒
+	 */
+	public void record(long micros) {
+		rotateIfNecessary();
+		current.record(micros);
+	}
+
+	/**
+	 * 最近一到两个周期的桶数组，参见{@link LatencyHistogram#snapshot()}
+	 * @return
+	 */
+	public long[] snapshot() {
+		rotateIfNecessary();
+		return LatencyHistogram.merge(previous.snapshot(), current.snapshot());
+	}
+
+	/**
+	 * 最近一到两个周期的最大耗时
+	 * @return
+	 */
+	public long getMax() {
+		return Math.max(previous.getMax(), current.getMax());
+	}
+
+	private void rotateIfNecessary() {
+		if (System.currentTimeMillis() - rotatedAt >= periodMillis) {
+			rotate();
+		}
+	}
+
+	private synchronized void rotate() {
+		long now = System.currentTimeMillis();
+		long elapsed = now - rotatedAt;
+		if (elapsed < periodMillis) {
+			//其他线程已经轮换过了
+			return;
+		}
+		//超过两个周期没有轮换，说明这段时间没有调用，当前的直方图也已经过时了
+		previous = elapsed < 2 * periodMillis ? current : new LatencyHistogram();
+		current = new LatencyHistogram();
+		rotatedAt = now;
+	}
+
+}
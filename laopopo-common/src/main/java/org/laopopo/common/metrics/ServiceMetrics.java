@@ -1,11 +1,13 @@
 package org.laopopo.common.metrics;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.laopopo.common.loadbalance.LoadBalanceStrategy;
+import org.laopopo.common.rpc.ConsumerMetricsReporter;
 import org.laopopo.common.rpc.RegisterMeta.Address;
 import org.laopopo.common.rpc.ServiceReviewState;
 
@@ -14,7 +16,7 @@ import org.laopopo.common.rpc.ServiceReviewState;
  * @author BazingaLyn
  * @description 服务统计信息，用于管理人员管理服务数据
  * @time 2016年8月29日
- * @modifytime 2016年8月31日
+ * @modifytime 2016年10月27日 增加服务和每个提供者的耗时直方图和分位数；增加consumer端上报的每个提供者的调用统计
  */
 public class ServiceMetrics {
 	
@@ -23,10 +25,14 @@ public class ServiceMetrics {
 	private Long totalFailCount = 0l;                    							  //该服务的总共的失败次数
 	private Long handlerAvgTime = 0l;
 	private Long requestSize = 0l;
+	private long[] latencyBuckets;                                                    //所有提供者合并之后的耗时直方图
+	private Long maxLatency = 0l;                                                     //最大耗时，单位微秒
+	private LatencyPercentiles latencyPercentiles;                                    //根据合并之后的直方图计算的分位数
 	private ConcurrentMap<Address,ProviderInfo> providerMaps = 
 			new ConcurrentHashMap<Address, ProviderInfo>();     	                  //该服务的消费者的信息
 	private Set<ConsumerInfo> consumerInfos = new HashSet<ConsumerInfo>();        	  //该服务的提供者的信息
 	private LoadBalanceStrategy loadBalanceStrategy; 							  	  //负载均衡策略
+	private List<ConsumerMetricsReporter> consumerMetricsReporters;                   //consumer端看到的每个提供者的调用统计
 	
 	public String getServiceName() {
 		return serviceName;
@@ -92,6 +98,38 @@ public class ServiceMetrics {
 		this.requestSize = requestSize;
 	}
 
+	public long[] getLatencyBuckets() {
+		return latencyBuckets;
+	}
+
+	public void setLatencyBuckets(long[] latencyBuckets) {
+		this.latencyBuckets = latencyBuckets;
+	}
+
+	public Long getMaxLatency() {
+		return maxLatency;
+	}
+
+	public void setMaxLatency(Long maxLatency) {
+		this.maxLatency = maxLatency;
+	}
+
+	public LatencyPercentiles getLatencyPercentiles() {
+		return latencyPercentiles;
+	}
+
+	public void setLatencyPercentiles(LatencyPercentiles latencyPercentiles) {
+		this.latencyPercentiles = latencyPercentiles;
+	}
+
+	public List<ConsumerMetricsReporter> getConsumerMetricsReporters() {
+		return consumerMetricsReporters;
+	}
+
+	public void setConsumerMetricsReporters(List<ConsumerMetricsReporter> consumerMetricsReporters) {
+		this.consumerMetricsReporters = consumerMetricsReporters;
+	}
+
 
 
 	public static class ConsumerInfo {
@@ -133,6 +171,9 @@ public class ServiceMetrics {
 		private Long failCount = 0l;            //失败的次数
 		private Long handlerAvgTime = 0l;       //处理的平均时间
 		private Long requestSize = 0l;          //请求的大小
+		private long[] latencyBuckets;          //耗时直方图
+		private Long maxLatency = 0l;           //最大耗时，单位微秒
+		private LatencyPercentiles latencyPercentiles; //耗时分位数
 		private Boolean isDegradeService;       //是否已经降级
 		private Boolean isSupportDegrade;       //是否支持降级
 		private Boolean isVipService;           //是否是VIP服务
@@ -174,6 +215,24 @@ public class ServiceMetrics {
 		public void setRequestSize(Long requestSize) {
 			this.requestSize = requestSize;
 		}
+		public long[] getLatencyBuckets() {
+			return latencyBuckets;
+		}
+		public void setLatencyBuckets(long[] latencyBuckets) {
+			this.latencyBuckets = latencyBuckets;
+		}
+		public Long getMaxLatency() {
+			return maxLatency;
+		}
+		public void setMaxLatency(Long maxLatency) {
+			this.maxLatency = maxLatency;
+		}
+		public LatencyPercentiles getLatencyPercentiles() {
+			return latencyPercentiles;
+		}
+		public void setLatencyPercentiles(LatencyPercentiles latencyPercentiles) {
+			this.latencyPercentiles = latencyPercentiles;
+		}
 		public Boolean getIsDegradeService() {
 			return isDegradeService;
 		}
@@ -201,7 +260,7 @@ public class ServiceMetrics {
 		@Override
 		public String toString() {
 			return "ProviderInfo [port=" + port + ", host=" + host + ", callCount=" + callCount + ", failCount=" + failCount + ", handlerAvgTime="
-					+ handlerAvgTime + ", isDegradeService=" + isDegradeService + ", isSupportDegrade=" + isSupportDegrade + ", isVipService=" + isVipService
+					+ handlerAvgTime + ", latencyPercentiles=" + latencyPercentiles + ", isDegradeService=" + isDegradeService + ", isSupportDegrade=" + isSupportDegrade + ", isVipService=" + isVipService
 					+ ", serviceReviewState=" + serviceReviewState + "]";
 		}
 		
@@ -210,7 +269,7 @@ public class ServiceMetrics {
 	@Override
 	public String toString() {
 		return "ServiceMetrics [serviceName=" + serviceName + ", totalCallCount=" + totalCallCount + ", totalFailCount=" + totalFailCount + ", handlerAvgTime="
-				+ handlerAvgTime + ", requestSize=" + requestSize + ", providerMaps=" + providerMaps + ", consumerInfos=" + consumerInfos
+				+ handlerAvgTime + ", requestSize=" + requestSize + ", latencyPercentiles=" + latencyPercentiles + ", providerMaps=" + providerMaps + ", consumerInfos=" + consumerInfos
 				+ ", loadBalanceStrategy=" + loadBalanceStrategy + "]";
 	}
 
@@ -6,12 +6,12 @@ package org.laopopo.common.protocal;
  * @author BazingaLyn
  * @description 网络传输的协议头信息
  * @time 2016年8月9日
- * @modifytime
+ * @modifytime 2016年10月27日 增加consumer端的统计信息；说明压缩标志是协议头中单独的字节
  */
 public class LaopopoProtocol {
 	
-	/** 协议头长度 */
-    public static final int HEAD_LENGTH = 16;
+	/** 协议头长度 magic(2) + type(1) + sign(1) + id(8) + bodyLength(4) + compress(1) */
+    public static final int HEAD_LENGTH = 17;
 	
 	/** Magic */
     public static final short MAGIC = (short) 0xbabe;
@@ -25,6 +25,9 @@ public class LaopopoProtocol {
     
     public static final byte RPC_REMOTING = 3;
     
+    /** 压缩方式的协商，sign中是发送端能够解压的压缩方式的掩码*/
+    public static final byte COMPRESS_NEGOTIATION = 4;
+    
     public static final byte HANDLER_ERROR = -1;
     
     public static final byte HANDLER_BUSY = -2;
@@ -53,14 +56,25 @@ public class LaopopoProtocol {
   	public static final byte CHANGE_LOADBALANCE = 76;
   	//统计信息
   	public static final byte MERTRICS_SERVICE = 77;
+  	//批量远程调用的请求，一帧中包含多个调用
+  	public static final byte RPC_BATCH_REQUEST = 78;
+  	//批量远程调用的响应，和请求中的调用一一对应
+  	public static final byte RPC_BATCH_RESPONSE = 79;
+  	//consumer端的统计信息，按照服务和提供者的地址统计
+  	public static final byte CONSUMER_MERTRICS_SERVICE = 83;
     //心跳
     public static final byte HEARTBEAT = 127;
     //ACK
     public static final byte ACK = 126;
     
+    //以下是协议头中compress字节的取值，和sign中的消息类型是不同的字段，取值互不影响
+    //snappy压缩
     public static final byte COMPRESS = 80;
     
     public static final byte UNCOMPRESS = 81;
+    
+    //lz4压缩
+    public static final byte COMPRESS_LZ4 = 82;
 
     
     private byte type;
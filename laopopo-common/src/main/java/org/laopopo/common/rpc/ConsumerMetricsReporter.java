@@ -0,0 +1,95 @@
+package org.laopopo.common.rpc;
+
+import java.io.Serializable;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description consumer端的统计报告，一个报告对应consumer调用某个服务的某个提供者的统计
+ * 和provider的统计一样是从consumer启动开始的全量数据，monitor收到之后直接替换
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class ConsumerMetricsReporter implements Serializable {
+
+	private static final long serialVersionUID = 2281649781236402176L;
+
+	private String consumerHost;             //consumer的host，由monitor根据连接填充
+	private String serviceName;              //统计的服务名
+	private String providerHost;             //提供者的host
+	private int providerPort;                //提供者的端口号
+	private Long callCount = 0l;             //调用的次数
+	private Long failCount = 0l;             //失败的次数，不包括超时
+	private Long timeoutCount = 0l;          //超时的次数
+	private int inFlight;                    //上报时正在进行的调用数
+	private long[] latencyBuckets;           //耗时直方图各个桶的计数，见LatencyHistogram
+	private Long maxLatency = 0l;            //最大耗时，单位微秒
+	
+	public String getConsumerHost() {
+		return consumerHost;
+	}
+	public void setConsumerHost(String consumerHost) {
+		this.consumerHost = consumerHost;
+	}
+	public String getServiceName() {
+		return serviceName;
+	}
+	public void setServiceName(String serviceName) {
+		this.serviceName = serviceName;
+	}
+	public String getProviderHost() {
+		return providerHost;
+	}
+	public void setProviderHost(String providerHost) {
+		this.providerHost = providerHost;
+	}
+	public int getProviderPort() {
+		return providerPort;
+	}
+	public void setProviderPort(int providerPort) {
+		this.providerPort = providerPort;
+	}
+	public Long getCallCount() {
+		return callCount;
+	}
+	public void setCallCount(Long callCount) {
+		this.callCount = callCount;
+	}
+	public Long getFailCount() {
+		return failCount;
+	}
+	public void setFailCount(Long failCount) {
+		this.failCount = failCount;
+	}
+	public Long getTimeoutCount() {
+		return timeoutCount;
+	}
+	public void setTimeoutCount(Long timeoutCount) {
+		this.timeoutCount = timeoutCount;
+	}
+	public int getInFlight() {
+		return inFlight;
+	}
+	public void setInFlight(int inFlight) {
+		this.inFlight = inFlight;
+	}
+	public long[] getLatencyBuckets() {
+		return latencyBuckets;
+	}
+	public void setLatencyBuckets(long[] latencyBuckets) {
+		this.latencyBuckets = latencyBuckets;
+	}
+	public Long getMaxLatency() {
+		return maxLatency;
+	}
+	public void setMaxLatency(Long maxLatency) {
+		this.maxLatency = maxLatency;
+	}
+	@Override
+	public String toString() {
+		return "ConsumerMetricsReporter [consumerHost=" + consumerHost + ", serviceName=" + serviceName + ", providerHost=" + providerHost + ", providerPort="
+				+ providerPort + ", callCount=" + callCount + ", failCount=" + failCount + ", timeoutCount=" + timeoutCount + ", inFlight=" + inFlight
+				+ ", maxLatency=" + maxLatency + "]";
+	}
+	
+}
@@ -8,7 +8,7 @@ import java.io.Serializable;
  * @author BazingaLyn
  * @description 统计报告
  * @time 2016年8月30日
- * @modifytime
+ * @modifytime 2016年10月27日 增加耗时直方图的桶计数和最大耗时
  */
 public class MetricsReporter implements Serializable {
 
@@ -24,6 +24,12 @@ public class MetricsReporter implements Serializable {
 	private Long failCount = 0l;             //失败的次数
 	private Long requestSize = 0l;           //请求的大小
 	private Long totalReuqestTime = 0l;      //总请求的时间
+	private Long rejectCount = 0l;           //服务线程池饱和被拒绝的次数
+	private int queueDepth;                  //服务线程池当前排队的请求数
+	private Long expireCount = 0l;           //执行之前已经超时被丢弃的次数
+	private Long arrivedExpireCount = 0l;    //到达provider的时候已经没有时间预算的次数
+	private long[] latencyBuckets;           //耗时直方图各个桶的计数，见LatencyHistogram
+	private Long maxLatency = 0l;            //最大耗时，单位微秒
 	
 	
 	public String getServiceName() {
@@ -68,10 +74,46 @@ public class MetricsReporter implements Serializable {
 	public void setTotalReuqestTime(Long totalReuqestTime) {
 		this.totalReuqestTime = totalReuqestTime;
 	}
+	public Long getRejectCount() {
+		return rejectCount;
+	}
+	public void setRejectCount(Long rejectCount) {
+		this.rejectCount = rejectCount;
+	}
+	public Long getExpireCount() {
+		return expireCount;
+	}
+	public void setExpireCount(Long expireCount) {
+		this.expireCount = expireCount;
+	}
+	public Long getArrivedExpireCount() {
+		return arrivedExpireCount;
+	}
+	public void setArrivedExpireCount(Long arrivedExpireCount) {
+		this.arrivedExpireCount = arrivedExpireCount;
+	}
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+	public void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+	public long[] getLatencyBuckets() {
+		return latencyBuckets;
+	}
+	public void setLatencyBuckets(long[] latencyBuckets) {
+		this.latencyBuckets = latencyBuckets;
+	}
+	public Long getMaxLatency() {
+		return maxLatency;
+	}
+	public void setMaxLatency(Long maxLatency) {
+		this.maxLatency = maxLatency;
+	}
 	@Override
 	public String toString() {
 		return "MetricsReporter [host=" + host + ", port=" + port + ", serviceName=" + serviceName + ", callCount=" + callCount + ", failCount=" + failCount
-				+ ", requestSize=" + requestSize + ", totalReuqestTime=" + totalReuqestTime + "]";
+				+ ", requestSize=" + requestSize + ", totalReuqestTime=" + totalReuqestTime + ", rejectCount=" + rejectCount + ", queueDepth=" + queueDepth + ", expireCount=" + expireCount + ", arrivedExpireCount=" + arrivedExpireCount + ", maxLatency=" + maxLatency + "]";
 	}
 	
 }
@@ -1,11 +1,15 @@
 package org.laopopo.common.serialization;
 
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
 /**
  * 
  * @author BazingaLyn
  * @description 序列化接口
  * @time 2016年8月12日
- * @modifytime
+ * @modifytime 2016年10月22日 增加从ByteBuffer直接反序列化的方法，以及直接序列化到ByteBuf的方法
  */
 public interface Serializer {
 
@@ -16,6 +20,13 @@ public interface Serializer {
 	 */
     <T> byte[] writeObject(T obj);
 
+    /**
+     * 将对象直接序列化到ByteBuf的writerIndex之后，不产生中间的byte[]
+     * @param out
+     * @param obj
+     */
+    <T> void writeObject(ByteBuf out, T obj);
+
     /**
      * 将byte数组反序列成对象
      * @param bytes
@@ -23,4 +34,13 @@ public interface Serializer {
      * @return
      */
     <T> T readObject(byte[] bytes, Class<T> clazz);
+
+    /**
+     * 从ByteBuffer的position到limit之间的数据反序列成对象，不会修改buffer的position
+     * heap的buffer直接在底层数组上反序列化，不会再拷贝一份byte[]
+     * @param buffer
+     * @param clazz
+     * @return
+     */
+    <T> T readObject(ByteBuffer buffer, Class<T> clazz);
 }
@@ -1,10 +1,17 @@
 package org.laopopo.common.serialization.fastjson;
 
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+
 import org.laopopo.common.serialization.Serializer;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeWriter;
 import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.alibaba.fastjson.util.ThreadLocalCache;
 
 /**
  * 
@@ -12,7 +19,7 @@ import com.alibaba.fastjson.serializer.SerializerFeature;
  * @description 使用fastjson序列化
  * 需要有无参构造函数
  * @time 2016年8月12日
- * @modifytime
+ * @modifytime 2016年10月22日 支持从ByteBuffer反序列化，支持直接序列化到ByteBuf
  */
 public class FastjsonSerializer implements Serializer {
 
@@ -21,9 +28,35 @@ public class FastjsonSerializer implements Serializer {
 		return JSON.toJSONBytes(obj, SerializerFeature.SortField);
 	}
 
+	@Override
+	public <T> void writeObject(ByteBuf out, T obj) {
+		//SerializeWriter的字符缓冲区满了之后交给Utf8ByteBufWriter，直接编码成UTF-8写入ByteBuf
+		SerializeWriter writer = new SerializeWriter(new Utf8ByteBufWriter(out));
+		try {
+			JSONSerializer serializer = new JSONSerializer(writer);
+			serializer.config(SerializerFeature.SortField, true);
+			serializer.write(obj);
+			writer.flush();
+		} finally {
+			writer.close();
+		}
+	}
+
 	@Override
 	public <T> T readObject(byte[] bytes, Class<T> clazz) {
 		return JSON.parseObject(bytes, clazz, Feature.SortFeidFastMatch);
 	}
 
+	@Override
+	public <T> T readObject(ByteBuffer buffer, Class<T> clazz) {
+		if (buffer.hasArray()) {
+			return JSON.parseObject(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), ThreadLocalCache.getUTF8Decoder(), clazz,
+					Feature.SortFeidFastMatch);
+		}
+		//fastjson不支持直接读取堆外内存，只能拷贝出来
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return readObject(bytes, clazz);
+	}
+
 }
@@ -0,0 +1,76 @@
+package org.laopopo.common.serialization.fastjson;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.Writer;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 将字符直接以UTF-8编码写入ByteBuf的Writer，不产生中间的byte[]
+ * 字符是分批写入的，代理对的高位和低位有可能被分到两批中，所以高位需要暂存
+ * @time 2016年10月22日
+ * @modifytime
+ */
+class Utf8ByteBufWriter extends Writer {
+
+	private static final byte REPLACEMENT = (byte) '?';
+
+	private final ByteBuf out;
+
+	//暂存的代理对高位，0表示没有
+	private char highSurrogate;
+
+	Utf8ByteBufWriter(ByteBuf out) {
+		this.out = out;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		out.ensureWritable(len * 3 + 1);
+		int end = off + len;
+		for (int i = off; i < end; i++) {
+			char c = cbuf[i];
+			if (highSurrogate != 0) {
+				char high = highSurrogate;
+				highSurrogate = 0;
+				if (Character.isLowSurrogate(c)) {
+					int codePoint = Character.toCodePoint(high, c);
+					out.writeByte(0xf0 | (codePoint >> 18));
+					out.writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+					out.writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+					out.writeByte(0x80 | (codePoint & 0x3f));
+					continue;
+				}
+				out.writeByte(REPLACEMENT);
+			}
+			if (c < 0x80) {
+				out.writeByte(c);
+			} else if (c < 0x800) {
+				out.writeByte(0xc0 | (c >> 6));
+				out.writeByte(0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c)) {
+				highSurrogate = c;
+			} else if (Character.isLowSurrogate(c)) {
+				out.writeByte(REPLACEMENT);
+			} else {
+				out.writeByte(0xe0 | (c >> 12));
+				out.writeByte(0x80 | ((c >> 6) & 0x3f));
+				out.writeByte(0x80 | (c & 0x3f));
+			}
+		}
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+		if (highSurrogate != 0) {
+			highSurrogate = 0;
+			out.writeByte(REPLACEMENT);
+		}
+	}
+
+}
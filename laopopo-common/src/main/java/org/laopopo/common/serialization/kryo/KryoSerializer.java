@@ -1,8 +1,14 @@
 package org.laopopo.common.serialization.kryo;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.laopopo.common.serialization.Serializer;
 
@@ -17,7 +23,7 @@ import com.esotericsoftware.kryo.serializers.JavaSerializer;
  * @description 使用Kryo序列化
  * 需要实现java.io.Serializable接口
  * @time 2016年8月12日
- * @modifytime
+ * @modifytime 2016年10月22日 支持从ByteBuffer反序列化，支持直接序列化到ByteBuf
  */
 public class KryoSerializer implements Serializer {
 
@@ -43,6 +49,18 @@ public class KryoSerializer implements Serializer {
 		return b;
 	}
 
+	@Override
+	public <T> void writeObject(ByteBuf out, T obj) {
+		Kryo kryo = new Kryo();
+		kryo.setReferences(false);
+		kryo.register(obj.getClass(), new JavaSerializer());
+
+		//Output只是一个中转的缓冲区，满了之后写入ByteBuf
+		Output output = new Output(new ByteBufOutputStream(out), 512);
+		kryo.writeClassAndObject(output, obj);
+		output.flush();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T readObject(byte[] bytes, Class<T> clazz) {
@@ -55,4 +73,20 @@ public class KryoSerializer implements Serializer {
 		return (T) kryo.readClassAndObject(input);
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T readObject(ByteBuffer buffer, Class<T> clazz) {
+		Kryo kryo = new Kryo();
+		kryo.setReferences(false);
+		kryo.register(clazz, new JavaSerializer());
+
+		Input input;
+		if (buffer.hasArray()) {
+			input = new Input(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			input = new Input(new ByteBufInputStream(Unpooled.wrappedBuffer(buffer)));
+		}
+		return (T) kryo.readClassAndObject(input);
+	}
+
 }
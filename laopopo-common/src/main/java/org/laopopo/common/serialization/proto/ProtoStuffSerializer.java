@@ -1,10 +1,14 @@
 package org.laopopo.common.serialization.proto;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.protostuff.ByteBufferInput;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
 import io.protostuff.runtime.RuntimeSchema;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -18,13 +22,22 @@ import org.objenesis.ObjenesisStd;
  * @description 使用protoStuff序列化 
  * 序列化的对象不需要实现java.io.Serializable 也不需要有默认的构造函数
  * @time 2016年8月12日
- * @modifytime
+ * @modifytime 2016年10月22日 支持从ByteBuffer反序列化，支持直接序列化到ByteBuf
  */
 public class ProtoStuffSerializer implements Serializer {
 	
 	private static Map<Class<?>, Schema<?>> cachedSchema = new ConcurrentHashMap<Class<?>, Schema<?>>();
 	
 	private static Objenesis objenesis = new ObjenesisStd(true);
+	
+	//直接序列化到ByteBuf的时候，LinkedBuffer只是一个中转的缓冲区，每个线程复用一个
+	private static final ThreadLocal<LinkedBuffer> bufferThreadLocal = new ThreadLocal<LinkedBuffer>() {
+
+		@Override
+		protected LinkedBuffer initialValue() {
+			return LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+		}
+	};
 
 	@SuppressWarnings("unchecked")
 	public <T> byte[] writeObject(T obj) {
@@ -41,6 +54,21 @@ public class ProtoStuffSerializer implements Serializer {
         }
 	}
 
+	@SuppressWarnings("unchecked")
+	public <T> void writeObject(ByteBuf out, T obj) {
+		
+		Class<T> cls = (Class<T>) obj.getClass();
+		LinkedBuffer buffer = bufferThreadLocal.get();
+		try {
+			Schema<T> schema = getSchema(cls);
+			ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), obj, schema, buffer);
+		} catch (Exception e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		} finally {
+			buffer.clear();
+		}
+	}
+
 	public <T> T readObject(byte[] bytes, Class<T> clazz) {
 		try {
             T message = objenesis.newInstance(clazz);
@@ -52,6 +80,23 @@ public class ProtoStuffSerializer implements Serializer {
         }
 	}
 	
+	public <T> T readObject(ByteBuffer buffer, Class<T> clazz) {
+		try {
+			T message = objenesis.newInstance(clazz);
+			Schema<T> schema = getSchema(clazz);
+			if (buffer.hasArray()) {
+				ProtostuffIOUtil.mergeFrom(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), message, schema);
+			} else {
+				ByteBufferInput input = new ByteBufferInput(buffer.slice(), true);
+				schema.mergeFrom(input, message);
+				input.checkLastTagWas(0);
+			}
+			return message;
+		} catch (Exception e) {
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+	}
+	
 	 @SuppressWarnings("unchecked")
 	    private static <T> Schema<T> getSchema(Class<T> cls) {
 	        Schema<T> schema = (Schema<T>) cachedSchema.get(cls);
@@ -0,0 +1,46 @@
+package org.laopopo.common.transport.body;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.laopopo.common.exception.remoting.RemotingCommmonCustomException;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 批量远程调用的参数，一次发送给同一个provider的多个调用，共用一个协议头和一次序列化
+ * @time 2016年10月25日
+ * @modifytime
+ */
+public class BatchRequestCustomBody implements CommonCustomBody {
+
+	private List<RequestCustomBody> requests;  //批量中的每一个调用
+
+	public BatchRequestCustomBody() {
+	}
+
+	public BatchRequestCustomBody(int size) {
+		this.requests = new ArrayList<RequestCustomBody>(size);
+	}
+
+	public void add(RequestCustomBody request) {
+		requests.add(request);
+	}
+
+	public int size() {
+		return requests == null ? 0 : requests.size();
+	}
+
+	public List<RequestCustomBody> getRequests() {
+		return requests;
+	}
+
+	public void setRequests(List<RequestCustomBody> requests) {
+		this.requests = requests;
+	}
+
+	@Override
+	public void checkFields() throws RemotingCommmonCustomException {
+	}
+
+}
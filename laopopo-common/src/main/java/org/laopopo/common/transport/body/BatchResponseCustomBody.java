@@ -0,0 +1,46 @@
+package org.laopopo.common.transport.body;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.laopopo.common.exception.remoting.RemotingCommmonCustomException;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 批量远程调用的响应，responses和{@link BatchRequestCustomBody#getRequests()}按照顺序一一对应
+ * @time 2016年10月25日
+ * @modifytime
+ */
+public class BatchResponseCustomBody implements CommonCustomBody {
+
+	private List<ResponseCustomBody> responses;  //每一个调用的响应
+
+	public BatchResponseCustomBody() {
+	}
+
+	public BatchResponseCustomBody(int size) {
+		this.responses = new ArrayList<ResponseCustomBody>(size);
+	}
+
+	public void add(ResponseCustomBody response) {
+		responses.add(response);
+	}
+
+	public int size() {
+		return responses == null ? 0 : responses.size();
+	}
+
+	public List<ResponseCustomBody> getResponses() {
+		return responses;
+	}
+
+	public void setResponses(List<ResponseCustomBody> responses) {
+		this.responses = responses;
+	}
+
+	@Override
+	public void checkFields() throws RemotingCommmonCustomException {
+	}
+
+}
@@ -0,0 +1,31 @@
+package org.laopopo.common.transport.body;
+
+import java.util.List;
+
+import org.laopopo.common.exception.remoting.RemotingCommmonCustomException;
+import org.laopopo.common.rpc.ConsumerMetricsReporter;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description consumer发送给监控中心的统计信息
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class ConsumerMetricsCustomBody implements CommonCustomBody {
+	
+	private List<ConsumerMetricsReporter> metricsReporter;
+
+	@Override
+	public void checkFields() throws RemotingCommmonCustomException {
+	}
+
+	public List<ConsumerMetricsReporter> getMetricsReporter() {
+		return metricsReporter;
+	}
+
+	public void setMetricsReporter(List<ConsumerMetricsReporter> metricsReporter) {
+		this.metricsReporter = metricsReporter;
+	}
+
+}
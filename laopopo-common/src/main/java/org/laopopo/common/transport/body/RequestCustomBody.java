@@ -9,7 +9,7 @@ import org.laopopo.common.exception.remoting.RemotingCommmonCustomException;
  * @author BazingaLyn
  * @description 远程调用的参数
  * @time 2016年8月19日
- * @modifytime
+ * @modifytime 2016年10月26日 增加调用剩余的时间预算
  */
 public class RequestCustomBody implements CommonCustomBody {
 
@@ -19,6 +19,7 @@ public class RequestCustomBody implements CommonCustomBody {
 	private String serviceName;  //调用的服务名
 	private Object[] args;       //调用服务的参数
 	private long timestamp;      //调用的时间
+	private long timeoutMillis;  //调用剩余的时间预算，0表示没有告知，provider以请求到达的时间加上预算作为截止时间，丢弃已经超时的调用并传递给嵌套调用
 
 	public RequestCustomBody() {
 		this(invokeIdGenerator.getAndIncrement());
@@ -54,6 +55,14 @@ public class RequestCustomBody implements CommonCustomBody {
 		this.timestamp = timestamp;
 	}
 
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
 	public long getInvokeId() {
 		return invokeId;
 	}
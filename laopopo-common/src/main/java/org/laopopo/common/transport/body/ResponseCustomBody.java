@@ -11,7 +11,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description
  * @time 2016年8月20日
- * @modifytime 2016年9月20日
+ * @modifytime 2016年10月27日 没有结果包装的响应体取结果的时候不再抛出空指针
  */
 public class ResponseCustomBody implements CommonCustomBody {
 	
@@ -70,10 +70,11 @@ public class ResponseCustomBody implements CommonCustomBody {
 
 	public Object getResult() {
 		
+		ResultWrapper wrapper = getResultWrapper();
 		if(status == OK.value()){
-			return getResultWrapper().getResult();
+			return null == wrapper ? null : wrapper.getResult();
 		}else{
-			logger.warn("get result occor exception [{}]",getResultWrapper().getError());
+			logger.warn("get result occor exception, status [{}] error [{}]", status, null == wrapper ? null : wrapper.getError());
 			return null;
 		}
 	}
@@ -12,6 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import net.sf.cglib.reflect.FastClass;
+import net.sf.cglib.reflect.FastMethod;
 
 import org.objenesis.Objenesis;
 import org.objenesis.ObjenesisStd;
@@ -21,7 +22,7 @@ import org.objenesis.ObjenesisStd;
  * @author BazingaLyn
  * @description 反射工具
  * @time
- * @modifytime
+ * @modifytime 2016年10月27日 增加预先解析好下标的FastMethod调用；fastInvoke抛出方法本身的异常，不再包装成InvocationTargetException
  */
 public final class Reflects {
 
@@ -127,6 +128,7 @@ public final class Reflects {
 
     /**
      * Invokes the underlying method, fast invoke using cglib's FastClass.
+     * An exception thrown by the underlying method is rethrown as is, not wrapped in {@link InvocationTargetException}.
      *
      * @param obj            the object the underlying method is invoked from
      * @param methodName     the method name this object
@@ -135,7 +137,55 @@ public final class Reflects {
      * @return the result of dispatching the method represented by this object on {@code obj} with parameters
      */
     public static Object fastInvoke(Object obj, String methodName, Class<?>[] parameterTypes, Object[] args) {
-        Class<?> clazz = obj.getClass();
+        FastClass fastClass = fastClass(obj.getClass());
+
+        Object value = null;
+        try {
+            value = fastClass.invoke(methodName, parameterTypes, obj, args);
+        } catch (InvocationTargetException e) {
+            JUnsafe.throwException(e.getTargetException());
+        }
+        return value;
+    }
+
+    /**
+     * Resolves the cglib {@link FastMethod} once, so that later calls dispatch by index
+     * instead of looking up the method by name and parameter types every time.
+     *
+     * @param clazz          the class the method is invoked on
+     * @param methodName     the method name
+     * @param parameterTypes the parameter types for the method
+     * @return the {@code FastMethod}, or {@code null} if there is no such public method
+     */
+    public static FastMethod fastMethod(Class<?> clazz, String methodName, Class<?>[] parameterTypes) {
+        Method method;
+        try {
+            method = clazz.getMethod(methodName, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        return fastClass(clazz).getMethod(method);
+    }
+
+    /**
+     * Invokes the method resolved by {@link #fastMethod}, unwrapping exceptions like {@link #fastInvoke(Object, String, Class[], Object[])}.
+     *
+     * @param fastMethod the resolved method
+     * @param obj        the object the underlying method is invoked from
+     * @param args       the arguments used for the method call
+     * @return the result of dispatching the method on {@code obj} with parameters
+     */
+    public static Object fastInvoke(FastMethod fastMethod, Object obj, Object[] args) {
+        Object value = null;
+        try {
+            value = fastMethod.invoke(obj, args);
+        } catch (InvocationTargetException e) {
+            JUnsafe.throwException(e.getTargetException());
+        }
+        return value;
+    }
+
+    private static FastClass fastClass(Class<?> clazz) {
         FastClass fastClass = fastClassCache.get(clazz);
         if (fastClass == null) {
             FastClass newFastClass = FastClass.create(clazz);
@@ -144,15 +194,7 @@ public final class Reflects {
                 fastClass = newFastClass;
             }
         }
-
-        Object value = null;
-        try {
-            value = fastClass.invoke(methodName, parameterTypes, obj, args);
-        } catch (InvocationTargetException e) {
-            JUnsafe.throwException(e);
-            
-        }
-        return value;
+        return fastClass;
     }
 
     /**
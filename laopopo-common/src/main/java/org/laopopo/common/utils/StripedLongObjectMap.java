@@ -0,0 +1,87 @@
+package org.laopopo.common.utils;
+
+import io.netty.util.collection.LongObjectHashMap;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description key为long的并发Map，用于请求Id和请求结果的对应
+ * 1)key不需要装箱成Long，也不需要为每个元素创建Node对象，底层是netty的开放寻址的{@link LongObjectHashMap}
+ * 2)按照key分成多个段，每个段一把锁，请求Id是自增的，所以连续的请求会被均匀地分到不同的段上
+ * @time 2016年10月21日
+ * @modifytime
+ */
+public class StripedLongObjectMap<V> {
+
+	private static final int DEFAULT_STRIPES = nextPowerOfTwo(Math.max(16, Runtime.getRuntime().availableProcessors() << 2));
+
+	private final LongObjectHashMap<V>[] stripes;
+	private final int mask;
+
+	public StripedLongObjectMap() {
+		this(DEFAULT_STRIPES, 256);
+	}
+
+	/**
+	 * @param concurrencyLevel 段的个数，会被调整为2的幂
+	 * @param initialCapacity 总的初始容量
+	 */
+	@SuppressWarnings("unchecked")
+	public StripedLongObjectMap(int concurrencyLevel, int initialCapacity) {
+		int size = nextPowerOfTwo(Math.max(1, concurrencyLevel));
+		int stripeCapacity = Math.max(8, initialCapacity / size);
+		stripes = new LongObjectHashMap[size];
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new LongObjectHashMap<V>(stripeCapacity);
+		}
+		mask = size - 1;
+	}
+
+	public V put(long key, V value) {
+		LongObjectHashMap<V> stripe = stripeFor(key);
+		synchronized (stripe) {
+			return stripe.put(key, value);
+		}
+	}
+
+	public V get(long key) {
+		LongObjectHashMap<V> stripe = stripeFor(key);
+		synchronized (stripe) {
+			return stripe.get(key);
+		}
+	}
+
+	public V remove(long key) {
+		LongObjectHashMap<V> stripe = stripeFor(key);
+		synchronized (stripe) {
+			return stripe.remove(key);
+		}
+	}
+
+	/**
+	 * 各个段的元素个数之和，并发修改的情况下只是一个近似值
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+		for (LongObjectHashMap<V> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	private LongObjectHashMap<V> stripeFor(long key) {
+		return stripes[(int) (key ^ (key >>> 32)) & mask];
+	}
+
+	private static int nextPowerOfTwo(int value) {
+		int n = 1;
+		while (n < value) {
+			n <<= 1;
+		}
+		return n;
+	}
+
+}
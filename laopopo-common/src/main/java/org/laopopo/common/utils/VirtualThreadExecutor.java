@@ -0,0 +1,108 @@
+package org.laopopo.common.utils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 每个任务一个虚拟线程的执行器，同时执行的任务数超过上限的时候抛出{@link RejectedExecutionException}
+ * 虚拟线程通过反射创建，项目本身仍然以JDK7编译，运行的JDK不支持虚拟线程的时候{@link #create(String, int)}返回null
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+	private static final Logger logger = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+	private final ExecutorService delegate;
+	private final Semaphore permits;
+
+	private VirtualThreadExecutor(ExecutorService delegate, int maxConcurrency) {
+		this.delegate = delegate;
+		this.permits = new Semaphore(maxConcurrency);
+	}
+
+	/**
+	 * 创建虚拟线程的执行器
+	 * @param prefix 虚拟线程的名字前缀
+	 * @param maxConcurrency 同时执行的最大任务数
+	 * @return 当前JDK不支持虚拟线程的时候返回null
+	 */
+	public static ExecutorService create(String prefix, int maxConcurrency) {
+		try {
+			//Thread.ofVirtual().name(prefix, 0).factory()
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			//Executors.newThreadPerTaskExecutor(threadFactory)
+			Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			ExecutorService delegate = (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+			return new VirtualThreadExecutor(delegate, Math.max(maxConcurrency, 1));
+		} catch (Throwable t) {
+			//JDK21之前没有这些方法，JDK19/20没有开启--enable-preview的时候抛出UnsupportedOperationException
+			logger.info("virtual thread is not supported by current jdk [{}]", System.getProperty("java.version"));
+			return null;
+		}
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+		if (!permits.tryAcquire()) {
+			throw new RejectedExecutionException("virtual thread executor reached max concurrency");
+		}
+		try {
+			delegate.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						command.run();
+					} finally {
+						permits.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+
+}
@@ -9,6 +9,7 @@ import org.laopopo.client.consumer.ConsumerConfig;
 import org.laopopo.client.consumer.proxy.ProxyFactory;
 import org.laopopo.example.generic.test_2.HelloService;
 import org.laopopo.remoting.netty.NettyClientConfig;
+import org.laopopo.remoting.netty.PipelineModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +33,8 @@ public class BenchmarkClient {
 		registryNettyClientConfig.setDefaultAddress("127.0.0.1:18010");
 
 		NettyClientConfig provideClientConfig = new NettyClientConfig();
+		//-Dlaopopo.pipeline.model=EXECUTOR_GROUP|EVENT_LOOP|IO_THREAD
+		provideClientConfig.setPipelineModel(PipelineModel.valueOf(System.getProperty("laopopo.pipeline.model", PipelineModel.EVENT_LOOP.name())));
 
 		ConsumerClient client = new ConsumerClient(registryNettyClientConfig, provideClientConfig, new ConsumerConfig());
 
@@ -5,6 +5,7 @@ import org.laopopo.common.exception.remoting.RemotingException;
 import org.laopopo.example.demo.service.HelloServiceBenchmark;
 import org.laopopo.remoting.netty.NettyClientConfig;
 import org.laopopo.remoting.netty.NettyServerConfig;
+import org.laopopo.remoting.netty.PipelineModel;
 
 /**
  * 
@@ -17,7 +18,11 @@ public class BenchmarkProviderTest {
 
 	public static void main(String[] args) throws InterruptedException, RemotingException {
 
-		DefaultProvider defaultProvider = new DefaultProvider(new NettyClientConfig(), new NettyServerConfig());
+		NettyServerConfig nettyServerConfig = new NettyServerConfig();
+		//-Dlaopopo.pipeline.model=EXECUTOR_GROUP|EVENT_LOOP|IO_THREAD
+		nettyServerConfig.setPipelineModel(PipelineModel.valueOf(System.getProperty("laopopo.pipeline.model", PipelineModel.EVENT_LOOP.name())));
+
+		DefaultProvider defaultProvider = new DefaultProvider(new NettyClientConfig(), nettyServerConfig);
 
 		defaultProvider.registryAddress("127.0.0.1:18010") // 注册中心的地址
 				.serviceListenPort(8899) // 暴露服务的地址
@@ -0,0 +1,85 @@
+package org.laopopo.example.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.util.Random;
+
+import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.transport.body.RequestCustomBody;
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.compress.CompressContext;
+import org.laopopo.remoting.netty.compress.CompressPolicy;
+import org.laopopo.remoting.netty.compress.CompressType;
+import org.laopopo.remoting.netty.decode.RemotingTransporterDecoder;
+import org.laopopo.remoting.netty.encode.RemotingTransporterEncoder;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比不压缩、snappy和lz4三种方式下，100k左右的请求编码之后的帧大小以及编码+解码的耗时
+ * 参数是由有限的单词随机拼成的文本，和一般业务数据的压缩比接近
+ * @time 2016年10月24日
+ * @modifytime
+ */
+public class CompressBenchmark {
+
+	private static final int WARMUP = 2000;
+	private static final int REQUESTS = 10000;
+	private static final String[] WORDS = { "laopopo", "rpc", "provider", "consumer", "registry", "monitor", "netty", "service", "hello", "world" };
+
+	public static void main(String[] args) {
+
+		RequestCustomBody body = new RequestCustomBody();
+		body.setServiceName("LAOPOPO.TEST.SAYHELLO");
+		body.setArgs(new Object[] { text(100 * 1024) });
+		body.setTimestamp(System.currentTimeMillis());
+
+		for (CompressType compressType : CompressType.values()) {
+			run(compressType, body, WARMUP);
+		}
+		for (CompressType compressType : CompressType.values()) {
+			long start = System.currentTimeMillis();
+			int frameSize = run(compressType, body, REQUESTS);
+			long cost = System.currentTimeMillis() - start;
+			System.out.println(compressType + " frame size: " + frameSize + " bytes, encode + decode " + REQUESTS + " requests: " + cost + " ms");
+		}
+	}
+
+	private static int run(CompressType compressType, RequestCustomBody body, int requests) {
+		CompressPolicy policy = new CompressPolicy();
+		policy.setCompressType(compressType);
+
+		EmbeddedChannel encodeChannel = new EmbeddedChannel(new RemotingTransporterEncoder(policy));
+		CompressContext context = new CompressContext();
+		context.setPeerMask(CompressType.supportedMask());
+		encodeChannel.attr(CompressContext.KEY).set(context);
+		EmbeddedChannel decodeChannel = new EmbeddedChannel(new RemotingTransporterDecoder());
+
+		int frameSize = 0;
+		for (int i = 0; i < requests; i++) {
+			encodeChannel.writeOutbound(RemotingTransporter.createRequestTransporter(LaopopoProtocol.RPC_REQUEST, body));
+			ByteBuf frame = (ByteBuf) encodeChannel.readOutbound();
+			frameSize = frame.readableBytes();
+			decodeChannel.writeInbound(frame);
+			RemotingTransporter transporter = (RemotingTransporter) decodeChannel.readInbound();
+			RequestCustomBody decoded = transporter.readBody(RequestCustomBody.class);
+			if (!body.getServiceName().equals(decoded.getServiceName())) {
+				throw new IllegalStateException("decoded body is not equal to the origin body");
+			}
+		}
+		encodeChannel.finish();
+		decodeChannel.finish();
+		return frameSize;
+	}
+
+	private static String text(int length) {
+		Random random = new Random(0);
+		StringBuilder builder = new StringBuilder(length + 16);
+		while (builder.length() < length) {
+			builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ').append(random.nextInt(1000)).append(' ');
+		}
+		return builder.toString();
+	}
+
+}
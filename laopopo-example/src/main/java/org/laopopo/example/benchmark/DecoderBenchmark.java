@@ -0,0 +1,142 @@
+package org.laopopo.example.benchmark;
+
+import static org.laopopo.common.protocal.LaopopoProtocol.MAGIC;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ReplayingDecoder;
+
+import java.util.List;
+
+import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.decode.RemotingTransporterDecoder;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比基于ReplayingDecoder的旧解码器和基于ByteToMessageDecoder的RemotingTransporterDecoder
+ * 把连续的帧按照8k一块切开喂给解码器，模拟TCP一次读事件读到的数据：
+ * 1)100B的小帧，一次读事件中有多个帧
+ * 2)1MB的大帧，一个帧被拆成很多次读事件
+ * @time 2016年10月23日
+ * @modifytime
+ */
+public class DecoderBenchmark {
+
+	private static final int READ_SIZE = 8 * 1024;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+
+		benchmark(100, 200000);
+		benchmark(1024 * 1024, 200);
+	}
+
+	private static void benchmark(int bodySize, int frames) {
+		ByteBuf stream = frames(bodySize, frames);
+
+		//预热
+		run(new ReplayingTransporterDecoder(), stream, frames);
+		run(new RemotingTransporterDecoder(), stream, frames);
+
+		long replaying = 0;
+		long byteToMessage = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			replaying += run(new ReplayingTransporterDecoder(), stream, frames);
+			byteToMessage += run(new RemotingTransporterDecoder(), stream, frames);
+		}
+		System.out.println("body size: " + bodySize + " bytes, frames: " + frames + ", read size: " + READ_SIZE);
+		System.out.println("    ReplayingDecoder     : " + replaying / ROUNDS + " ms");
+		System.out.println("    ByteToMessageDecoder : " + byteToMessage / ROUNDS + " ms");
+		stream.release();
+	}
+
+	private static ByteBuf frames(int bodySize, int frames) {
+		ByteBuf stream = Unpooled.buffer((bodySize + 17) * frames);
+		byte[] body = new byte[bodySize];
+		for (int i = 0; i < frames; i++) {
+			stream.writeShort(MAGIC)
+				  .writeByte(LaopopoProtocol.REQUEST_REMOTING)
+				  .writeByte(LaopopoProtocol.RPC_REQUEST)
+				  .writeLong(i)
+				  .writeInt(bodySize)
+				  .writeByte(LaopopoProtocol.UNCOMPRESS)
+				  .writeBytes(body);
+		}
+		return stream;
+	}
+
+	private static long run(ChannelHandler decoder, ByteBuf stream, int frames) {
+		EmbeddedChannel channel = new EmbeddedChannel(decoder);
+		long start = System.currentTimeMillis();
+		int decoded = 0;
+		for (int index = stream.readerIndex(); index < stream.writerIndex(); index += READ_SIZE) {
+			int length = Math.min(READ_SIZE, stream.writerIndex() - index);
+			ByteBuf read = PooledByteBufAllocator.DEFAULT.heapBuffer(length);
+			read.writeBytes(stream, index, length);
+			channel.writeInbound(read);
+			while (channel.readInbound() != null) {
+				decoded++;
+			}
+		}
+		long cost = System.currentTimeMillis() - start;
+		channel.finish();
+		if (decoded != frames) {
+			throw new IllegalStateException("decoded " + decoded + " frames, expect " + frames);
+		}
+		return cost;
+	}
+
+	/**
+	 * 换成ByteToMessageDecoder之前的解码器，保留下来作为对比
+	 */
+	static class ReplayingTransporterDecoder extends ReplayingDecoder<ReplayingTransporterDecoder.State> {
+
+		private final LaopopoProtocol header = new LaopopoProtocol();
+
+		ReplayingTransporterDecoder() {
+			super(State.HEADER_MAGIC);
+		}
+
+		@Override
+		protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+			switch (state()) {
+			case HEADER_MAGIC:
+				in.readShort();
+				checkpoint(State.HEADER_TYPE);
+			case HEADER_TYPE:
+				header.type(in.readByte());
+				checkpoint(State.HEADER_SIGN);
+			case HEADER_SIGN:
+				header.sign(in.readByte());
+				checkpoint(State.HEADER_ID);
+			case HEADER_ID:
+				header.id(in.readLong());
+				checkpoint(State.HEADER_BODY_LENGTH);
+			case HEADER_BODY_LENGTH:
+				header.bodyLength(in.readInt());
+				checkpoint(State.HEADER_COMPRESS);
+			case HEADER_COMPRESS:
+				header.setCompress(in.readByte());
+				checkpoint(State.BODY);
+			case BODY:
+				byte[] bytes = new byte[header.bodyLength()];
+				in.readBytes(bytes);
+				out.add(RemotingTransporter.newInstance(header.id(), header.sign(), header.type(), bytes));
+				break;
+			default:
+				break;
+			}
+			checkpoint(State.HEADER_MAGIC);
+		}
+
+		enum State {
+			HEADER_MAGIC, HEADER_TYPE, HEADER_SIGN, HEADER_ID, HEADER_BODY_LENGTH, HEADER_COMPRESS, BODY
+		}
+	}
+
+}
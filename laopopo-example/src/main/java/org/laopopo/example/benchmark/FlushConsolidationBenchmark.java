@@ -0,0 +1,130 @@
+package org.laopopo.example.benchmark;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+import org.laopopo.example.netty.TestCommonCustomBody;
+import org.laopopo.example.netty.TestCommonCustomBody.ComplexTestObj;
+import org.laopopo.remoting.model.NettyRequestProcessor;
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.NettyClientConfig;
+import org.laopopo.remoting.netty.NettyRemotingClient;
+import org.laopopo.remoting.netty.NettyRemotingServer;
+import org.laopopo.remoting.netty.NettyServerConfig;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比每次writeAndFlush都flush和合并flush两种方式，64个线程并发invokeSync小请求时的吞吐量、p99延迟和write系统调用次数
+ * 系统调用次数取自/proc/self/io中的syscw，包含了同一个进程中client和server两端，只支持linux
+ * @time 2016年10月25日
+ * @modifytime
+ */
+public class FlushConsolidationBenchmark {
+
+	private static final byte TEST = -1;
+	private static final int THREADS = 64;
+	private static final int REQUESTS_PER_THREAD = 5000;
+
+	public static void main(String[] args) throws Exception {
+
+		run(false, 18101);
+		run(true, 18102);
+		//重连狗和业务线程池都不是守护线程
+		System.exit(0);
+	}
+
+	private static void run(boolean flushConsolidation, int port) throws Exception {
+		NettyServerConfig serverConfig = new NettyServerConfig();
+		serverConfig.setListenPort(port);
+		serverConfig.setFlushConsolidation(flushConsolidation);
+		NettyRemotingServer server = new NettyRemotingServer(serverConfig);
+		server.registerProecessor(TEST, new NettyRequestProcessor() {
+
+			@Override
+			public RemotingTransporter processRequest(ChannelHandlerContext ctx, RemotingTransporter request) throws Exception {
+				request.release();
+				return RemotingTransporter.createResponseTransporter(TEST, newBody(), request.getOpaque());
+			}
+		}, Executors.newFixedThreadPool(16));
+		server.start();
+
+		NettyClientConfig clientConfig = new NettyClientConfig();
+		clientConfig.setFlushConsolidation(flushConsolidation);
+		final NettyRemotingClient client = new NettyRemotingClient(clientConfig);
+		client.start();
+
+		final String address = "127.0.0.1:" + port;
+		//预热，同时建立连接
+		request(client, address, 1, 20000);
+
+		long syscw = syscw();
+		long start = System.currentTimeMillis();
+		long[] latencies = request(client, address, THREADS, REQUESTS_PER_THREAD);
+		long cost = System.currentTimeMillis() - start;
+		long writes = syscw() - syscw;
+
+		Arrays.sort(latencies);
+		System.out.println("flush consolidation: " + flushConsolidation);
+		System.out.println("    qps            : " + latencies.length * 1000L / Math.max(cost, 1));
+		System.out.println("    p99            : " + latencies[(int) (latencies.length * 0.99)] / 1000 + " us");
+		System.out.println("    write syscalls : " + writes + " (" + String.format("%.2f", writes / (double) latencies.length) + " per request)");
+
+		client.shutdown();
+		server.shutdown();
+	}
+
+	private static long[] request(final NettyRemotingClient client, final String address, int threads, final int requests) throws InterruptedException {
+		final long[] latencies = new long[threads * requests];
+		final CountDownLatch latch = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			final int offset = i * requests;
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < requests; j++) {
+							long begin = System.nanoTime();
+							RemotingTransporter response = client.invokeSync(address, RemotingTransporter.createRequestTransporter(TEST, newBody()), 3000);
+							latencies[offset + j] = System.nanoTime() - begin;
+							response.release();
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					} finally {
+						latch.countDown();
+					}
+				}
+			}).start();
+		}
+		latch.await();
+		return latencies;
+	}
+
+	private static TestCommonCustomBody newBody() {
+		return new TestCommonCustomBody(1, "flush", new ComplexTestObj("attr1", 2));
+	}
+
+	private static long syscw() throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader("/proc/self/io"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("syscw:")) {
+					return Long.parseLong(line.substring("syscw:".length()).trim());
+				}
+			}
+			return -1;
+		} finally {
+			reader.close();
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package org.laopopo.example.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.laopopo.client.annotation.RPCService;
+import org.laopopo.client.annotation.RPConsumer;
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.cluster.ClusterStrategy;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.client.provider.DefaultProvider;
+import org.laopopo.common.loadbalance.LoadBalanceStrategy;
+import org.laopopo.common.metrics.LatencyHistogram;
+import org.laopopo.common.metrics.LatencyPercentiles;
+import org.laopopo.common.utils.UnresolvedAddress;
+import org.laopopo.remoting.netty.NettyClientConfig;
+import org.laopopo.remoting.netty.NettyServerConfig;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比FAILFAST和HEDGING(p95对冲)的consumer端耗时分位数和额外的请求数，3个提供者，每次调用有2%的概率耗时50ms(模拟GC停顿)，其他耗时1ms，
+ * 16个线程持续同步调用，耗时在调用方统计，包括对冲的等待时间
+ * 对冲的分位数要落在正常调用的耗时范围内：慢调用占2%的时候用p95，慢调用占5%的时候p95会落在慢调用中，对冲不起作用
+ * extra是提供者执行的次数比调用次数多出来的比例，cancelled是结果确定之后被取消的请求数
+ * consumer端的ChannelGroup和耗时直方图是按照服务名全局缓存的，每种方式需要在单独的JVM中运行，方式通过第一个参数指定，默认FAILFAST
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class HedgingBenchmark {
+
+	private static final String SERVICE_NAME = "LAOPOPO.BENCHMARK.HEDGING";
+	private static final int THREADS = 16;
+	private static final long WARMUP_MILLIS = 3000;
+	private static final long DURATION_MILLIS = 5000;
+	private static final int[] PORTS = { 18631, 18641, 18651 };
+
+	private static final AtomicLong executed = new AtomicLong();
+
+	public interface HedgingService {
+
+		@RPConsumer(serviceName = SERVICE_NAME)
+		String failfast(String str);
+
+		@RPConsumer(serviceName = SERVICE_NAME, cluster = ClusterStrategy.HEDGING, hedgePercentile = 95)
+		String hedging(String str);
+	}
+
+	public static class HedgingServiceImpl implements HedgingService {
+
+		@Override
+		@RPCService(serviceName = SERVICE_NAME, isFlowController = false)
+		public String failfast(String str) {
+			executed.incrementAndGet();
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextInt(100) < 2 ? 50 : 1);
+			} catch (InterruptedException e) {
+			}
+			return str;
+		}
+
+		@Override
+		public String hedging(String str) {
+			return failfast(str);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		final ClusterStrategy cluster = ClusterStrategy.valueOf(args.length > 0 ? args[0] : ClusterStrategy.FAILFAST.name());
+
+		UnresolvedAddress[] addresses = new UnresolvedAddress[PORTS.length];
+		for (int i = 0; i < PORTS.length; i++) {
+			NettyServerConfig serverConfig = new NettyServerConfig();
+			serverConfig.setServerWorkerThreads(32);
+			DefaultProvider provider = new DefaultProvider(new NettyClientConfig(), serverConfig);
+			provider.serviceListenPort(PORTS[i]).publishService(new HedgingServiceImpl()).start();
+			addresses[i] = new UnresolvedAddress("127.0.0.1", PORTS[i]);
+		}
+
+		ConsumerClient client = new ConsumerClient();
+		client.start();
+		final HedgingService service = ProxyFactory.factory(HedgingService.class).consumer(client).addProviderAddress(addresses)
+				.loadBalance(LoadBalanceStrategy.ROUNDROBIN).timeoutMillis(3000l).newProxyInstance();
+
+		//预热，同时积累对冲延迟需要的耗时样本
+		run(service, cluster, WARMUP_MILLIS, new LatencyHistogram());
+
+		long executedBefore = executed.get();
+		long cancelledBefore = client.getProviderNettyRemotingClient().getCancelledResponseCount();
+		LatencyHistogram latency = new LatencyHistogram();
+		long calls = run(service, cluster, DURATION_MILLIS, latency);
+		long extra = executed.get() - executedBefore - calls;
+		long cancelled = client.getProviderNettyRemotingClient().getCancelledResponseCount() - cancelledBefore;
+
+		LatencyPercentiles percentiles = LatencyPercentiles.of(latency.snapshot(), latency.getMax());
+		System.out.println("cluster strategy: " + cluster);
+		System.out.println("    qps         : " + calls * 1000 / DURATION_MILLIS);
+		System.out.println("    latency(us) : p50 " + percentiles.getP50() + " p90 " + percentiles.getP90() + " p99 " + percentiles.getP99() + " p999 "
+				+ percentiles.getP999());
+		System.out.println(String.format("    extra       : %.1f%%, cancelled %d", extra * 100.0 / calls, cancelled));
+		System.exit(0);
+	}
+
+	private static long run(final HedgingService service, final ClusterStrategy cluster, long durationMillis, final LatencyHistogram latency)
+			throws InterruptedException {
+
+		final AtomicLong calls = new AtomicLong();
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		final long end = System.currentTimeMillis() + durationMillis;
+		for (int i = 0; i < THREADS; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while (System.currentTimeMillis() < end) {
+						long begin = System.nanoTime();
+						if (cluster == ClusterStrategy.HEDGING) {
+							service.hedging("laopopo");
+						} else {
+							service.failfast("laopopo");
+						}
+						latency.record((System.nanoTime() - begin) / 1000);
+						calls.incrementAndGet();
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+		return calls.get();
+	}
+
+}
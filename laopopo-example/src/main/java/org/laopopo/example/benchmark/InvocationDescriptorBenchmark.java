@@ -0,0 +1,158 @@
+package org.laopopo.example.benchmark;
+
+import static org.laopopo.common.utils.Reflects.fastInvoke;
+import static org.laopopo.common.utils.Reflects.findMatchingParameterTypes;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.laopopo.client.annotation.RPConsumer;
+import org.laopopo.client.consumer.cluster.ClusterStrategy;
+import org.laopopo.client.consumer.proxy.MethodDescriptor;
+import org.laopopo.client.provider.model.ServiceWrapper;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比每次调用时consumer端和provider端的方法解析，原来的方式和现在预先计算好调用描述的方式，每次的耗时和分配的字节数
+ * 1)consumer 原来每次调用读取方法上的@RPConsumer注解，读取注解的各个属性，再查找方法特定的超时时间；
+ * 现在按照Method查找创建代理时计算好的MethodDescriptor
+ * 2)provider 原来每次调用匹配入参类型，再按照实例的类查找FastClass，按照方法名和入参类型查找方法的下标；
+ * 现在直接使用ServiceWrapper创建时生成的ServiceInvoker
+ * 不包括网络和序列化，只有方法解析和调用本身的开销，分配的字节数通过HotSpot的ThreadMXBean#getThreadAllocatedBytes统计
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 provider端现在的方式改为ServiceInvoker
+ */
+public class InvocationDescriptorBenchmark {
+
+	private static final String SERVICE_NAME = "LAOPOPO.BENCHMARK.DESCRIPTOR";
+	private static final int ITERATIONS = 10000000;
+
+	private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	//结果写到静态字段中，防止JIT把没有使用结果的调用消除掉
+	private static long sink;
+
+	public interface DescriptorService {
+
+		@RPConsumer(serviceName = SERVICE_NAME, cluster = ClusterStrategy.FAILOVER, hashArgIndex = 1)
+		String sayHello(String name, int times);
+	}
+
+	public static class DescriptorServiceImpl implements DescriptorService {
+
+		@Override
+		public String sayHello(String name, int times) {
+			return name;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		Method method = DescriptorService.class.getMethod("sayHello", String.class, int.class);
+		Map<String, Long> methodsSpecialTimeoutMillis = new HashMap<String, Long>();
+		methodsSpecialTimeoutMillis.put(SERVICE_NAME, 1000l);
+		Map<Method, MethodDescriptor> descriptors = new HashMap<Method, MethodDescriptor>();
+		descriptors.put(method, MethodDescriptor.of(method, 3000l, methodsSpecialTimeoutMillis));
+
+		List<Class<?>[]> paramters = new ArrayList<Class<?>[]>();
+		paramters.add(method.getParameterTypes());
+		ServiceWrapper serviceWrapper = new ServiceWrapper(new DescriptorServiceImpl(), null, SERVICE_NAME, "laopopo", "sayHello", paramters, false,
+				null, null, 50, 1, false, false, 100000l);
+		Object[] invokeArgs = new Object[] { "laopopo", 1 };
+
+		for (int round = 0; round < 3; round++) {
+			//前两轮是预热
+			boolean print = round == 2;
+			run("consumer annotation", print, method, methodsSpecialTimeoutMillis, descriptors, serviceWrapper, invokeArgs, 0);
+			run("consumer descriptor", print, method, methodsSpecialTimeoutMillis, descriptors, serviceWrapper, invokeArgs, 1);
+			run("provider fastClass ", print, method, methodsSpecialTimeoutMillis, descriptors, serviceWrapper, invokeArgs, 2);
+			run("provider invoker  ", print, method, methodsSpecialTimeoutMillis, descriptors, serviceWrapper, invokeArgs, 3);
+		}
+	}
+
+	private static void run(String name, boolean print, Method method, Map<String, Long> methodsSpecialTimeoutMillis,
+			Map<Method, MethodDescriptor> descriptors, ServiceWrapper serviceWrapper, Object[] args, int mode) {
+
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+		long begin = System.nanoTime();
+		long result = 0;
+		switch (mode) {
+			case 0:
+				for (int i = 0; i < ITERATIONS; i++) {
+					result += annotationPath(method, methodsSpecialTimeoutMillis, args);
+				}
+				break;
+			case 1:
+				for (int i = 0; i < ITERATIONS; i++) {
+					result += descriptorPath(descriptors, method, args);
+				}
+				break;
+			case 2:
+				for (int i = 0; i < ITERATIONS; i++) {
+					result += fastClassPath(serviceWrapper, args).length();
+				}
+				break;
+			default:
+				for (int i = 0; i < ITERATIONS; i++) {
+					result += invokerPath(serviceWrapper, args).length();
+				}
+				break;
+		}
+		long elapsed = System.nanoTime() - begin;
+		long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		sink += result;
+
+		if (print) {
+			System.out.println(String.format("%s : %7.1f ns/op, %7.1f bytes/op", name, (double) elapsed / ITERATIONS, (double) allocated / ITERATIONS));
+		}
+	}
+
+	/**
+	 * 原来consumer端每次调用的方法解析
+	 */
+	private static long annotationPath(Method method, Map<String, Long> methodsSpecialTimeoutMillis, Object[] args) {
+		RPConsumer rpcConsumer = method.getAnnotation(RPConsumer.class);
+		String serviceName = rpcConsumer.serviceName();
+		int index = rpcConsumer.hashArgIndex();
+		Object hashKey = index < 0 || index >= args.length ? null : args[index];
+		ClusterStrategy cluster = rpcConsumer.cluster();
+		int retries = rpcConsumer.retries();
+		Long timeout = methodsSpecialTimeoutMillis.get(serviceName);
+		long time = null == timeout ? 3000l : timeout;
+		return serviceName.length() + (hashKey == null ? 0 : 1) + cluster.ordinal() + retries + time;
+	}
+
+	/**
+	 * 现在consumer端每次调用的方法解析
+	 */
+	private static long descriptorPath(Map<Method, MethodDescriptor> descriptors, Method method, Object[] args) {
+		MethodDescriptor descriptor = descriptors.get(method);
+		String serviceName = descriptor.getServiceName();
+		int index = descriptor.getHashArgIndex();
+		Object hashKey = index < 0 || index >= args.length ? null : args[index];
+		return serviceName.length() + (hashKey == null ? 0 : 1) + descriptor.getCluster().ordinal() + descriptor.getRetries()
+				+ descriptor.getTimeoutMillis();
+	}
+
+	/**
+	 * 原来provider端每次调用的方法解析和调用
+	 */
+	private static String fastClassPath(ServiceWrapper serviceWrapper, Object[] args) {
+		Class<?>[] parameterTypes = findMatchingParameterTypes(serviceWrapper.getParamters(), args);
+		return (String) fastInvoke(serviceWrapper.getServiceProvider(), serviceWrapper.getMethodName(), parameterTypes, args);
+	}
+
+	/**
+	 * 现在provider端每次调用的方法解析和调用
+	 */
+	private static String invokerPath(ServiceWrapper serviceWrapper, Object[] args) {
+		return (String) serviceWrapper.getInvoker().invoke(serviceWrapper.getServiceProvider(), args);
+	}
+
+}
@@ -0,0 +1,129 @@
+package org.laopopo.example.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.laopopo.client.annotation.RPCService;
+import org.laopopo.client.annotation.RPConsumer;
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.client.metrics.ConsumerMeterManager;
+import org.laopopo.client.provider.DefaultProvider;
+import org.laopopo.common.loadbalance.LoadBalanceStrategy;
+import org.laopopo.common.metrics.LatencyHistogram;
+import org.laopopo.common.metrics.LatencyPercentiles;
+import org.laopopo.common.utils.UnresolvedAddress;
+import org.laopopo.remoting.netty.NettyClientConfig;
+import org.laopopo.remoting.netty.NettyServerConfig;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 一个提供者变慢的时候不同负载均衡策略的表现，3个提供者，其中一个每次调用耗时50ms(模拟GC停顿)，其他的耗时1ms，
+ * 32个线程持续同步调用，统计每个提供者分到的调用比例和consumer端的耗时分位数
+ * consumer端的ChannelGroup是按照服务名全局缓存的，每种策略需要在单独的JVM中运行，策略通过第一个参数指定，默认WEIGHTINGRANDOM
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class LoadBalanceBenchmark {
+
+	private static final String SERVICE_NAME = "LAOPOPO.BENCHMARK.BALANCE";
+	private static final int THREADS = 32;
+	private static final long DURATION_MILLIS = 5000;
+	private static final int[] PORTS = { 18331, 18341, 18351 };
+	private static final int SLOW_PORT = 18331;
+
+	public interface BalanceService {
+
+		@RPConsumer(serviceName = SERVICE_NAME)
+		String call(String str);
+	}
+
+	public static class BalanceServiceImpl implements BalanceService {
+
+		private final long sleepMillis;
+
+		public BalanceServiceImpl(long sleepMillis) {
+			this.sleepMillis = sleepMillis;
+		}
+
+		@Override
+		@RPCService(serviceName = SERVICE_NAME, isFlowController = false)
+		public String call(String str) {
+			try {
+				Thread.sleep(sleepMillis);
+			} catch (InterruptedException e) {
+			}
+			return str;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		LoadBalanceStrategy strategy = LoadBalanceStrategy.valueOf(args.length > 0 ? args[0] : LoadBalanceStrategy.WEIGHTINGRANDOM.name());
+
+		UnresolvedAddress[] addresses = new UnresolvedAddress[PORTS.length];
+		for (int i = 0; i < PORTS.length; i++) {
+			NettyServerConfig serverConfig = new NettyServerConfig();
+			serverConfig.setServerWorkerThreads(32);
+			DefaultProvider provider = new DefaultProvider(new NettyClientConfig(), serverConfig);
+			provider.serviceListenPort(PORTS[i]).publishService(new BalanceServiceImpl(PORTS[i] == SLOW_PORT ? 50 : 1)).start();
+			addresses[i] = new UnresolvedAddress("127.0.0.1", PORTS[i]);
+		}
+
+		ConsumerClient client = new ConsumerClient();
+		client.start();
+		final BalanceService service = ProxyFactory.factory(BalanceService.class).consumer(client).addProviderAddress(addresses).loadBalance(strategy)
+				.timeoutMillis(3000l).newProxyInstance();
+		//预热，同时建立连接
+		for (int i = 0; i < 30; i++) {
+			service.call("warm");
+		}
+		long[] before = new long[PORTS.length];
+		for (int i = 0; i < PORTS.length; i++) {
+			before[i] = ConsumerMeterManager.getOrCreateMeter(SERVICE_NAME, addresses[i]).getCallCount().value();
+		}
+		long[] latencyBefore = ConsumerMeterManager.getLatency(SERVICE_NAME).snapshot();
+
+		final AtomicLong success = new AtomicLong();
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		final long end = System.currentTimeMillis() + DURATION_MILLIS;
+		for (int i = 0; i < THREADS; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while (System.currentTimeMillis() < end) {
+						if (null != service.call("laopopo")) {
+							success.incrementAndGet();
+						}
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+
+		long total = 0;
+		long[] calls = new long[PORTS.length];
+		for (int i = 0; i < PORTS.length; i++) {
+			calls[i] = ConsumerMeterManager.getMeter(SERVICE_NAME, addresses[i]).getCallCount().value() - before[i];
+			total += calls[i];
+		}
+		LatencyHistogram latency = ConsumerMeterManager.getLatency(SERVICE_NAME);
+		long[] buckets = latency.snapshot();
+		for (int i = 0; i < latencyBefore.length; i++) {
+			buckets[i] -= latencyBefore[i];
+		}
+
+		System.out.println("load balance strategy: " + strategy);
+		System.out.println("    qps     : " + success.get() * 1000 / DURATION_MILLIS);
+		for (int i = 0; i < PORTS.length; i++) {
+			System.out.println(String.format("    %d%s: %5.1f%%", PORTS[i], PORTS[i] == SLOW_PORT ? "(slow)" : "      ", calls[i] * 100.0 / total));
+		}
+		LatencyPercentiles percentiles = LatencyPercentiles.of(buckets, latency.getMax());
+		System.out.println("    latency(us) p50 " + percentiles.getP50() + " p90 " + percentiles.getP90() + " p99 " + percentiles.getP99());
+		System.exit(0);
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.laopopo.example.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.laopopo.client.annotation.RPCService;
+import org.laopopo.client.annotation.RPConsumer;
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.client.metrics.Meter;
+import org.laopopo.client.metrics.ServiceMeterManager;
+import org.laopopo.client.provider.DefaultProvider;
+import org.laopopo.common.exception.rpc.CircuitBreakerOpenException;
+import org.laopopo.common.utils.UnresolvedAddress;
+import org.laopopo.remoting.netty.NettyClientConfig;
+import org.laopopo.remoting.netty.NettyServerConfig;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description provider过载时的削峰测试，每次调用耗时10ms，provider只有4个业务线程(400qps)，64个线程以100ms的超时时间持续同步调用
+ * 请求出队的时候调用者剩余的时间预算不够执行一次(按照最近执行耗时的中位数估计)就被丢弃，队列满了之后直接回复HANDLER_BUSY，
+ * 对比不同队列长度下provider真正执行的次数，成功的次数，超时丢弃和拒绝的次数，超时过多的时候consumer端的熔断器会打开，熔断的次数单独统计
+ * consumer端的ChannelGroup是按照服务名全局缓存的，每种队列长度需要在单独的JVM中运行，队列长度通过第一个参数指定，默认1024
+ * @time 2016年10月26日
+ * @modifytime 2016年10月27日 预热的时候并发调用，provider积累最近的执行耗时；统计被熔断的调用次数
+ */
+public class LoadSheddingBenchmark {
+
+	private static final String SERVICE_NAME = "LAOPOPO.BENCHMARK.SLOW";
+	private static final int THREADS = 64;
+	private static final long DURATION_MILLIS = 5000;
+	private static final long TIMEOUT_MILLIS = 100;
+	private static final int WARM_UP_THREADS = 2;
+	private static final int WARM_UP_CALLS = 100;
+
+	private static final AtomicLong executed = new AtomicLong();
+
+	public interface SlowService {
+
+		@RPConsumer(serviceName = SERVICE_NAME)
+		String call(String str);
+	}
+
+	public static class SlowServiceImpl implements SlowService {
+
+		@Override
+		@RPCService(serviceName = SERVICE_NAME, isFlowController = false)
+		public String call(String str) {
+			executed.incrementAndGet();
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+			}
+			return str;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		run(args.length > 0 ? Integer.parseInt(args[0]) : 1024, 18303);
+		System.exit(0);
+	}
+
+	private static void run(int queueSize, int port) throws Exception {
+
+		NettyServerConfig serverConfig = new NettyServerConfig();
+		serverConfig.setServerWorkerThreads(4);
+		serverConfig.setServerWorkerQueueSize(queueSize);
+		DefaultProvider provider = new DefaultProvider(new NettyClientConfig(), serverConfig);
+		provider.serviceListenPort(port).publishService(new SlowServiceImpl()).start();
+
+		ConsumerClient client = new ConsumerClient();
+		client.start();
+		final SlowService service = ProxyFactory.factory(SlowService.class).consumer(client).addProviderAddress(new UnresolvedAddress("127.0.0.1", port))
+				.timeoutMillis(TIMEOUT_MILLIS).newProxyInstance();
+		//预热，同时建立连接，并发数不超过provider的业务线程数，provider积累最近的执行耗时
+		warmUp(service);
+
+		long executedBefore = executed.get();
+		long expiredBefore = meter().getExpiredCount().value();
+		long rejectedBefore = provider.getNettyRemotingServer().getBusyRejectedCount();
+
+		final AtomicLong success = new AtomicLong();
+		final AtomicLong failed = new AtomicLong();
+		final AtomicLong broken = new AtomicLong();
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		final long end = System.currentTimeMillis() + DURATION_MILLIS;
+		for (int i = 0; i < THREADS; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while (System.currentTimeMillis() < end) {
+						//超时和被拒绝的调用返回null，提供者被熔断的时候抛出CircuitBreakerOpenException
+						try {
+							if (null != service.call("laopopo")) {
+								success.incrementAndGet();
+								continue;
+							}
+						} catch (CircuitBreakerOpenException e) {
+							broken.incrementAndGet();
+							continue;
+						}
+						failed.incrementAndGet();
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+		//等待队列中剩余的请求被执行或者丢弃
+		Thread.sleep(2000);
+
+		long expired = meter().getExpiredCount().value() - expiredBefore;
+		long rejected = provider.getNettyRemotingServer().getBusyRejectedCount() - rejectedBefore;
+		System.out.println("provider worker queue size: " + queueSize);
+		System.out.println("    consumer success        : " + success.get());
+		System.out.println("    consumer failed         : " + failed.get());
+		System.out.println("    consumer circuit broken : " + broken.get());
+		System.out.println("    provider executed       : " + (executed.get() - executedBefore));
+		System.out.println("    provider expired/dropped: " + expired);
+		System.out.println("    provider rejected(busy) : " + rejected);
+	}
+
+	private static void warmUp(final SlowService service) throws InterruptedException {
+
+		final CountDownLatch latch = new CountDownLatch(WARM_UP_THREADS);
+		for (int i = 0; i < WARM_UP_THREADS; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < WARM_UP_CALLS; j++) {
+						service.call("warm");
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+	}
+
+	private static Meter meter() {
+		Meter meter = ServiceMeterManager.getGlobalMeterManager().get(SERVICE_NAME);
+		return null == meter ? new Meter(SERVICE_NAME) : meter;
+	}
+
+}
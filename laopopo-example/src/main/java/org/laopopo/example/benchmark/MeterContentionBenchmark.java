@@ -0,0 +1,166 @@
+package org.laopopo.example.benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.laopopo.client.metrics.Meter;
+import org.laopopo.client.metrics.ServiceMeterManager;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比1/8/64个线程同时统计同一个服务时，原来的get-then-put + AtomicLong的统计方式和现在的putIfAbsent + LongAdderV8的吞吐量，
+ * 每次调用累加调用次数，入参大小和调用时间三个计数器，和provider处理一次请求时一样
+ * lost是统计的调用次数和实际调用次数的差，get-then-put在并发创建Meter的时候会覆盖其他线程刚创建的Meter，丢失这些线程的统计
+ * 多个线程之间的竞争只有在多核的机器上才能体现出来
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class MeterContentionBenchmark {
+
+	private static final long DURATION_MILLIS = 2000;
+	private static final int[] THREADS = { 1, 8, 64 };
+
+	public static void main(String[] args) throws Exception {
+
+		System.out.println("available processors: " + Runtime.getRuntime().availableProcessors());
+		for (int round = 0; round < 2; round++) {
+			//第一轮是预热
+			boolean print = round == 1;
+			for (int threads : THREADS) {
+				run(new AtomicLongMeterStore(), threads, "atomic-" + round + "-" + threads, print);
+				run(new LongAdderMeterStore(), threads, "adder-" + round + "-" + threads, print);
+			}
+		}
+	}
+
+	private static void run(final MeterStore store, int threads, final String serviceName, boolean print) throws Exception {
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch latch = new CountDownLatch(threads);
+		final AtomicLong calls = new AtomicLong();
+		final long[] end = new long[1];
+		for (int i = 0; i < threads; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+					}
+					long count = 0;
+					while (System.currentTimeMillis() < end[0]) {
+						for (int j = 0; j < 100; j++) {
+							store.incrementCallTimes(serviceName);
+							store.incrementRequestSize(serviceName, 128);
+							store.incrementTotalTime(serviceName, 1);
+						}
+						count += 100;
+					}
+					calls.addAndGet(count);
+					latch.countDown();
+				}
+			}).start();
+		}
+		end[0] = System.currentTimeMillis() + DURATION_MILLIS;
+		start.countDown();
+		latch.await();
+
+		if (print) {
+			System.out.println(String.format("%-10s threads %-3d : %8.2f M calls/s, lost %d", store.name(), threads,
+					calls.get() / (DURATION_MILLIS * 1000.0), calls.get() - store.callCount(serviceName)));
+		}
+	}
+
+	interface MeterStore {
+
+		String name();
+
+		void incrementCallTimes(String serviceName);
+
+		void incrementRequestSize(String serviceName, int byteSize);
+
+		void incrementTotalTime(String serviceName, long timecost);
+
+		long callCount(String serviceName);
+	}
+
+	/**
+	 * 现在的{@link ServiceMeterManager}
+	 */
+	static class LongAdderMeterStore implements MeterStore {
+
+		@Override
+		public String name() {
+			return "LongAdder";
+		}
+
+		@Override
+		public void incrementCallTimes(String serviceName) {
+			ServiceMeterManager.incrementCallTimes(serviceName);
+		}
+
+		@Override
+		public void incrementRequestSize(String serviceName, int byteSize) {
+			ServiceMeterManager.incrementRequestSize(serviceName, byteSize);
+		}
+
+		@Override
+		public void incrementTotalTime(String serviceName, long timecost) {
+			ServiceMeterManager.incrementTotalTime(serviceName, timecost);
+		}
+
+		@Override
+		public long callCount(String serviceName) {
+			Meter meter = ServiceMeterManager.getGlobalMeterManager().get(serviceName);
+			return null == meter ? 0 : meter.getCallCount().value();
+		}
+	}
+
+	/**
+	 * 原来的ServiceMeterManager，get-then-put创建Meter，计数器是AtomicLong
+	 */
+	static class AtomicLongMeterStore implements MeterStore {
+
+		private final ConcurrentMap<String, AtomicLong[]> meters = new ConcurrentHashMap<String, AtomicLong[]>();
+
+		@Override
+		public String name() {
+			return "AtomicLong";
+		}
+
+		private AtomicLong[] meter(String serviceName) {
+			AtomicLong[] meter = meters.get(serviceName);
+			if (meter == null) {
+				meter = new AtomicLong[] { new AtomicLong(), new AtomicLong(), new AtomicLong() };
+				meters.put(serviceName, meter);
+			}
+			return meter;
+		}
+
+		@Override
+		public void incrementCallTimes(String serviceName) {
+			meter(serviceName)[0].incrementAndGet();
+		}
+
+		@Override
+		public void incrementRequestSize(String serviceName, int byteSize) {
+			meter(serviceName)[1].addAndGet(byteSize);
+		}
+
+		@Override
+		public void incrementTotalTime(String serviceName, long timecost) {
+			meter(serviceName)[2].addAndGet(timecost);
+		}
+
+		@Override
+		public long callCount(String serviceName) {
+			AtomicLong[] meter = meters.get(serviceName);
+			return null == meter ? 0 : meter[0].get();
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+package org.laopopo.example.benchmark;
+
+import io.netty.channel.ChannelHandlerContext;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.laopopo.example.netty.TestCommonCustomBody;
+import org.laopopo.example.netty.TestCommonCustomBody.ComplexTestObj;
+import org.laopopo.remoting.model.NettyRequestProcessor;
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.NettyClientConfig;
+import org.laopopo.remoting.netty.NettyRemotingClient;
+import org.laopopo.remoting.netty.NettyRemotingServer;
+import org.laopopo.remoting.netty.NettyServerConfig;
+import org.laopopo.remoting.netty.PipelineModel;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比三种{@link PipelineModel}下，64个线程并发invokeSync小请求时的吞吐量、p99延迟和每个请求的线程上下文切换次数
+ * 上下文切换次数是/proc/self/task/[tid]/status中voluntary_ctxt_switches和nonvoluntary_ctxt_switches之和，只统计client和server两端的
+ * netty IO线程和处理器线程，按照/proc/self/task/[tid]/comm中的线程名过滤，阻塞在invokeSync上的调用线程每个请求必然切换，不计算在内，只支持linux
+ * IO_THREAD模式下处理器通过registerIoThreadProcessor注册，其他模式下使用16个线程的线程池
+ * 和BenchmarkProviderTest/BenchmarkClient对比的时候，两端通过-Dlaopopo.pipeline.model=IO_THREAD指定线程模型
+ * @time 2016年10月25日
+ * @modifytime 2016年10月27日 只统计IO线程和处理器线程的上下文切换；IO_THREAD模式下处理器注册为在IO线程中执行
+ */
+public class PipelineModelBenchmark {
+
+	private static final byte TEST = -1;
+	private static final int THREADS = 64;
+	private static final int REQUESTS_PER_THREAD = 5000;
+	//统计上下文切换的线程名前缀，comm最多15个字符：netty的IO线程，EXECUTOR_GROUP模式下handler的线程，处理器的线程
+	private static final String[] COUNTED_THREADS = { "netty.", "NettyServerWork", "NettyClientWork", "PipelineProcess" };
+
+	public static void main(String[] args) throws Exception {
+
+		int port = 18201;
+		for (PipelineModel model : PipelineModel.values()) {
+			run(model, port++);
+		}
+		System.exit(0);
+	}
+
+	private static void run(PipelineModel model, int port) throws Exception {
+		NettyServerConfig serverConfig = new NettyServerConfig();
+		serverConfig.setListenPort(port);
+		serverConfig.setPipelineModel(model);
+		NettyRemotingServer server = new NettyRemotingServer(serverConfig);
+		NettyRequestProcessor processor = new NettyRequestProcessor() {
+
+			@Override
+			public RemotingTransporter processRequest(ChannelHandlerContext ctx, RemotingTransporter request) throws Exception {
+				request.release();
+				return RemotingTransporter.createResponseTransporter(TEST, newBody(), request.getOpaque());
+			}
+		};
+		ExecutorService executor = null;
+		if (model == PipelineModel.IO_THREAD) {
+			server.registerIoThreadProcessor(TEST, processor);
+		} else {
+			executor = Executors.newFixedThreadPool(16, new ThreadFactory() {
+
+				private AtomicInteger threadIndex = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(Runnable r) {
+					return new Thread(r, "PipelineProcessor_" + threadIndex.incrementAndGet());
+				}
+			});
+			server.registerProecessor(TEST, processor, executor);
+		}
+		server.start();
+
+		NettyClientConfig clientConfig = new NettyClientConfig();
+		clientConfig.setPipelineModel(model);
+		final NettyRemotingClient client = new NettyRemotingClient(clientConfig);
+		client.start();
+
+		final String address = "127.0.0.1:" + port;
+		//预热，同时建立连接
+		request(client, address, 1, 20000, new long[2]);
+
+		long[] stats = new long[2];
+		long[] latencies = request(client, address, THREADS, REQUESTS_PER_THREAD, stats);
+		long cost = stats[0];
+		long switches = stats[1];
+
+		Arrays.sort(latencies);
+		System.out.println("pipeline model: " + model);
+		System.out.println("    qps              : " + latencies.length * 1000L / Math.max(cost, 1));
+		System.out.println("    p99              : " + latencies[(int) (latencies.length * 0.99)] / 1000 + " us");
+		System.out.println("    context switches : " + switches + " (" + String.format("%.2f", switches / (double) latencies.length) + " per request)");
+
+		client.shutdown();
+		server.shutdown();
+		if (null != executor) {
+			executor.shutdown();
+		}
+		//等待上一轮的线程退出，避免影响下一轮的上下文切换统计
+		Thread.sleep(3000);
+	}
+
+	/**
+	 * @param stats 返回耗时(ms)和上下文切换次数，在调用线程退出之前统计，避免退出的线程的切换次数丢失
+	 */
+	private static long[] request(final NettyRemotingClient client, final String address, int threads, final int requests, long[] stats) throws Exception {
+		final long[] latencies = new long[threads * requests];
+		final CountDownLatch latch = new CountDownLatch(threads);
+		final CountDownLatch exit = new CountDownLatch(1);
+		long switches = contextSwitches();
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < threads; i++) {
+			final int offset = i * requests;
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < requests; j++) {
+							long begin = System.nanoTime();
+							RemotingTransporter response = client.invokeSync(address, RemotingTransporter.createRequestTransporter(TEST, newBody()), 3000);
+							latencies[offset + j] = System.nanoTime() - begin;
+							response.release();
+						}
+					} catch (Exception e) {
+						e.printStackTrace();
+					} finally {
+						latch.countDown();
+					}
+					try {
+						exit.await();
+					} catch (InterruptedException e) {
+					}
+				}
+			}).start();
+		}
+		latch.await();
+		stats[0] = System.currentTimeMillis() - start;
+		stats[1] = contextSwitches() - switches;
+		exit.countDown();
+		return latencies;
+	}
+
+	private static TestCommonCustomBody newBody() {
+		return new TestCommonCustomBody(1, "pipeline", new ComplexTestObj("attr1", 2));
+	}
+
+	private static long contextSwitches() throws IOException {
+		long switches = 0;
+		File[] tasks = new File("/proc/self/task").listFiles();
+		if (tasks == null) {
+			return -1;
+		}
+		for (File task : tasks) {
+			BufferedReader reader;
+			try {
+				if (!isCounted(readLine(new File(task, "comm")))) {
+					continue;
+				}
+				reader = new BufferedReader(new FileReader(new File(task, "status")));
+			} catch (IOException e) {
+				//线程已经退出
+				continue;
+			}
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.contains("ctxt_switches:")) {
+						switches += Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return switches;
+	}
+
+	private static boolean isCounted(String threadName) {
+		if (null == threadName) {
+			return false;
+		}
+		for (String prefix : COUNTED_THREADS) {
+			if (threadName.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String readLine(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			return reader.readLine();
+		} finally {
+			reader.close();
+		}
+	}
+
+}
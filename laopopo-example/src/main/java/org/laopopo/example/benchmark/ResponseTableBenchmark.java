@@ -0,0 +1,112 @@
+package org.laopopo.example.benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.laopopo.common.utils.StripedLongObjectMap;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description responseTable的对比测试，ConcurrentHashMap<Long, V>和StripedLongObjectMap<V>
+ * 每个线程维持固定数量的未完成请求，不停地put一个新的请求Id，remove掉最老的请求Id，模拟请求的发送和响应的返回
+ * 分别测试1k、10k、100k个未完成请求的情况
+ * @time 2016年10月21日
+ * @modifytime
+ */
+public class ResponseTableBenchmark {
+
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+	private static final int OPERATIONS_PER_THREAD = 2000000;
+	private static final int[] OUTSTANDING = { 1000, 10000, 100000 };
+	private static final Object VALUE = new Object();
+
+	public static void main(String[] args) throws Exception {
+
+		for (int outstanding : OUTSTANDING) {
+			//预热
+			run(new ConcurrentHashMapTable(), outstanding);
+			run(new StripedTable(), outstanding);
+
+			long chm = run(new ConcurrentHashMapTable(), outstanding);
+			long striped = run(new StripedTable(), outstanding);
+
+			System.out.println("outstanding: " + outstanding + ", threads: " + THREADS);
+			System.out.println("    ConcurrentHashMap<Long, V>: " + chm + " ms, " + qps(chm) + " ops/s");
+			System.out.println("    StripedLongObjectMap<V>   : " + striped + " ms, " + qps(striped) + " ops/s");
+		}
+	}
+
+	private static long qps(long costMillis) {
+		return (long) THREADS * OPERATIONS_PER_THREAD * 1000 / Math.max(1, costMillis);
+	}
+
+	private static long run(final Table table, int outstanding) throws InterruptedException {
+		final AtomicLong requestId = new AtomicLong();
+		final int window = Math.max(1, outstanding / THREADS);
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < THREADS; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					long[] ids = new long[window];
+					for (int i = 0; i < window; i++) {
+						ids[i] = requestId.getAndIncrement();
+						table.put(ids[i]);
+					}
+					for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+						int index = i % window;
+						table.remove(ids[index]);
+						ids[index] = requestId.getAndIncrement();
+						table.put(ids[index]);
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+		return System.currentTimeMillis() - start;
+	}
+
+	interface Table {
+
+		void put(long id);
+
+		void remove(long id);
+	}
+
+	static class ConcurrentHashMapTable implements Table {
+
+		private final ConcurrentHashMap<Long, Object> map = new ConcurrentHashMap<Long, Object>(256);
+
+		@Override
+		public void put(long id) {
+			map.put(id, VALUE);
+		}
+
+		@Override
+		public void remove(long id) {
+			map.remove(id);
+		}
+	}
+
+	static class StripedTable implements Table {
+
+		private final StripedLongObjectMap<Object> map = new StripedLongObjectMap<Object>();
+
+		@Override
+		public void put(long id) {
+			map.put(id, VALUE);
+		}
+
+		@Override
+		public void remove(long id) {
+			map.remove(id);
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package org.laopopo.example.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import net.sf.cglib.reflect.FastMethod;
+
+import org.laopopo.client.provider.invoker.ServiceInvoker;
+import org.laopopo.client.provider.invoker.ServiceInvokerFactory;
+import org.laopopo.common.utils.Reflects;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比provider端调用服务方法的几种方式，每次调用的耗时和分配的字节数：
+ * 1)reflect     Method#invoke
+ * 2)fastClass   cglib FastClass，每次按照方法名和入参类型查找方法的下标(原来的Reflects#fastInvoke)
+ * 3)fastMethod  cglib FastMethod，下标预先解析好
+ * 4)handle      MethodHandle，预先转换成(Object, Object[])Object的形式保存在字段中，用invokeExact调用
+ * 5)generated   ServiceInvokerFactory生成的ServiceInvoker，直接调用目标方法
+ * 6)direct      手写的直接调用，作为下限
+ * 两个方法：sayHello(String, int)返回String，sum(int, long)返回long，覆盖参数拆箱和返回值装箱
+ * 每种方式的调用点只有一个目标方法，是单态的，分配的字节数通过HotSpot的ThreadMXBean#getThreadAllocatedBytes统计
+ * 在JDK 9之后运行cglib需要--add-opens java.base/java.lang=ALL-UNNAMED
+ * @time 2016年10月27日
+ * @modifytime 2016年10月27日 打印实际使用的ServiceInvoker的类
+ */
+public class ServiceInvokerBenchmark {
+
+	private static final int ITERATIONS = 20000000;
+
+	private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final String[] WAYS = { "reflect", "fastClass", "fastMethod", "handle", "generated", "direct" };
+
+	//结果写到静态字段中，防止JIT把没有使用结果的调用消除掉
+	private static long sink;
+
+	public static class InvokerServiceImpl {
+
+		public String sayHello(String name, int times) {
+			return times > 0 ? name : null;
+		}
+
+		public long sum(int a, long b) {
+			return a + b;
+		}
+	}
+
+	/**
+	 * 一个方法的几种调用方式
+	 */
+	static final class Target {
+
+		final String name;
+		final Class<?>[] parameterTypes;
+		final Object[] args;
+		final Method method;
+		final FastMethod fastMethod;
+		final MethodHandle handle;
+		final ServiceInvoker invoker;
+
+		Target(String name, Object[] args, Class<?>... parameterTypes) throws Exception {
+			this.name = name;
+			this.parameterTypes = parameterTypes;
+			this.args = args;
+			this.method = InvokerServiceImpl.class.getMethod(name, parameterTypes);
+			this.fastMethod = Reflects.fastMethod(InvokerServiceImpl.class, name, parameterTypes);
+			this.handle = MethodHandles.lookup().unreflect(method).asSpreader(Object[].class, parameterTypes.length)
+					.asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+			this.invoker = ServiceInvokerFactory.create(InvokerServiceImpl.class, name, parameterTypes);
+		}
+	}
+
+	public static void main(String[] args) throws Throwable {
+
+		InvokerServiceImpl service = new InvokerServiceImpl();
+		Target[] targets = { new Target("sayHello", new Object[] { "laopopo", 1 }, String.class, int.class),
+				new Target("sum", new Object[] { 1, 2l }, int.class, long.class) };
+		//确认用的是生成的类，生成失败的时候这里是FastMethodInvoker
+		for (Target target : targets) {
+			System.out.println(target.name + " invoker : " + target.invoker.getClass().getName());
+		}
+
+		for (int round = 0; round < 3; round++) {
+			//前两轮是预热
+			boolean print = round == 2;
+			for (Target target : targets) {
+				for (int way = 0; way < WAYS.length; way++) {
+					run(service, target, way, print);
+				}
+			}
+		}
+	}
+
+	private static void run(InvokerServiceImpl service, Target target, int way, boolean print) throws Throwable {
+
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+		long begin = System.nanoTime();
+		long result;
+		switch (way) {
+			case 0:
+				result = reflect(service, target);
+				break;
+			case 1:
+				result = fastClass(service, target);
+				break;
+			case 2:
+				result = fastMethod(service, target);
+				break;
+			case 3:
+				result = handle(service, target);
+				break;
+			case 4:
+				result = generated(service, target);
+				break;
+			default:
+				result = direct(service, target);
+				break;
+		}
+		long elapsed = System.nanoTime() - begin;
+		long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedBefore;
+		sink += result;
+
+		if (print) {
+			System.out.println(String.format("%-8s %-10s : %6.1f ns/op, %5.1f bytes/op", target.name, WAYS[way], (double) elapsed / ITERATIONS,
+					(double) allocated / ITERATIONS));
+		}
+	}
+
+	private static long reflect(Object service, Target target) throws Exception {
+		long result = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			result += target.method.invoke(service, target.args).hashCode();
+		}
+		return result;
+	}
+
+	private static long fastClass(Object service, Target target) {
+		long result = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			result += Reflects.fastInvoke(service, target.name, target.parameterTypes, target.args).hashCode();
+		}
+		return result;
+	}
+
+	private static long fastMethod(Object service, Target target) {
+		long result = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			result += Reflects.fastInvoke(target.fastMethod, service, target.args).hashCode();
+		}
+		return result;
+	}
+
+	private static long handle(Object service, Target target) throws Throwable {
+		long result = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			result += ((Object) target.handle.invokeExact(service, target.args)).hashCode();
+		}
+		return result;
+	}
+
+	private static long generated(Object service, Target target) {
+		long result = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			result += target.invoker.invoke(service, target.args).hashCode();
+		}
+		return result;
+	}
+
+	private static long direct(Object service, Target target) {
+		long result = 0;
+		boolean sayHello = "sayHello".equals(target.name);
+		for (int i = 0; i < ITERATIONS; i++) {
+			Object[] args = target.args;
+			InvokerServiceImpl impl = (InvokerServiceImpl) service;
+			Object value = sayHello ? impl.sayHello((String) args[0], (Integer) args[1]) : (Object) impl.sum((Integer) args[0], (Long) args[1]);
+			result += value.hashCode();
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,108 @@
+package org.laopopo.example.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.laopopo.client.annotation.RPCService;
+import org.laopopo.client.annotation.RPConsumer;
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.client.provider.DefaultProvider;
+import org.laopopo.common.utils.UnresolvedAddress;
+import org.laopopo.common.utils.VirtualThreadExecutor;
+import org.laopopo.remoting.netty.ExecutionMode;
+import org.laopopo.remoting.netty.NettyClientConfig;
+import org.laopopo.remoting.netty.NettyServerConfig;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比{@link ExecutionMode}两种执行方式下阻塞服务的吞吐量，服务每次调用阻塞20ms(模拟数据库访问)，
+ * provider的serverWorkerThreads为16，256个线程持续同步调用
+ * 线程池模式的理论上限是16 / 20ms = 800qps，虚拟线程模式不受平台线程数的限制
+ * 运行的JDK不支持虚拟线程的时候VIRTUAL_THREAD退回到线程池，两种模式的结果一样
+ * consumer端的ChannelGroup是按照服务名全局缓存的，每种模式需要在单独的JVM中运行，模式通过第一个参数指定，默认THREAD_POOL
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class VirtualThreadBenchmark {
+
+	private static final String SERVICE_NAME = "LAOPOPO.BENCHMARK.BLOCKING";
+	private static final int THREADS = 256;
+	private static final long DURATION_MILLIS = 5000;
+
+	public interface BlockingService {
+
+		@RPConsumer(serviceName = SERVICE_NAME)
+		String call(String str);
+	}
+
+	public static class BlockingServiceImpl implements BlockingService {
+
+		@Override
+		@RPCService(serviceName = SERVICE_NAME, isFlowController = false)
+		public String call(String str) {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+			}
+			return str;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		ExecutorService probe = VirtualThreadExecutor.create("probe", 1);
+		System.out.println("jdk " + System.getProperty("java.version") + " virtual thread supported: " + (null != probe));
+		if (null != probe) {
+			probe.shutdown();
+		}
+
+		run(ExecutionMode.valueOf(args.length > 0 ? args[0] : ExecutionMode.THREAD_POOL.name()), 18323);
+		System.exit(0);
+	}
+
+	private static void run(ExecutionMode mode, int port) throws Exception {
+
+		NettyServerConfig serverConfig = new NettyServerConfig();
+		serverConfig.setServerWorkerThreads(16);
+		serverConfig.setExecutionMode(mode);
+		DefaultProvider provider = new DefaultProvider(new NettyClientConfig(), serverConfig);
+		provider.serviceListenPort(port).publishService(new BlockingServiceImpl()).start();
+
+		ConsumerClient client = new ConsumerClient();
+		client.start();
+		final BlockingService service = ProxyFactory.factory(BlockingService.class).consumer(client).addProviderAddress(new UnresolvedAddress("127.0.0.1", port))
+				.timeoutMillis(3000l).newProxyInstance();
+		//预热，同时建立连接
+		service.call("warm");
+
+		final AtomicLong success = new AtomicLong();
+		final AtomicLong failed = new AtomicLong();
+		final CountDownLatch latch = new CountDownLatch(THREADS);
+		final long end = System.currentTimeMillis() + DURATION_MILLIS;
+		for (int i = 0; i < THREADS; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					while (System.currentTimeMillis() < end) {
+						if (null != service.call("laopopo")) {
+							success.incrementAndGet();
+						} else {
+							failed.incrementAndGet();
+						}
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+
+		System.out.println("execution mode: " + mode);
+		System.out.println("    qps    : " + success.get() * 1000 / DURATION_MILLIS);
+		System.out.println("    failed : " + failed.get());
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.laopopo.example.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.laopopo.client.consumer.AbstractDefaultConsumer;
+import org.laopopo.client.loadbalance.LoadBalanceStrategies;
+import org.laopopo.common.utils.ChannelGroup;
+import org.laopopo.common.utils.NettyChannelGroup;
+import org.laopopo.common.utils.UnresolvedAddress;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比2/20/200个提供者的时候，原来每次调用都拷贝权重数组，线性扫描的加权随机和现在预先计算别名表的加权随机，
+ * 每次选择的耗时和分配的字节数，提供者的权重是1到100之间不同的值
+ * deviation是现在的实现每个提供者被选中的比例和 权重/总权重 的最大相对偏差，用来确认别名表的分布是对的
+ * 分配的字节数通过HotSpot的ThreadMXBean#getThreadAllocatedBytes统计
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public class WeightedSelectionBenchmark {
+
+	private static final int[] PROVIDERS = { 2, 20, 200 };
+	private static final int ITERATIONS = 5000000;
+
+	private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) {
+
+		for (int round = 0; round < 3; round++) {
+			//前两轮是预热
+			boolean print = round == 2;
+			for (int providers : PROVIDERS) {
+				String serviceName = "LAOPOPO.BENCHMARK.WEIGHT." + providers;
+				if (round == 0) {
+					for (int i = 0; i < providers; i++) {
+						ChannelGroup group = new NettyChannelGroup(new UnresolvedAddress("10.0.0." + i, 18000 + i));
+						group.setWeight(1 + (i * 37) % 100);
+						AbstractDefaultConsumer.addIfAbsent(serviceName, group);
+					}
+				}
+				CopyOnWriteArrayList<ChannelGroup> list = AbstractDefaultConsumer.getChannelGroupByServiceName(serviceName);
+				run("scan", list, serviceName, print);
+				run("alias", list, serviceName, print);
+			}
+		}
+	}
+
+	private static void run(String name, CopyOnWriteArrayList<ChannelGroup> list, String serviceName, boolean print) {
+
+		boolean alias = "alias".equals(name);
+		int[] selected = new int[list.size()];
+		long threadId = Thread.currentThread().getId();
+		long allocatedBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+		long begin = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			ChannelGroup group = alias ? LoadBalanceStrategies.WEIGHTRANDOMSTRATEGIES.select(list, serviceName) : scanSelect(list);
+			//group的端口是18000 + 下标
+			selected[group.getAddress().getPort() - 18000]++;
+		}
+		long elapsed = System.nanoTime() - begin;
+		long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+		if (print) {
+			long totalWeight = 0;
+			for (ChannelGroup group : list) {
+				totalWeight += group.getWeight();
+			}
+			double deviation = 0;
+			for (int i = 0; i < list.size(); i++) {
+				double expected = (double) list.get(i).getWeight() / totalWeight;
+				double actual = (double) selected[i] / ITERATIONS;
+				deviation = Math.max(deviation, Math.abs(actual - expected) / expected);
+			}
+			System.out.println(String.format("%-5s providers %-3d : %7.1f ns/op, %7.1f bytes/op, deviation %.3f", name, list.size(),
+					(double) elapsed / ITERATIONS, (double) allocated / ITERATIONS, deviation));
+		}
+	}
+
+	/**
+	 * 原来的加权随机
+	 */
+	private static ChannelGroup scanSelect(CopyOnWriteArrayList<ChannelGroup> arrayList) {
+		int count = arrayList.size();
+		if (count == 1) {
+			return arrayList.get(0);
+		}
+		int totalWeight = 0;
+		int[] weightSnapshots = new int[count];
+		for (int i = 0; i < count; i++) {
+			totalWeight += (weightSnapshots[i] = arrayList.get(i).getWeight());
+		}
+
+		boolean allSameWeight = true;
+		for (int i = 1; i < count; i++) {
+			if (weightSnapshots[0] != weightSnapshots[i]) {
+				allSameWeight = false;
+				break;
+			}
+		}
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (!allSameWeight && totalWeight > 0) {
+			int offset = random.nextInt(totalWeight);
+			for (int i = 0; i < count; i++) {
+				offset -= weightSnapshots[i];
+				if (offset < 0) {
+					return arrayList.get(i);
+				}
+			}
+		}
+		return arrayList.get(random.nextInt(count));
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.laopopo.example.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.transport.body.RequestCustomBody;
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.decode.RemotingTransporterDecoder;
+import org.laopopo.remoting.netty.encode.RemotingTransporterEncoder;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 对比RemotingTransporterDecoder拷贝byte[]的解码方式和零拷贝的解码方式，每个请求在解码和反序列化过程中分配的字节数
+ * 请求体和big_request中的一样是一个100k左右的参数，帧从池化的ByteBuf中读入
+ * 分配字节数通过com.sun.management.ThreadMXBean统计，只支持HotSpot
+ * @time 2016年10月22日
+ * @modifytime
+ */
+public class ZeroCopyDecodeBenchmark {
+
+	private static final int WARMUP = 20000;
+	private static final int REQUESTS = 20000;
+	private static final int[] BODY_SIZES = { 1024, 100 * 1024 };
+
+	public static void main(String[] args) {
+
+		for (int bodySize : BODY_SIZES) {
+			ByteBuf frame = encodeFrame(bodySize);
+
+			run(frame, false, WARMUP);
+			run(frame, true, WARMUP);
+
+			long copy = run(frame, false, REQUESTS);
+			long zeroCopy = run(frame, true, REQUESTS);
+
+			System.out.println("frame size: " + frame.readableBytes() + " bytes");
+			System.out.println("    copy decode      : " + copy / REQUESTS + " bytes allocated per request");
+			System.out.println("    zero copy decode : " + zeroCopy / REQUESTS + " bytes allocated per request");
+			frame.release();
+		}
+	}
+
+	private static ByteBuf encodeFrame(int bodySize) {
+		char[] chars = new char[bodySize];
+		Arrays.fill(chars, 'a');
+
+		RequestCustomBody body = new RequestCustomBody();
+		body.setServiceName("LAOPOPO.TEST.SAYHELLO");
+		body.setArgs(new Object[] { new String(chars) });
+		body.setTimestamp(System.currentTimeMillis());
+
+		EmbeddedChannel channel = new EmbeddedChannel(new RemotingTransporterEncoder());
+		channel.writeOutbound(RemotingTransporter.createRequestTransporter(LaopopoProtocol.RPC_REQUEST, body));
+		ByteBuf encoded = (ByteBuf) channel.readOutbound();
+		ByteBuf frame = Unpooled.copiedBuffer(encoded);
+		encoded.release();
+		channel.finish();
+		return frame;
+	}
+
+	private static long run(ByteBuf frame, boolean zeroCopy, int requests) {
+		EmbeddedChannel channel = new EmbeddedChannel(new RemotingTransporterDecoder(zeroCopy));
+		com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long begin = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < requests; i++) {
+			ByteBuf in = PooledByteBufAllocator.DEFAULT.buffer(frame.readableBytes());
+			in.writeBytes(frame, frame.readerIndex(), frame.readableBytes());
+			channel.writeInbound(in);
+			RemotingTransporter transporter = (RemotingTransporter) channel.readInbound();
+			transporter.readBody(RequestCustomBody.class);
+		}
+		long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - begin;
+		channel.finish();
+		return allocated;
+	}
+
+}
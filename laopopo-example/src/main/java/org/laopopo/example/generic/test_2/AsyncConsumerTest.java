@@ -0,0 +1,61 @@
+package org.laopopo.example.generic.test_2;
+
+import org.laopopo.client.consumer.Consumer.SubscribeManager;
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.ConsumerConfig;
+import org.laopopo.client.consumer.future.InvokeFuture;
+import org.laopopo.client.consumer.future.InvokeFutureContext;
+import org.laopopo.client.consumer.future.InvokeFutureListener;
+import org.laopopo.client.consumer.proxy.InvokeType;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.remoting.netty.NettyClientConfig;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 异步调用的测试，代理方法立即返回，通过{@link InvokeFutureContext}拿到结果的future
+ * @time 2016年10月20日
+ * @modifytime
+ */
+public class AsyncConsumerTest {
+	
+	public static void main(String[] args) throws Exception {
+		
+		NettyClientConfig registryNettyClientConfig = new NettyClientConfig();
+		registryNettyClientConfig.setDefaultAddress("127.0.0.1:18010");
+
+		NettyClientConfig provideClientConfig = new NettyClientConfig();
+
+		ConsumerClient client = new ConsumerClient(registryNettyClientConfig, provideClientConfig, new ConsumerConfig());
+
+		client.start();
+		
+		SubscribeManager subscribeManager = client.subscribeService("LAOPOPO.TEST.SAYHELLO");
+
+		if (!subscribeManager.waitForAvailable(3000l)) {
+			throw new Exception("no service provider");
+		}
+		
+		HelloService helloService = ProxyFactory.factory(HelloService.class).consumer(client).timeoutMillis(3000l).invokeType(InvokeType.ASYNC).newProxyInstance();
+		
+		helloService.sayHello("Lyncc");
+		
+		InvokeFuture<String> future = InvokeFutureContext.future(String.class);
+		
+		future.addListener(new InvokeFutureListener<String>() {
+
+			@Override
+			public void operationSuccess(String result) {
+				System.out.println("listener:" + result);
+			}
+
+			@Override
+			public void operationFailure(Throwable cause) {
+				cause.printStackTrace();
+			}
+		});
+		
+		System.out.println(future.get());
+	}
+
+}
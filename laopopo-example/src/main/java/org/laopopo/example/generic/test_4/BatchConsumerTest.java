@@ -0,0 +1,60 @@
+package org.laopopo.example.generic.test_4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.ConsumerConfig;
+import org.laopopo.client.consumer.proxy.InvokeType;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.common.utils.UnresolvedAddress;
+import org.laopopo.remoting.netty.NettyClientConfig;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 测试consumer直连provider的批量调用，多个线程并发调用，1ms内发往provider的调用合并成一个批量请求
+ * @time 2016年10月25日
+ * @modifytime
+ */
+public class BatchConsumerTest {
+
+	public static void main(String[] args) throws Exception {
+
+		ConsumerConfig consumerConfig = new ConsumerConfig();
+		consumerConfig.setBatchWindowMicros(1000);
+		consumerConfig.setBatchMaxSize(32);
+
+		ConsumerClient client = new ConsumerClient(new NettyClientConfig(), consumerConfig);
+
+		client.start();
+
+		UnresolvedAddress addresses = new UnresolvedAddress("127.0.0.1", 8899);
+
+		final HelloService helloService = ProxyFactory.factory(HelloService.class).consumer(client).addProviderAddress(addresses).timeoutMillis(3000l).invokeType(InvokeType.BATCH).newProxyInstance();
+
+		final int threads = 16;
+		final int calls = 1000;
+		final AtomicInteger success = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(threads);
+
+		for (int i = 0; i < threads; i++) {
+			final String name = "Lyncc" + i;
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < calls; j++) {
+						if (null != helloService.sayHello(name)) {
+							success.incrementAndGet();
+						}
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		latch.await();
+		System.out.println("success calls: " + success.get() + "/" + threads * calls);
+	}
+
+}
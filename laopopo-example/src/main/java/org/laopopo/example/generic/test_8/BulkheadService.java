@@ -0,0 +1,13 @@
+package org.laopopo.example.generic.test_8;
+
+import org.laopopo.client.annotation.RPConsumer;
+
+public interface BulkheadService {
+
+	@RPConsumer(serviceName="LAOPOPO.TEST.SLOW")
+	String slow(String str);
+	
+	@RPConsumer(serviceName="LAOPOPO.TEST.FAST")
+	String fast(String str);
+	
+}
@@ -0,0 +1,23 @@
+package org.laopopo.example.generic.test_8;
+
+import org.laopopo.client.annotation.RPCService;
+
+public class BulkheadServiceImpl implements BulkheadService {
+
+	@Override
+	@RPCService(responsibilityName="xiaoy",serviceName="LAOPOPO.TEST.SLOW",executorThreads = 2,executorQueueSize = 4)
+	public String slow(String str) {
+		try {
+			Thread.sleep(200);
+		} catch (InterruptedException e) {
+		}
+		return "slow " + str;
+	}
+
+	@Override
+	@RPCService(responsibilityName="xiaoy",serviceName="LAOPOPO.TEST.FAST")
+	public String fast(String str) {
+		return "fast " + str;
+	}
+
+}
@@ -0,0 +1,64 @@
+package org.laopopo.example.generic.test_8;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.common.utils.UnresolvedAddress;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 32个线程持续调用慢服务，同时调用快服务，慢服务超出线程池容量的调用被快速拒绝，快服务的耗时不受影响
+ * @time 2016年10月26日
+ * @modifytime
+ */
+public class ConsumerTest {
+	
+	public static void main(String[] args) throws Exception {
+		
+		ConsumerClient client = new ConsumerClient();
+
+		client.start();
+		
+		UnresolvedAddress addresses = new UnresolvedAddress("127.0.0.1", 8899);
+		
+		final BulkheadService service = ProxyFactory.factory(BulkheadService.class).consumer(client).addProviderAddress(addresses).timeoutMillis(3000l).newProxyInstance();
+		
+		//预热，同时建立连接
+		service.fast("Lyncc");
+		
+		final int threads = 32;
+		final int calls = 10;
+		final AtomicInteger success = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					for (int j = 0; j < calls; j++) {
+						//被拒绝的调用返回null
+						if (null != service.slow("Lyncc")) {
+							success.incrementAndGet();
+						}
+					}
+					latch.countDown();
+				}
+			}).start();
+		}
+		
+		long maxCost = 0;
+		while (latch.getCount() > 0) {
+			long begin = System.currentTimeMillis();
+			service.fast("Lyncc");
+			maxCost = Math.max(maxCost, System.currentTimeMillis() - begin);
+			Thread.sleep(10);
+		}
+		System.out.println("slow service success calls: " + success.get() + "/" + threads * calls);
+		System.out.println("fast service max cost: " + maxCost + " ms");
+		System.exit(0);
+	}
+
+}
@@ -0,0 +1,25 @@
+package org.laopopo.example.generic.test_8;
+
+import org.laopopo.client.provider.DefaultProvider;
+import org.laopopo.common.exception.remoting.RemotingException;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 慢服务LAOPOPO.TEST.SLOW使用2个线程，队列长度为4的独立线程池，快服务LAOPOPO.TEST.FAST使用公共的线程池
+ * @time 2016年10月26日
+ * @modifytime
+ */
+public class ProviderTest {
+
+	public static void main(String[] args) throws InterruptedException, RemotingException {
+
+		DefaultProvider defaultProvider = new DefaultProvider();
+
+		defaultProvider.serviceListenPort(8899) // 暴露服务的地址
+				.publishService(new BulkheadServiceImpl()) // 暴露的服务
+				.start(); // 启动服务
+
+	}
+
+}
@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * @author BazingaLyn
+ * @description 服务独立线程池(舱壁隔离)的测试，慢服务打满自己的线程池之后快速返回HANDLER_BUSY，快服务不受影响
+ * @time 2016年10月26日
+ * @modifytime
+ */
+package org.laopopo.example.generic.test_8;
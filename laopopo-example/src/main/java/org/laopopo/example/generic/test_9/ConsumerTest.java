@@ -0,0 +1,35 @@
+package org.laopopo.example.generic.test_9;
+
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.common.utils.UnresolvedAddress;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 以1000ms和100ms的超时时间调用LAOPOPO.TEST.OUTER，100ms的时候嵌套调用只有大约20ms的预算，在20ms左右超时返回
+ * @time 2016年10月26日
+ * @modifytime
+ */
+public class ConsumerTest {
+	
+	public static void main(String[] args) throws Exception {
+		
+		ConsumerClient client = new ConsumerClient();
+
+		client.start();
+		
+		UnresolvedAddress addresses = new UnresolvedAddress("127.0.0.1", 8899);
+		
+		DeadlineService service = ProxyFactory.factory(DeadlineService.class).consumer(client).addProviderAddress(addresses).timeoutMillis(1000l).newProxyInstance();
+		System.out.println("timeout 1000ms: " + service.outer("Lyncc"));
+		
+		DeadlineService shortService = ProxyFactory.factory(DeadlineService.class).consumer(client).addProviderAddress(addresses).timeoutMillis(100l).newProxyInstance();
+		System.out.println("timeout 100ms: " + shortService.outer("Lyncc"));
+		
+		//等待provider端打印嵌套调用的结果
+		Thread.sleep(200);
+		System.exit(0);
+	}
+
+}
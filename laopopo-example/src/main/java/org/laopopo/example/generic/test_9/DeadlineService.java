@@ -0,0 +1,13 @@
+package org.laopopo.example.generic.test_9;
+
+import org.laopopo.client.annotation.RPConsumer;
+
+public interface DeadlineService {
+
+	@RPConsumer(serviceName="LAOPOPO.TEST.OUTER")
+	String outer(String str);
+	
+	@RPConsumer(serviceName="LAOPOPO.TEST.INNER")
+	String inner(String str);
+	
+}
@@ -0,0 +1,38 @@
+package org.laopopo.example.generic.test_9;
+
+import org.laopopo.client.annotation.RPCService;
+
+public class DeadlineServiceImpl implements DeadlineService {
+	
+	//调用LAOPOPO.TEST.INNER的代理，超时时间配置的是3000ms
+	private DeadlineService nested;
+	
+	public void setNested(DeadlineService nested) {
+		this.nested = nested;
+	}
+
+	@Override
+	@RPCService(responsibilityName="xiaoy",serviceName="LAOPOPO.TEST.OUTER")
+	public String outer(String str) {
+		sleep(80);
+		long begin = System.currentTimeMillis();
+		//嵌套调用只剩下大约20ms的预算，而不是配置的3000ms
+		String result = nested.inner(str);
+		return "outer(" + result + ") nested call cost " + (System.currentTimeMillis() - begin) + " ms";
+	}
+
+	@Override
+	@RPCService(responsibilityName="xiaoy",serviceName="LAOPOPO.TEST.INNER")
+	public String inner(String str) {
+		sleep(50);
+		return "inner " + str;
+	}
+	
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package org.laopopo.example.generic.test_9;
+
+import org.laopopo.client.consumer.ConsumerClient;
+import org.laopopo.client.consumer.proxy.ProxyFactory;
+import org.laopopo.client.provider.DefaultProvider;
+import org.laopopo.common.exception.remoting.RemotingException;
+import org.laopopo.common.utils.UnresolvedAddress;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description LAOPOPO.TEST.OUTER执行80ms之后再调用本实例的LAOPOPO.TEST.INNER(执行50ms)
+ * @time 2016年10月26日
+ * @modifytime
+ */
+public class ProviderTest {
+
+	public static void main(String[] args) throws InterruptedException, RemotingException {
+
+		ConsumerClient client = new ConsumerClient();
+		client.start();
+		DeadlineService nested = ProxyFactory.factory(DeadlineService.class).consumer(client).addProviderAddress(new UnresolvedAddress("127.0.0.1", 8899))
+				.timeoutMillis(3000l).newProxyInstance();
+		
+		DeadlineServiceImpl service = new DeadlineServiceImpl();
+		service.setNested(nested);
+
+		DefaultProvider defaultProvider = new DefaultProvider();
+
+		defaultProvider.serviceListenPort(8899) // 暴露服务的地址
+				.publishService(service) // 暴露的服务
+				.start(); // 启动服务
+
+	}
+
+}
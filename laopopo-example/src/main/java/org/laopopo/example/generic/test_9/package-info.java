@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * @author BazingaLyn
+ * @description 调用截止时间传递的测试，服务中发起的嵌套调用继承上游调用剩余的时间预算
+ * @time 2016年10月26日
+ * @modifytime
+ */
+package org.laopopo.example.generic.test_9;
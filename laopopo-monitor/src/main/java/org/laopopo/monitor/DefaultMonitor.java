@@ -13,6 +13,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
+import org.laopopo.common.rpc.ConsumerMetricsReporter;
 import org.laopopo.common.rpc.MetricsReporter;
 import org.laopopo.common.rpc.RegisterMeta;
 import org.laopopo.common.rpc.RegisterMeta.Address;
@@ -37,7 +38,7 @@ import com.alibaba.fastjson.JSON;
  * 3)当管理着发送统计的命令给monitor端的时候，需要做统计的操作给管理端
  * 4)防止monitor实例宕机，需要每隔一段时间
  * @time 2016年8月15日
- * @modifytime
+ * @modifytime 2016年10月27日 保存consumer上报的按照服务和提供者统计的调用信息
  */
 public class DefaultMonitor implements MonitorNode {
 
@@ -55,6 +56,8 @@ public class DefaultMonitor implements MonitorNode {
 	private ConcurrentMap<String, ConcurrentMap<Address, MetricsReporter>> historyGlobalMetricsReporter = new ConcurrentHashMap<String, ConcurrentMap<Address, MetricsReporter>>();
 	// key为服务提供者实例与监控中心之间的channel，val是一个集合，因为有VIP的服务的原因，可能一个实例有2个端口，服务提供者的实例 它提供服务的监听端口
 	private ConcurrentMap<Channel, ConcurrentSet<Address>> globalProviderReporter = new ConcurrentHashMap<Channel, ConcurrentSet<Address>>();
+	// consumer上报的统计信息 key是服务名，value的key是consumer的host和提供者的地址
+	private ConcurrentMap<String, ConcurrentMap<String, ConsumerMetricsReporter>> globalConsumerMetricsReporter = new ConcurrentHashMap<String, ConcurrentMap<String, ConsumerMetricsReporter>>();
 	// //定时任务
 	private final ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("monitor-timer"));
 
@@ -179,6 +182,10 @@ public class DefaultMonitor implements MonitorNode {
 		this.globalProviderReporter = globalProviderReporter;
 	}
 
+	public ConcurrentMap<String, ConcurrentMap<String, ConsumerMetricsReporter>> getGlobalConsumerMetricsReporter() {
+		return globalConsumerMetricsReporter;
+	}
+
 	public MonitorConfig getMonitorConfig() {
 		return monitorConfig;
 	}
@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.laopopo.common.metrics.LatencyHistogram;
 import org.laopopo.common.rpc.MetricsReporter;
 import org.laopopo.common.rpc.RegisterMeta;
 import org.laopopo.common.rpc.RegisterMeta.Address;
@@ -22,7 +23,7 @@ import org.slf4j.LoggerFactory;
  *              当某个服务提供者宕机的时候，会与monitor端之间的链接inactive，此时需要将这个服务器提供的所有的服务调用的次数的信息全部持久化到硬盘
  *              中，防止数据丢失
  * @time 2016年9月7日
- * @modifytime
+ * @modifytime 2016年10月27日 耗时直方图合并到历史统计中
  */
 public class DefaultMonitorChannelInactiveProcessor implements NettyChannelInactiveProcessor {
 
@@ -72,6 +73,8 @@ public class DefaultMonitorChannelInactiveProcessor implements NettyChannelInact
 								historyMetricsReporter.setCallCount(historyMetricsReporter.getCallCount() + metricsReporter.getCallCount());
 								historyMetricsReporter.setFailCount(historyMetricsReporter.getFailCount() + metricsReporter.getFailCount());
 								historyMetricsReporter.setTotalReuqestTime(historyMetricsReporter.getTotalReuqestTime() + metricsReporter.getTotalReuqestTime());
+								historyMetricsReporter.setLatencyBuckets(LatencyHistogram.merge(historyMetricsReporter.getLatencyBuckets(), metricsReporter.getLatencyBuckets()));
+								historyMetricsReporter.setMaxLatency(Math.max(historyMetricsReporter.getMaxLatency(), metricsReporter.getMaxLatency()));
 							}
 						}
 						
@@ -86,6 +89,8 @@ public class DefaultMonitorChannelInactiveProcessor implements NettyChannelInact
 						metricsReporter.setCallCount(0l);
 						metricsReporter.setFailCount(0l);
 						metricsReporter.setTotalReuqestTime(0l);
+						metricsReporter.setLatencyBuckets(null);
+						metricsReporter.setMaxLatency(0l);
 					}
 				}
 			}
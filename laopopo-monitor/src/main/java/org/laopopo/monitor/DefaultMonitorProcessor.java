@@ -1,5 +1,6 @@
 package org.laopopo.monitor;
 
+import static org.laopopo.common.protocal.LaopopoProtocol.CONSUMER_MERTRICS_SERVICE;
 import static org.laopopo.common.protocal.LaopopoProtocol.MANAGER_SERVICE;
 import static org.laopopo.common.protocal.LaopopoProtocol.MERTRICS_SERVICE;
 import static org.laopopo.common.serialization.SerializerHolder.serializerImpl;
@@ -12,13 +13,17 @@ import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.laopopo.common.metrics.LatencyHistogram;
+import org.laopopo.common.metrics.LatencyPercentiles;
 import org.laopopo.common.metrics.ServiceMetrics;
 import org.laopopo.common.metrics.ServiceMetrics.ProviderInfo;
 import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.rpc.ConsumerMetricsReporter;
 import org.laopopo.common.rpc.ManagerServiceRequestType;
 import org.laopopo.common.rpc.MetricsReporter;
 import org.laopopo.common.rpc.RegisterMeta;
 import org.laopopo.common.rpc.RegisterMeta.Address;
+import org.laopopo.common.transport.body.ConsumerMetricsCustomBody;
 import org.laopopo.common.transport.body.ManagerServiceCustomBody;
 import org.laopopo.common.transport.body.MetricsCustomBody;
 import org.laopopo.common.transport.body.ProviderMetricsCustomBody;
@@ -33,7 +38,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description monitor的处理器
  * @time 2016年8月17日
- * @modifytime
+ * @modifytime 2016年10月27日 合并各个提供者的耗时直方图，根据合并之后的直方图计算服务和提供者的耗时分位数；接收consumer端的统计信息
  */
 public class DefaultMonitorProcessor implements NettyRequestProcessor {
 	
@@ -61,6 +66,8 @@ public class DefaultMonitorProcessor implements NettyRequestProcessor {
 				  return handlerMetricsService(request,ctx.channel());
 			  case MANAGER_SERVICE: 
 				  return handlerManagerService(request,ctx.channel());
+			  case CONSUMER_MERTRICS_SERVICE: //和provider的统计一样，没有收到就丢弃
+				  return handlerConsumerMetricsService(request,ctx.channel());
 		}
 		return null;
 	}
@@ -84,6 +91,11 @@ public class DefaultMonitorProcessor implements NettyRequestProcessor {
 			buildMetrics(maps,metrics);
 			//从持久化信息中返回
 			buildMetrics(historyMaps,metrics);
+			//consumer端看到的每个提供者的调用情况
+			ConcurrentMap<String, ConsumerMetricsReporter> consumerMaps = defaultMonitor.getGlobalConsumerMetricsReporter().get(serviceName);
+			if(null != consumerMaps){
+				metrics.setConsumerMetricsReporters(new ArrayList<ConsumerMetricsReporter>(consumerMaps.values()));
+			}
 			List<ServiceMetrics> serviceMetricses = new ArrayList<ServiceMetrics>();
 			serviceMetricses.add(metrics);
 			metricsCustomBody.setServiceMetricses(serviceMetricses);
@@ -91,6 +103,12 @@ public class DefaultMonitorProcessor implements NettyRequestProcessor {
 		return remotingTransporter;
 	}
 
+	/**
+	 * 将provider上报的统计合并到metrics中，当前的统计和持久化的历史统计会先后合并到同一个metrics
+	 * 耗时的分位数不能直接平均，合并的是直方图的桶计数，每次合并之后根据合并的结果重新计算分位数
+	 * @param maps
+	 * @param metrics
+	 */
 	private void buildMetrics(ConcurrentMap<Address, MetricsReporter> maps, ServiceMetrics metrics) {
 
 		if (null != maps) {
@@ -137,7 +155,15 @@ public class DefaultMonitorProcessor implements NettyRequestProcessor {
 				info.setFailCount(info.getFailCount() + failCount);
 				info.setRequestSize(info.getRequestSize() + requestSize);
 
+				long maxLatency = metricsReporter.getMaxLatency() == null ? 0l : metricsReporter.getMaxLatency();
+				info.setLatencyBuckets(LatencyHistogram.merge(info.getLatencyBuckets(), metricsReporter.getLatencyBuckets()));
+				info.setMaxLatency(Math.max(info.getMaxLatency(), maxLatency));
+				info.setLatencyPercentiles(LatencyPercentiles.of(info.getLatencyBuckets(), info.getMaxLatency()));
+
+				metrics.setLatencyBuckets(LatencyHistogram.merge(metrics.getLatencyBuckets(), metricsReporter.getLatencyBuckets()));
+				metrics.setMaxLatency(Math.max(metrics.getMaxLatency(), maxLatency));
 			}
+			metrics.setLatencyPercentiles(LatencyPercentiles.of(metrics.getLatencyBuckets(), metrics.getMaxLatency()));
 			metrics.setTotalCallCount(metrics.getTotalCallCount() + totalCallCount);
 			metrics.setTotalFailCount(metrics.getTotalFailCount() + totalFailCount);
 			Long existTotalTime = (metrics.getTotalCallCount() - metrics.getTotalFailCount()) * metrics.getHandlerAvgTime();
@@ -156,6 +182,40 @@ public class DefaultMonitorProcessor implements NettyRequestProcessor {
 
 	}
 
+	/**
+	 * 处理consumer发送过来的统计信息，和provider一样是全量信息，直接替换
+	 * @param request
+	 * @param channel
+	 * @return
+	 */
+	private RemotingTransporter handlerConsumerMetricsService(RemotingTransporter request, Channel channel) {
+		
+		ConsumerMetricsCustomBody body = serializerImpl().readObject(request.bytes(),ConsumerMetricsCustomBody.class);
+		
+		if(body.getMetricsReporter() != null && !body.getMetricsReporter().isEmpty()){
+			
+			String host = ConnectionUtils.parseChannelRemoteAddress(channel).getHost();
+			
+			for(ConsumerMetricsReporter metricsReporter : body.getMetricsReporter()){
+				
+				metricsReporter.setConsumerHost(host);
+				
+				String serviceName = metricsReporter.getServiceName();
+				ConcurrentMap<String, ConsumerMetricsReporter> maps = defaultMonitor.getGlobalConsumerMetricsReporter().get(serviceName);
+				if(maps == null){
+					ConcurrentMap<String, ConsumerMetricsReporter> newMaps = new ConcurrentHashMap<String, ConsumerMetricsReporter>();
+					maps = defaultMonitor.getGlobalConsumerMetricsReporter().putIfAbsent(serviceName, newMaps);
+					if(maps == null){
+						maps = newMaps;
+					}
+				}
+				maps.put(host + "->" + metricsReporter.getProviderHost() + ":" + metricsReporter.getProviderPort(), metricsReporter);
+			}
+		}
+		
+		return null;
+	}
+
 	/**
 	 * 处理服务提供者发送过来的统计信息
 	 * 这边需要注意的是，因为服务提供端不是按照时间段去统计的，而是从服务启动的时候就开始统计，也就说服务提供端发送过来的信息是全量信息，不是增量信息
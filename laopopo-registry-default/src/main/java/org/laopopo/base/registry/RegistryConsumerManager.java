@@ -26,7 +26,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description 注册中心模块消费端的管理
  * @time 2016年8月15日
- * @modifytime
+ * @modifytime 2016年10月27日 通知订阅者某个服务的负载均衡策略修改
  */
 public class RegistryConsumerManager {
 
@@ -71,6 +71,26 @@ public class RegistryConsumerManager {
 
 	}
 
+	/**
+	 * 通知订阅者某个服务的负载均衡策略修改了
+	 * @param serviceName
+	 * @param loadBalanceStrategy
+	 * @throws RemotingSendRequestException
+	 * @throws RemotingTimeoutException
+	 * @throws InterruptedException
+	 */
+	public void notifyMacthedSubscriberLoadBalance(String serviceName, LoadBalanceStrategy loadBalanceStrategy) throws RemotingSendRequestException, RemotingTimeoutException, InterruptedException {
+
+		SubcribeResultCustomBody subcribeResultCustomBody = new SubcribeResultCustomBody();
+		subcribeResultCustomBody.setServiceName(serviceName);
+		subcribeResultCustomBody.setLoadBalanceStrategy(loadBalanceStrategy);
+
+		RemotingTransporter sendConsumerRemotingTrasnporter = RemotingTransporter.createRequestTransporter(LaopopoProtocol.CHANGE_LOADBALANCE,
+				subcribeResultCustomBody);
+
+		pushMessageToConsumer(sendConsumerRemotingTrasnporter, serviceName);
+	}
+
 	/**
 	 * 通知订阅者某个服务取消
 	 * @param meta
@@ -49,7 +49,7 @@ import com.alibaba.fastjson.JSON;
  * @description 注册服务中心端的provider侧的管理
  * 
  * @time 2016年8月15日
- * @modifytime
+ * @modifytime 2016年10月27日 修改负载均衡策略之后保存下来并通知该服务的订阅者
  */
 public class RegistryProviderManager implements RegistryProviderServer {
 
@@ -241,13 +241,16 @@ public class RegistryProviderManager implements RegistryProviderServer {
 	}
 
 	/**
-	 * 修改某个服务的负载均衡的策略
+	 * 修改某个服务的负载均衡的策略，修改之后持久化，并通知该服务所有的订阅者
 	 * 
 	 * @param opaque
 	 * @param managerServiceCustomBody
 	 * @return
+	 * @throws InterruptedException 
+	 * @throws RemotingTimeoutException 
+	 * @throws RemotingSendRequestException 
 	 */
-	private RemotingTransporter handleModifyLoadBalance(long opaque, ManagerServiceCustomBody managerServiceCustomBody) {
+	private RemotingTransporter handleModifyLoadBalance(long opaque, ManagerServiceCustomBody managerServiceCustomBody) throws RemotingSendRequestException, RemotingTimeoutException, InterruptedException {
 
 		AckCustomBody ackCustomBody = new AckCustomBody(opaque, false);
 		RemotingTransporter responseTransporter = RemotingTransporter.createResponseTransporter(LaopopoProtocol.ACK, ackCustomBody, opaque);
@@ -255,6 +258,11 @@ public class RegistryProviderManager implements RegistryProviderServer {
 		String serviceName = managerServiceCustomBody.getSerivceName();
 		LoadBalanceStrategy balanceStrategy = managerServiceCustomBody.getLoadBalanceStrategy();
 
+		if (null == balanceStrategy) {
+			return responseTransporter;
+		}
+
+		boolean changed = false;
 		synchronized (globalServiceLoadBalance) {
 			LoadBalanceStrategy currentLoadBalanceStrategy = globalServiceLoadBalance.get(serviceName);
 
@@ -265,11 +273,20 @@ public class RegistryProviderManager implements RegistryProviderServer {
 			ackCustomBody.setSuccess(true);
 
 			if (currentLoadBalanceStrategy != balanceStrategy) {
-				currentLoadBalanceStrategy = balanceStrategy;
-
+				globalServiceLoadBalance.put(serviceName, balanceStrategy);
+				RegistryPersistRecord persistRecord = historyRecords.get(serviceName);
+				if (null != persistRecord) {
+					persistRecord.setBalanceStrategy(balanceStrategy);
+				}
+				changed = true;
 			}
 		}
 
+		// 在锁外通知订阅者，consumer收到CHANGE_LOADBALANCE之后切换该服务的负载均衡策略
+		if (changed) {
+			this.defaultRegistryServer.getConsumerManager().notifyMacthedSubscriberLoadBalance(serviceName, balanceStrategy);
+		}
+
 		return responseTransporter;
 	}
 
@@ -6,22 +6,30 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
 
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.laopopo.common.exception.remoting.RemotingSendRequestException;
 import org.laopopo.common.exception.remoting.RemotingTimeoutException;
 import org.laopopo.common.protocal.LaopopoProtocol;
 import org.laopopo.common.utils.Pair;
+import org.laopopo.common.utils.StripedLongObjectMap;
+import org.laopopo.common.utils.SystemClock;
 import org.laopopo.remoting.model.NettyChannelInactiveProcessor;
 import org.laopopo.remoting.model.NettyRequestProcessor;
 import org.laopopo.remoting.model.RemotingResponse;
 import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.PipelineModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,14 +39,14 @@ import org.slf4j.LoggerFactory;
  * @description netty C/S 端的客户端提取，子类去完全netty的一些创建的事情，该抽象类则取完成使用子类创建好的channel去与远程端交互
  *  
  * @time 2016年8月10日10:57:27
- * @modifytime
+ * @modifytime 2016年10月27日 异步调用的超时由时间轮负责清理，并统计超时和迟到的响应数；responseTable换成key为long的分段Map；IO_THREAD模式下请求直接在IO线程中处理；记录请求到达的时间，包括纳秒时间；异步调用可以取消，被取消和迟到的响应只在debug级别打印；HANDLER_BUSY和HANDLER_ERROR的回复修正code和传输类型的顺序，consumer端才能收到；IO_THREAD模式下只有注册为IO线程执行的处理器在IO线程中处理
  */
 public abstract class NettyRemotingBase {
 	
 	private static final Logger logger = LoggerFactory.getLogger(NettyRemotingBase.class);
 	
-	/******key为请求的opaque value是远程返回的结果封装类******/
-	protected final ConcurrentHashMap<Long, RemotingResponse> responseTable = new ConcurrentHashMap<Long, RemotingResponse>(256);
+	/******key为请求的opaque value是远程返回的结果封装类，key不装箱******/
+	protected final StripedLongObjectMap<RemotingResponse> responseTable = new StripedLongObjectMap<RemotingResponse>();
 	
 	//如果使用者没有对创建的Netty网络段注入某个特定请求的处理器的时候，默认使用该默认的处理器
 	protected Pair<NettyRequestProcessor, ExecutorService> defaultRequestProcessor;
@@ -56,7 +64,16 @@ public abstract class NettyRemotingBase {
         }
     });
 	
-	//注入的某个requestCode对应的处理器放入到HashMap中，键值对一一匹配
+	//在时间轮中被判定超时的请求数
+	private final AtomicLong expiredResponseCount = new AtomicLong();
+	//超时之后才返回的响应数，这些响应在responseTable中已经找不到对应的请求了
+	private final AtomicLong lateResponseCount = new AtomicLong();
+	//处理器线程池饱和，直接回复HANDLER_BUSY的请求数
+	private final AtomicLong busyRejectedCount = new AtomicLong();
+	//被调用者取消的异步调用数，比如对冲请求中输掉的那一个
+	private final AtomicLong cancelledResponseCount = new AtomicLong();
+	
+	//注入的某个requestCode对应的处理器放入到HashMap中，键值对一一匹配，线程池为null的处理器注册为在IO线程中执行，参见{@link #ioThreadProcessor}
 	protected final HashMap<Byte/* request code */, Pair<NettyRequestProcessor, ExecutorService>> processorTable =
             new HashMap<Byte, Pair<NettyRequestProcessor, ExecutorService>>(64);
 	
@@ -107,6 +124,99 @@ public abstract class NettyRemotingBase {
 			this.responseTable.remove(request.getOpaque());
 		}
 	}
+
+	/**
+	 * 远程端的异步调用实现，调用线程不阻塞，远程端返回结果之后，在netty的IO线程中回调invokeCallback
+	 * @param channel
+	 * @param request
+	 * @param timeoutMillis
+	 * @param invokeCallback
+	 */
+	public void invokeAsyncImpl(final Channel channel, final RemotingTransporter request, final long timeoutMillis, final InvokeCallback invokeCallback) {
+
+		final RemotingResponse remotingResponse = new RemotingResponse(request.getOpaque(), timeoutMillis, invokeCallback);
+		this.responseTable.put(request.getOpaque(), remotingResponse);
+
+		//没有调用线程去等待结果，所以超时交给时间轮处理，到期之后仍然在篮子中的请求就是超时了
+		Timer timer = getTimer();
+		if (null != timer) {
+			remotingResponse.setTimeout(timer.newTimeout(new TimerTask() {
+
+				@Override
+				public void run(Timeout timeout) throws Exception {
+					expireResponse(channel, request.getOpaque());
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS));
+		}
+
+		channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+
+			@Override
+			public void operationComplete(ChannelFuture future) throws Exception {
+				if (future.isSuccess()) {
+					remotingResponse.setSendRequestOK(true);
+					return;
+				}
+				remotingResponse.setSendRequestOK(false);
+				//发送失败，同步调用一样，需要从篮子中移除，并且直接回调告知调用者
+				if (null == responseTable.remove(request.getOpaque())) {
+					//已经被超时任务处理过了
+					return;
+				}
+				remotingResponse.cancelTimeout();
+				remotingResponse.setCause(future.cause());
+				remotingResponse.putResponse(null);
+				executeInvokeCallback(remotingResponse);
+				logger.warn("use channel [{}] send async msg [{}] failed and failed reason is [{}]", channel, request, future.cause().getMessage());
+			}
+		});
+	}
+	
+	/**
+	 * 取消一个还没有返回的异步调用，从responseTable中移除并取消超时任务，不会再回调调用者
+	 * 之后到达的响应按照迟到的响应丢弃
+	 * @param opaque
+	 * @return 请求已经返回，超时或者发送失败(回调已经或者即将执行)的时候返回false
+	 */
+	public boolean cancelResponse(long opaque) {
+		final RemotingResponse remotingResponse = responseTable.remove(opaque);
+		if (null == remotingResponse) {
+			return false;
+		}
+		remotingResponse.cancelTimeout();
+		cancelledResponseCount.incrementAndGet();
+		return true;
+	}
+	
+	/**
+	 * 时间轮中的超时任务到期，如果请求还没有返回则将其移除，并以{@link RemotingTimeoutException}回调调用者
+	 * @param channel
+	 * @param opaque
+	 */
+	private void expireResponse(Channel channel, long opaque) {
+		final RemotingResponse remotingResponse = responseTable.remove(opaque);
+		if (null == remotingResponse) {
+			return;
+		}
+		expiredResponseCount.incrementAndGet();
+		remotingResponse.setCause(new RemotingTimeoutException(ConnectionUtils.parseChannelRemoteAddr(channel), remotingResponse.getTimeoutMillis()));
+		remotingResponse.putResponse(null);
+		if (remotingResponse.getInvokeCallback() == null) {
+			return;
+		}
+		//回调交给公共线程池执行，不能阻塞时间轮的线程
+		try {
+			publicExecutor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					executeInvokeCallback(remotingResponse);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			executeInvokeCallback(remotingResponse);
+		}
+	}
 	
 	//ChannelRead0方法对应的具体实现
 	protected void processMessageReceived(ChannelHandlerContext ctx, RemotingTransporter msg) {
@@ -160,6 +270,9 @@ public abstract class NettyRemotingBase {
 	
 	protected void processRemotingRequest(final ChannelHandlerContext ctx, final RemotingTransporter remotingTransporter) {
 		
+		//记录请求到达的时间，处理器据此计算请求在线程池中排队的时间
+		remotingTransporter.setTimestamp(SystemClock.millisClock().now());
+		remotingTransporter.setArrivedNanos(System.nanoTime());
 		final Pair<NettyRequestProcessor, ExecutorService> matchedPair = this.processorTable.get(remotingTransporter.getCode());
 		final Pair<NettyRequestProcessor, ExecutorService> pair =
                 null == matchedPair ? this.defaultRequestProcessor : matchedPair;
@@ -192,22 +305,63 @@ public abstract class NettyRemotingBase {
                         }
 					} catch (Exception e) {
 						logger.error("processor occur exception [{}]",e.getMessage());
-						final RemotingTransporter response = RemotingTransporter.newInstance(remotingTransporter.getOpaque(), LaopopoProtocol.RESPONSE_REMOTING, LaopopoProtocol.HANDLER_ERROR, null);
+						remotingTransporter.release();
+						//remoting层不知道具体协议的响应体，consumer端按照HANDLER_ERROR的code处理没有响应体的回复
+						final RemotingTransporter response = RemotingTransporter.newInstance(remotingTransporter.getOpaque(), LaopopoProtocol.HANDLER_ERROR, LaopopoProtocol.RESPONSE_REMOTING, null);
                         ctx.writeAndFlush(response);
 					}
 				}
 			 };
+			 ExecutorService executor = pair.getValue();
+			 if (null == executor) {
+				 //IO_THREAD模式下直接在IO线程中处理，省去一次线程切换，其他模式下交给公共线程池
+				 if (getPipelineModel() == PipelineModel.IO_THREAD) {
+					 run.run();
+					 return;
+				 }
+				 executor = publicExecutor;
+			 }
 			 try {
-				 pair.getValue().submit(run);
+				 executor.submit(run);
 			} catch (Exception e) {
-				logger.error("server is busy,[{}]",e.getMessage());
-				final RemotingTransporter response = RemotingTransporter.newInstance(remotingTransporter.getOpaque(), LaopopoProtocol.RESPONSE_REMOTING, LaopopoProtocol.HANDLER_BUSY, null);
+				busyRejectedCount.incrementAndGet();
+				if (logger.isDebugEnabled()) {
+					logger.debug("server is busy,[{}]",e.getMessage());
+				}
+				remotingTransporter.release();
+				//没有响应体，consumer端按照HANDLER_BUSY的code转换成SERVER_BUSY，可以换一个提供者重试
+				final RemotingTransporter response = RemotingTransporter.newInstance(remotingTransporter.getOpaque(), LaopopoProtocol.HANDLER_BUSY, LaopopoProtocol.RESPONSE_REMOTING, null);
                 ctx.writeAndFlush(response);
 			}
+		 }else{
+			 remotingTransporter.release();
 		 }
 	}
 	
+	/**
+	 * 注册为在IO线程中执行的处理器，处理器不能阻塞，阻塞会拖慢该IO线程上所有的连接
+	 * 只有{@link PipelineModel#IO_THREAD}模式下才在IO线程中执行，其他模式下交给公共线程池执行
+	 * 注册时指定了线程池的处理器在任何模式下都在自己的线程池中执行，比如会阻塞的rpc处理器
+	 * @param processor
+	 * @return
+	 */
+	protected static Pair<NettyRequestProcessor, ExecutorService> ioThreadProcessor(NettyRequestProcessor processor) {
+		return new Pair<NettyRequestProcessor, ExecutorService>(processor, null);
+	}
+	
 	protected abstract RPCHook getRPCHook();
+	
+	/**
+	 * 异步调用超时检测所使用的时间轮
+	 * @return
+	 */
+	protected abstract Timer getTimer();
+	
+	/**
+	 * pipeline中handler和请求处理器的执行线程模型
+	 * @return
+	 */
+	protected abstract PipelineModel getPipelineModel();
 
 	/**
 	 * client处理server端返回的消息的处理
@@ -215,21 +369,71 @@ public abstract class NettyRemotingBase {
 	 * @param remotingTransporter
 	 */
 	protected void processRemotingResponse(ChannelHandlerContext ctx, RemotingTransporter remotingTransporter) {
-		//从缓存篮子里拿出对应请求的对应响应的载体RemotingResponse
-		final RemotingResponse remotingResponse = responseTable.get(remotingTransporter.getOpaque());
+		//从缓存篮子里拿出对应请求的对应响应的载体RemotingResponse，直接remove，避免与超时任务同时处理同一个请求
+		final RemotingResponse remotingResponse = responseTable.remove(remotingTransporter.getOpaque());
 		//不超时的情况下
 		if(null != remotingResponse){
+			remotingResponse.cancelTimeout();
 			//首先先设值，这样会在countdownlatch wait之前把值赋上
 			remotingResponse.setRemotingTransporter(remotingTransporter);
 			//可以直接countdown
 			remotingResponse.putResponse(remotingTransporter);
-			//从篮子中移除
-			responseTable.remove(remotingTransporter.getOpaque());
+			//异步调用的情况下，直接在当前线程中回调
+			executeInvokeCallback(remotingResponse);
 		}else {
-            logger.warn("received response but matched Id is removed from responseTable maybe timeout");
-            logger.warn(remotingTransporter.toString());
+			lateResponseCount.incrementAndGet();
+			remotingTransporter.release();
+			if (logger.isDebugEnabled()) {
+				logger.debug("received response but matched Id is removed from responseTable maybe timeout or cancelled [{}]", remotingTransporter);
+			}
         }
 	}
-	
+
+	/**
+	 * 执行异步调用的回调函数，回调函数中的异常不能影响到netty的IO线程
+	 * @param remotingResponse
+	 */
+	protected void executeInvokeCallback(final RemotingResponse remotingResponse) {
+		if (remotingResponse.getInvokeCallback() == null) {
+			return;
+		}
+		try {
+			remotingResponse.executeInvokeCallback();
+		} catch (Throwable e) {
+			logger.warn("execute invoke callback of opaque [{}] occur exception [{}]", remotingResponse.getOpaque(), e.getMessage());
+		}
+	}
+
+	/**
+	 * 异步调用中被时间轮判定超时的请求数
+	 * @return
+	 */
+	public long getExpiredResponseCount() {
+		return expiredResponseCount.get();
+	}
+
+	/**
+	 * 对应的请求已经不在responseTable中的响应数(大多是超时之后才返回的)
+	 * @return
+	 */
+	public long getLateResponseCount() {
+		return lateResponseCount.get();
+	}
+
+	/**
+	 * 处理器线程池饱和，直接回复HANDLER_BUSY的请求数
+	 * @return
+	 */
+	public long getBusyRejectedCount() {
+		return busyRejectedCount.get();
+	}
+
+	/**
+	 * 被调用者取消的异步调用数
+	 * @return
+	 */
+	public long getCancelledResponseCount() {
+		return cancelledResponseCount.get();
+	}
 	
 }
@@ -1,17 +1,38 @@
 package org.laopopo.remoting.model;
 
+import static org.laopopo.common.serialization.SerializerHolder.serializerImpl;
+import io.netty.buffer.ByteBuf;
+
 /**
- * 
+ *
  * @author BazingaLyn
- * @description 
+ * @description
  * @time 2016年8月9日
- * @modifytime
+ * @modifytime 2016年10月22日 消息体可以是解码器传过来的ByteBuf的retained slice，反序列化之后释放
  */
 public class ByteHolder {
-	
+
 	private transient byte[] bytes;
 
+	//零拷贝解码的时候，消息体是解码器中累积的ByteBuf的一个retained slice，使用之后需要release
+	private transient ByteBuf byteBuf;
+
+    /**
+     * 获取消息体的byte数组，如果消息体是ByteBuf，则拷贝一份byte[]出来并释放ByteBuf
+     * @return
+     */
     public byte[] bytes() {
+    	if (bytes == null && byteBuf != null) {
+    		ByteBuf _byteBuf = byteBuf;
+    		byteBuf = null;
+    		try {
+    			byte[] _bytes = new byte[_byteBuf.readableBytes()];
+    			_byteBuf.getBytes(_byteBuf.readerIndex(), _bytes);
+    			bytes = _bytes;
+    		} finally {
+    			_byteBuf.release();
+    		}
+    	}
         return bytes;
     }
 
@@ -19,8 +40,44 @@ public class ByteHolder {
         this.bytes = bytes;
     }
 
+    public void byteBuf(ByteBuf byteBuf) {
+    	this.byteBuf = byteBuf;
+    }
+
     public int size() {
+    	if (byteBuf != null) {
+    		return byteBuf.readableBytes();
+    	}
         return bytes == null ? 0 : bytes.length;
     }
 
+    /**
+     * 将消息体反序列化成对象，消息体是ByteBuf的时候直接在ByteBuf上反序列化，之后释放ByteBuf
+     * @param clazz
+     * @return
+     */
+    public <T> T readBody(Class<T> clazz) {
+    	ByteBuf _byteBuf = byteBuf;
+    	if (_byteBuf == null) {
+    		return serializerImpl().readObject(bytes, clazz);
+    	}
+    	byteBuf = null;
+    	try {
+    		return serializerImpl().readObject(_byteBuf.nioBuffer(), clazz);
+    	} finally {
+    		_byteBuf.release();
+    	}
+    }
+
+    /**
+     * 消息体不再需要的时候(例如响应已经超时，请求被拒绝)，释放掉还没有被消费的ByteBuf
+     */
+    public void release() {
+    	ByteBuf _byteBuf = byteBuf;
+    	if (_byteBuf != null) {
+    		byteBuf = null;
+    		_byteBuf.release();
+    	}
+    }
+
 }
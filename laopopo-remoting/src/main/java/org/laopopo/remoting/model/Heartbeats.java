@@ -4,6 +4,7 @@ import static org.laopopo.common.protocal.LaopopoProtocol.HEAD_LENGTH;
 
 import static org.laopopo.common.protocal.LaopopoProtocol.HEARTBEAT;
 import static org.laopopo.common.protocal.LaopopoProtocol.MAGIC;
+import static org.laopopo.common.protocal.LaopopoProtocol.UNCOMPRESS;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 
@@ -26,6 +27,7 @@ public class Heartbeats {
         buf.writeByte(0);
         buf.writeLong(0);
         buf.writeInt(0);
+        buf.writeByte(UNCOMPRESS);
         HEARTBEAT_BUF = Unpooled.unmodifiableBuffer(Unpooled.unreleasableBuffer(buf));
     }
 
@@ -1,7 +1,10 @@
 package org.laopopo.remoting.model;
 
+import io.netty.util.Timeout;
+
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.laopopo.remoting.InvokeCallback;
 
@@ -10,7 +13,7 @@ import org.laopopo.remoting.InvokeCallback;
  * @author BazingaLyn
  * @description 请求返回的对象包装类
  * @time 2016年8月10日11:08:43
- * @modifytime
+ * @modifytime 2016年10月21日 异步调用增加超时的定时任务
  */
 public class RemotingResponse {
 
@@ -33,6 +36,10 @@ public class RemotingResponse {
 
 	private final long beginTimestamp = System.currentTimeMillis();
 	private final CountDownLatch countDownLatch = new CountDownLatch(1);
+	// 回调函数只允许执行一次(发送失败，远程返回结果都有可能触发回调)
+	private final AtomicBoolean callbackOnlyOnce = new AtomicBoolean(false);
+	// 异步调用在时间轮中对应的超时任务，结果返回之后取消
+	private volatile Timeout timeout;
 
 	public RemotingResponse(long opaque, long timeoutMillis, InvokeCallback invokeCallback) {
 		this.invokeCallback = invokeCallback;
@@ -42,9 +49,15 @@ public class RemotingResponse {
 
 	public void executeInvokeCallback() {
 		if (invokeCallback != null) {
-			invokeCallback.operationComplete(this);
+			if (this.callbackOnlyOnce.compareAndSet(false, true)) {
+				invokeCallback.operationComplete(this);
+			}
 		}
 	}
+	
+	public InvokeCallback getInvokeCallback() {
+		return invokeCallback;
+	}
 
 	public boolean isSendRequestOK() {
 		return sendRequestOK;
@@ -82,6 +95,20 @@ public class RemotingResponse {
 		return beginTimestamp;
 	}
 	
+	public void setTimeout(Timeout timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * 结果已经返回，取消时间轮中的超时任务
+	 */
+	public void cancelTimeout() {
+		Timeout _timeout = this.timeout;
+		if (_timeout != null) {
+			_timeout.cancel();
+		}
+	}
+	
 	public RemotingTransporter waitResponse() throws InterruptedException{
 		this.countDownLatch.await(this.timeoutMillis, TimeUnit.MILLISECONDS);
 		return this.remotingTransporter;
@@ -1,5 +1,7 @@
 package org.laopopo.remoting.model;
 
+import io.netty.buffer.ByteBuf;
+
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.laopopo.common.protocal.LaopopoProtocol;
@@ -10,7 +12,7 @@ import org.laopopo.common.transport.body.CommonCustomBody;
  * @author BazingaLyn 
  * @description 网络传输的唯一对象
  * @time 2016年8月10日
- * @modifytime
+ * @modifytime 2016年10月22日 增加以ByteBuf为消息体的构建方法；2016年10月27日 增加请求到达的纳秒时间，是否记录过到达时间单独标记
  */
 public class RemotingTransporter extends ByteHolder {
 
@@ -36,6 +38,13 @@ public class RemotingTransporter extends ByteHolder {
 	 */
 	private transient long timestamp;
 
+	/**
+	 * 请求到达的纳秒时间，用于统计微秒级别的处理耗时
+	 * System.nanoTime()可以是0或者负数，没有可以作为"没有记录"的取值，是否记录过由{@link #arrivedNanosSet}标记
+	 */
+	private transient long arrivedNanos;
+	private transient boolean arrivedNanosSet;
+
 	/**
 	 * 请求的id
 	 */
@@ -114,6 +123,22 @@ public class RemotingTransporter extends ByteHolder {
 	public void setTimestamp(long timestamp) {
 		this.timestamp = timestamp;
 	}
+
+	public long arrivedNanos() {
+		return arrivedNanos;
+	}
+
+	public void setArrivedNanos(long arrivedNanos) {
+		this.arrivedNanos = arrivedNanos;
+		this.arrivedNanosSet = true;
+	}
+
+	/**
+	 * @return 是否记录过请求到达的纳秒时间，只有server端收到的请求才会记录
+	 */
+	public boolean hasArrivedNanos() {
+		return arrivedNanosSet;
+	}
 	
 	public CommonCustomBody getCustomHeader() {
 		return customHeader;
@@ -133,6 +158,23 @@ public class RemotingTransporter extends ByteHolder {
 		return remotingTransporter;
 	}
 
+	/**
+	 * 消息体是解码器传过来的retained slice，调用者负责通过{@link #readBody(Class)}，{@link #bytes()}或者{@link #release()}释放
+	 * @param id
+	 * @param sign
+	 * @param type
+	 * @param byteBuf
+	 * @return
+	 */
+	public static RemotingTransporter newByteBufInstance(long id, byte sign, byte type, ByteBuf byteBuf) {
+		RemotingTransporter remotingTransporter = new RemotingTransporter();
+		remotingTransporter.setCode(sign);
+		remotingTransporter.setTransporterType(type);
+		remotingTransporter.setOpaque(id);
+		remotingTransporter.byteBuf(byteBuf);
+		return remotingTransporter;
+	}
+
 	@Override
 	public String toString() {
 		return "RemotingTransporter [code=" + code + ", customHeader=" + customHeader + ", timestamp=" + timestamp + ", opaque=" + opaque
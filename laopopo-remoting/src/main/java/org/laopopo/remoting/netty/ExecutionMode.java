@@ -0,0 +1,23 @@
+package org.laopopo.remoting.netty;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description 服务端请求处理器的执行方式
+ * @time 2016年10月27日
+ * @modifytime
+ */
+public enum ExecutionMode {
+
+	/**
+	 * 固定大小的线程池加有界队列，线程数由serverWorkerThreads决定
+	 */
+	THREAD_POOL,
+	
+	/**
+	 * 每个请求在一个新的虚拟线程中执行，适合服务实现中有大量阻塞(数据库，远程调用)的场景，不需要按照阻塞的程度预留大量的平台线程
+	 * 只有运行在支持虚拟线程的JDK上才生效，否则退回到{@link #THREAD_POOL}
+	 */
+	VIRTUAL_THREAD
+
+}
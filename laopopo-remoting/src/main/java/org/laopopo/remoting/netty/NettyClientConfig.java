@@ -1,5 +1,8 @@
 package org.laopopo.remoting.netty;
 
+import org.laopopo.remoting.netty.compress.CompressPolicy;
+import org.laopopo.remoting.netty.flush.FlushConsolidationHandler;
+
 public class NettyClientConfig {
 
 	private int clientWorkerThreads = 4;
@@ -18,6 +21,22 @@ public class NettyClientConfig {
 	private int writeBufferLowWaterMark = -1;
 	private int writeBufferHighWaterMark = -1;
 
+	//是否使用零拷贝的方式解码消息体，开启之后消息体以ByteBuf的slice交给上层，反序列化之后释放
+	private boolean zeroCopyDecode = false;
+
+	//消息体的压缩策略，为null的时候不压缩，开启之后和对端协商双方都支持的压缩方式
+	private CompressPolicy compressPolicy;
+
+	//是否合并flush，开启之后多个writeAndFlush合并成一次write系统调用
+	private boolean flushConsolidation = false;
+	//累积多少次flush之后立即flush
+	private int explicitFlushAfterFlushes = FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+	//业务线程(不在读事件中)的flush是否也合并，否则只合并读事件中的flush
+	private boolean consolidateWhenNoReadInProgress = true;
+
+	//pipeline中handler和请求处理器的执行线程模型，默认handler运行在IO线程中，请求交给处理器的线程池
+	private PipelineModel pipelineModel = PipelineModel.EVENT_LOOP;
+
 	public String getDefaultAddress() {
 		return defaultAddress;
 	}
@@ -98,4 +117,52 @@ public class NettyClientConfig {
 		this.writeBufferHighWaterMark = writeBufferHighWaterMark;
 	}
 
+	public boolean isZeroCopyDecode() {
+		return zeroCopyDecode;
+	}
+
+	public void setZeroCopyDecode(boolean zeroCopyDecode) {
+		this.zeroCopyDecode = zeroCopyDecode;
+	}
+
+	public CompressPolicy getCompressPolicy() {
+		return compressPolicy;
+	}
+
+	public void setCompressPolicy(CompressPolicy compressPolicy) {
+		this.compressPolicy = compressPolicy;
+	}
+
+	public boolean isFlushConsolidation() {
+		return flushConsolidation;
+	}
+
+	public void setFlushConsolidation(boolean flushConsolidation) {
+		this.flushConsolidation = flushConsolidation;
+	}
+
+	public int getExplicitFlushAfterFlushes() {
+		return explicitFlushAfterFlushes;
+	}
+
+	public void setExplicitFlushAfterFlushes(int explicitFlushAfterFlushes) {
+		this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+	}
+
+	public boolean isConsolidateWhenNoReadInProgress() {
+		return consolidateWhenNoReadInProgress;
+	}
+
+	public void setConsolidateWhenNoReadInProgress(boolean consolidateWhenNoReadInProgress) {
+		this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+	}
+
+	public PipelineModel getPipelineModel() {
+		return pipelineModel;
+	}
+
+	public void setPipelineModel(PipelineModel pipelineModel) {
+		this.pipelineModel = pipelineModel;
+	}
+	
 }
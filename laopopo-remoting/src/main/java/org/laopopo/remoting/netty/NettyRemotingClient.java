@@ -20,6 +20,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.DefaultThreadFactory;
 
@@ -38,13 +39,16 @@ import org.laopopo.common.utils.NamedThreadFactory;
 import org.laopopo.common.utils.NativeSupport;
 import org.laopopo.common.utils.Pair;
 import org.laopopo.remoting.ConnectionUtils;
+import org.laopopo.remoting.InvokeCallback;
 import org.laopopo.remoting.NettyRemotingBase;
 import org.laopopo.remoting.RPCHook;
 import org.laopopo.remoting.model.NettyChannelInactiveProcessor;
 import org.laopopo.remoting.model.NettyRequestProcessor;
 import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.compress.CompressNegotiationHandler;
 import org.laopopo.remoting.netty.decode.RemotingTransporterDecoder;
 import org.laopopo.remoting.netty.encode.RemotingTransporterEncoder;
+import org.laopopo.remoting.netty.flush.FlushConsolidationHandler;
 import org.laopopo.remoting.netty.idle.ConnectorIdleStateTrigger;
 import org.laopopo.remoting.netty.idle.IdleStateChecker;
 import org.laopopo.remoting.watcher.ConnectionWatchdog;
@@ -56,7 +60,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description Netty的Client端代码
  * @time 2016年8月15日
- * @modifytime
+ * @modifytime 2016年10月27日 可选的合并flush；可以注册在IO线程中执行的处理器
  */
 public class NettyRemotingClient extends NettyRemotingBase implements RemotingClient {
 
@@ -100,17 +104,20 @@ public class NettyRemotingClient extends NettyRemotingBase implements RemotingCl
 	@Override
 	public void start() {
 		
-		this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(//
-				nettyClientConfig.getClientWorkerThreads(), //
-				new ThreadFactory() {
-
-					private AtomicInteger threadIndex = new AtomicInteger(0);
-
-					@Override
-					public Thread newThread(Runnable r) {
-						return new Thread(r, "NettyClientWorkerThread_" + this.threadIndex.incrementAndGet());
-					}
-				});
+		//只有EXECUTOR_GROUP模式下handler才运行在单独的线程池中，其他模式直接运行在IO线程中
+		if (nettyClientConfig.getPipelineModel() == PipelineModel.EXECUTOR_GROUP) {
+			this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(//
+					nettyClientConfig.getClientWorkerThreads(), //
+					new ThreadFactory() {
+
+						private AtomicInteger threadIndex = new AtomicInteger(0);
+
+						@Override
+						public Thread newThread(Runnable r) {
+							return new Thread(r, "NettyClientWorkerThread_" + this.threadIndex.incrementAndGet());
+						}
+					});
+		}
 		if (isNativeEt()) {
 			bootstrap.channel(EpollSocketChannel.class);
 		} else {
@@ -122,12 +129,22 @@ public class NettyRemotingClient extends NettyRemotingBase implements RemotingCl
 
 			@Override
 			public ChannelHandler[] handlers() {
-				return new ChannelHandler[] { 
+				ChannelHandler[] handlers = new ChannelHandler[] { 
 						this,
-						new RemotingTransporterDecoder(), //
-						new RemotingTransporterEncoder(), //
+						new RemotingTransporterDecoder(nettyClientConfig.isZeroCopyDecode()), //
+						new CompressNegotiationHandler(), //
+						new RemotingTransporterEncoder(nettyClientConfig.getCompressPolicy()), //
 						new IdleStateChecker(timer, 0, WRITER_IDLE_TIME_SECONDS, 0),//
 						idleStateTrigger, new NettyClientHandler() };
+				if (!nettyClientConfig.isFlushConsolidation()) {
+					return handlers;
+				}
+				//合并flush的handler有状态，每个连接一个，放在最前面才能拦截到所有的flush
+				ChannelHandler[] consolidated = new ChannelHandler[handlers.length + 1];
+				consolidated[0] = new FlushConsolidationHandler(nettyClientConfig.getExplicitFlushAfterFlushes(),
+						nettyClientConfig.isConsolidateWhenNoReadInProgress());
+				System.arraycopy(handlers, 0, consolidated, 1, handlers.length);
+				return consolidated;
 			}
 		};
 		watchdog.setReconnect(isReconnect);
@@ -258,6 +275,11 @@ public class NettyRemotingClient extends NettyRemotingBase implements RemotingCl
         this.processorTable.put(requestCode, pair);
 	}
 
+	@Override
+	public void registerIoThreadProcessor(byte requestCode, NettyRequestProcessor processor) {
+		this.processorTable.put(requestCode, ioThreadProcessor(processor));
+	}
+
 	@Override
 	public boolean isChannelWriteable(String addr) {
 		ChannelWrapper cw = this.channelTables.get(addr);
@@ -319,6 +341,16 @@ public class NettyRemotingClient extends NettyRemotingBase implements RemotingCl
 		return rpcHook;
 	}
 
+	@Override
+	protected Timer getTimer() {
+		return timer;
+	}
+
+	@Override
+	protected PipelineModel getPipelineModel() {
+		return nettyClientConfig.getPipelineModel();
+	}
+
 	private EventLoopGroup initEventLoopGroup(int nWorkers, ThreadFactory workerFactory) {
 		return isNativeEt() ? new EpollEventLoopGroup(nWorkers, workerFactory) : new NioEventLoopGroup(nWorkers, workerFactory);
 	}
@@ -359,6 +391,23 @@ public class NettyRemotingClient extends NettyRemotingBase implements RemotingCl
 		}
 	}
 
+	@Override
+	public void invokeAsync(String addr, RemotingTransporter request, long timeoutMillis, InvokeCallback invokeCallback) throws InterruptedException,
+			RemotingException {
+
+		final Channel channel = this.getAndCreateChannel(addr);
+		if (channel != null && channel.isActive()) {
+			// 回调前置钩子
+			if (this.rpcHook != null) {
+				this.rpcHook.doBeforeRequest(addr, request);
+			}
+			this.invokeAsyncImpl(channel, request, timeoutMillis, invokeCallback);
+		} else {
+			this.closeChannel(addr, channel);
+			throw new RemotingException(addr + " connection exception");
+		}
+	}
+
 	private void closeChannel(String addr, Channel channel) {
 		if (null == channel)
 			return;
@@ -19,6 +19,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import io.netty.util.concurrent.DefaultEventExecutorGroup;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import io.netty.util.internal.PlatformDependent;
@@ -39,8 +40,10 @@ import org.laopopo.remoting.RPCHook;
 import org.laopopo.remoting.model.NettyChannelInactiveProcessor;
 import org.laopopo.remoting.model.NettyRequestProcessor;
 import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.compress.CompressNegotiationHandler;
 import org.laopopo.remoting.netty.decode.RemotingTransporterDecoder;
 import org.laopopo.remoting.netty.encode.RemotingTransporterEncoder;
+import org.laopopo.remoting.netty.flush.FlushConsolidationHandler;
 import org.laopopo.remoting.netty.idle.AcceptorIdleStateTrigger;
 import org.laopopo.remoting.netty.idle.IdleStateChecker;
 import org.slf4j.Logger;
@@ -51,7 +54,7 @@ import org.slf4j.LoggerFactory;
  * @author BazingaLyn
  * @description netty的server端编写
  * @time 2016年8月10日
- * @modifytime
+ * @modifytime 2016年10月27日 可选的合并flush；可以注册在IO线程中执行的处理器
  */
 public class NettyRemotingServer extends NettyRemotingBase implements RemotingServer {
 	
@@ -154,16 +157,19 @@ public class NettyRemotingServer extends NettyRemotingBase implements RemotingSe
 
 	@Override
 	public void start() {
-		this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(
-	            AVAILABLE_PROCESSORS, new ThreadFactory() {
+		//只有EXECUTOR_GROUP模式下handler才运行在单独的线程池中，其他模式直接运行在IO线程中
+		if (nettyServerConfig.getPipelineModel() == PipelineModel.EXECUTOR_GROUP) {
+			this.defaultEventExecutorGroup = new DefaultEventExecutorGroup(
+		            AVAILABLE_PROCESSORS, new ThreadFactory() {
 
-	                private AtomicInteger threadIndex = new AtomicInteger(0);
+		                private AtomicInteger threadIndex = new AtomicInteger(0);
 
-	                @Override
-	                public Thread newThread(Runnable r) {
-	                    return new Thread(r, "NettyServerWorkerThread_" + this.threadIndex.incrementAndGet());
-	                }
-	            });
+		                @Override
+		                public Thread newThread(Runnable r) {
+		                    return new Thread(r, "NettyServerWorkerThread_" + this.threadIndex.incrementAndGet());
+		                }
+		            });
+		}
 		if (isNativeEt()) {
             serverBootstrap.channel(EpollServerSocketChannel.class);
         } else {
@@ -173,12 +179,18 @@ public class NettyRemotingServer extends NettyRemotingBase implements RemotingSe
 
             @Override
             protected void initChannel(SocketChannel ch) throws Exception {
+            	if (nettyServerConfig.isFlushConsolidation()) {
+            		//合并flush的handler放在最前面并且在IO线程中执行，才能拦截到所有的flush和读事件的结束
+            		ch.pipeline().addLast(new FlushConsolidationHandler(nettyServerConfig.getExplicitFlushAfterFlushes(),
+            				nettyServerConfig.isConsolidateWhenNoReadInProgress()));
+            	}
             	ch.pipeline().addLast(
             			defaultEventExecutorGroup,
             			new IdleStateChecker(timer, READER_IDLE_TIME_SECONDS, 0, 0),
             			idleStateTrigger,
-            			new RemotingTransporterDecoder()
-            			,new RemotingTransporterEncoder()
+            			new RemotingTransporterDecoder(nettyServerConfig.isZeroCopyDecode())
+            			,new CompressNegotiationHandler()
+            			,new RemotingTransporterEncoder(nettyServerConfig.getCompressPolicy())
             			,new NettyServerHandler());
             }
         });
@@ -240,6 +252,11 @@ public class NettyRemotingServer extends NettyRemotingBase implements RemotingSe
         this.processorTable.put(requestCode, pair);
 	}
 	
+	@Override
+	public void registerIoThreadProcessor(byte requestCode, NettyRequestProcessor processor) {
+		this.processorTable.put(requestCode, ioThreadProcessor(processor));
+	}
+	
 	@Override
 	public void registerDefaultProcessor(NettyRequestProcessor processor, ExecutorService executor) {
 		this.defaultRequestProcessor = new Pair<NettyRequestProcessor, ExecutorService>(processor, executor);
@@ -268,6 +285,16 @@ public class NettyRemotingServer extends NettyRemotingBase implements RemotingSe
 	protected RPCHook getRPCHook() {
 		return rpcHook;
 	}
+
+	@Override
+	protected Timer getTimer() {
+		return timer;
+	}
+
+	@Override
+	protected PipelineModel getPipelineModel() {
+		return nettyServerConfig.getPipelineModel();
+	}
 	
 	
 	private EventLoopGroup initEventLoopGroup(int workers, ThreadFactory bossFactory) {
@@ -2,6 +2,9 @@ package org.laopopo.remoting.netty;
 
 import static org.laopopo.common.utils.Constants.AVAILABLE_PROCESSORS;
 
+import org.laopopo.remoting.netty.compress.CompressPolicy;
+import org.laopopo.remoting.netty.flush.FlushConsolidationHandler;
+
 
 public class NettyServerConfig implements Cloneable{
 	
@@ -9,6 +12,9 @@ public class NettyServerConfig implements Cloneable{
     
     private int serverWorkerThreads = AVAILABLE_PROCESSORS << 1;
     
+    //业务线程池的等待队列长度，队列满了之后直接回复HANDLER_BUSY，避免请求在队列中堆积到调用者早已超时
+    private int serverWorkerQueueSize = 1024;
+    
     private int channelInactiveHandlerThreads = 1;
 
     private int serverSocketSndBufSize = -1;
@@ -18,6 +24,27 @@ public class NettyServerConfig implements Cloneable{
     private int writeBufferLowWaterMark = -1;
     private int writeBufferHighWaterMark = -1;
 
+    //是否使用零拷贝的方式解码消息体，开启之后消息体以ByteBuf的slice交给上层，反序列化之后释放
+    private boolean zeroCopyDecode = false;
+
+    //消息体的压缩策略，为null的时候不压缩，开启之后和对端协商双方都支持的压缩方式
+    private CompressPolicy compressPolicy;
+
+    //是否合并flush，开启之后多个writeAndFlush合并成一次write系统调用
+    private boolean flushConsolidation = false;
+    //累积多少次flush之后立即flush
+    private int explicitFlushAfterFlushes = FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+    //业务线程(不在读事件中)的flush是否也合并，否则只合并读事件中的flush
+    private boolean consolidateWhenNoReadInProgress = true;
+
+    //请求处理器的执行方式，VIRTUAL_THREAD只有在支持虚拟线程的JDK上生效，否则退回到线程池
+    private ExecutionMode executionMode = ExecutionMode.THREAD_POOL;
+    //VIRTUAL_THREAD模式下同时执行的最大请求数，超过之后直接回复HANDLER_BUSY
+    private int virtualThreadMaxConcurrency = 10000;
+
+    //pipeline中handler和请求处理器的执行线程模型，默认handler运行在IO线程中，请求交给处理器的线程池
+    private PipelineModel pipelineModel = PipelineModel.EVENT_LOOP;
+
 	public int getListenPort() {
 		return listenPort;
 	}
@@ -35,6 +62,30 @@ public class NettyServerConfig implements Cloneable{
 	}
 	
 
+	public int getServerWorkerQueueSize() {
+		return serverWorkerQueueSize;
+	}
+
+	public void setServerWorkerQueueSize(int serverWorkerQueueSize) {
+		this.serverWorkerQueueSize = serverWorkerQueueSize;
+	}
+
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
+	public void setExecutionMode(ExecutionMode executionMode) {
+		this.executionMode = executionMode;
+	}
+
+	public int getVirtualThreadMaxConcurrency() {
+		return virtualThreadMaxConcurrency;
+	}
+
+	public void setVirtualThreadMaxConcurrency(int virtualThreadMaxConcurrency) {
+		this.virtualThreadMaxConcurrency = virtualThreadMaxConcurrency;
+	}
+
 	public int getChannelInactiveHandlerThreads() {
 		return channelInactiveHandlerThreads;
 	}
@@ -74,5 +125,53 @@ public class NettyServerConfig implements Cloneable{
 	public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
 		this.writeBufferHighWaterMark = writeBufferHighWaterMark;
 	}
+
+	public boolean isZeroCopyDecode() {
+		return zeroCopyDecode;
+	}
+
+	public void setZeroCopyDecode(boolean zeroCopyDecode) {
+		this.zeroCopyDecode = zeroCopyDecode;
+	}
+
+	public CompressPolicy getCompressPolicy() {
+		return compressPolicy;
+	}
+
+	public void setCompressPolicy(CompressPolicy compressPolicy) {
+		this.compressPolicy = compressPolicy;
+	}
+
+	public boolean isFlushConsolidation() {
+		return flushConsolidation;
+	}
+
+	public void setFlushConsolidation(boolean flushConsolidation) {
+		this.flushConsolidation = flushConsolidation;
+	}
+
+	public int getExplicitFlushAfterFlushes() {
+		return explicitFlushAfterFlushes;
+	}
+
+	public void setExplicitFlushAfterFlushes(int explicitFlushAfterFlushes) {
+		this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+	}
+
+	public boolean isConsolidateWhenNoReadInProgress() {
+		return consolidateWhenNoReadInProgress;
+	}
+
+	public void setConsolidateWhenNoReadInProgress(boolean consolidateWhenNoReadInProgress) {
+		this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+	}
+
+	public PipelineModel getPipelineModel() {
+		return pipelineModel;
+	}
+
+	public void setPipelineModel(PipelineModel pipelineModel) {
+		this.pipelineModel = pipelineModel;
+	}
 	
 }
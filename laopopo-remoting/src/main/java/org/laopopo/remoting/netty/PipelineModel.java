@@ -0,0 +1,30 @@
+package org.laopopo.remoting.netty;
+
+/**
+ * 
+ * @author BazingaLyn
+ * @description pipeline中handler和请求处理器的执行线程模型
+ * @time 2016年10月25日
+ * @modifytime 2016年10月27日 IO_THREAD模式下只有注册为IO线程执行的处理器在IO线程中执行
+ */
+public enum PipelineModel {
+
+	/**
+	 * 编解码，空闲检测等handler运行在单独的DefaultEventExecutorGroup中，请求再交给处理器的线程池执行
+	 * 每个请求多一次线程切换，旧版本的方式
+	 */
+	EXECUTOR_GROUP,
+	
+	/**
+	 * handler直接运行在netty的IO线程中，请求交给处理器的线程池执行
+	 */
+	EVENT_LOOP,
+	
+	/**
+	 * handler运行在netty的IO线程中，通过registerIoThreadProcessor注册的处理器也直接在IO线程中执行，没有任何线程切换
+	 * 是否在IO线程中执行由每个处理器注册的时候决定，只有不会阻塞的处理器才这样注册，处理器阻塞会拖慢该IO线程上所有的连接，
+	 * 注册时指定了线程池的处理器，比如会阻塞的rpc处理器，仍然在自己的线程池中执行
+	 */
+	IO_THREAD
+
+}
@@ -5,6 +5,7 @@ import java.util.concurrent.ExecutorService;
 import org.laopopo.common.exception.remoting.RemotingException;
 import org.laopopo.common.exception.remoting.RemotingSendRequestException;
 import org.laopopo.common.exception.remoting.RemotingTimeoutException;
+import org.laopopo.remoting.InvokeCallback;
 import org.laopopo.remoting.model.NettyChannelInactiveProcessor;
 import org.laopopo.remoting.model.NettyRequestProcessor;
 import org.laopopo.remoting.model.RemotingTransporter;
@@ -14,7 +15,7 @@ import org.laopopo.remoting.model.RemotingTransporter;
  * @author BazingaLyn
  * @description Netty客户端的一些特定的方法
  * @time 2016年8月10日
- * @modifytime
+ * @modifytime 2016年10月27日 增加注册在IO线程中执行的处理器
  */
 public interface RemotingClient extends BaseRemotingService {
 
@@ -31,6 +32,17 @@ public interface RemotingClient extends BaseRemotingService {
 	 */
 	public RemotingTransporter invokeSync(final String addr ,final RemotingTransporter request,final long timeoutMillis) throws RemotingTimeoutException, RemotingSendRequestException, InterruptedException, RemotingException;
 
+	/**
+	 * 向某个地址异步发送request的请求，调用线程不阻塞，远程端返回结果或者发送失败的时候回调invokeCallback
+	 * @param addr 远程地址 例如 127.0.0.1:8080
+	 * @param request 请求入参 详细参考 #RemotingTransporter
+	 * @param timeoutMillis 超时时间
+	 * @param invokeCallback 回调函数
+	 * @throws InterruptedException
+	 * @throws RemotingException
+	 */
+	public void invokeAsync(final String addr, final RemotingTransporter request, final long timeoutMillis, final InvokeCallback invokeCallback) throws InterruptedException, RemotingException;
+
 	/**
 	 * 注入处理器，例如某个Netty的Client实例，这个实例是Consumer端的，它需要处理订阅返回的信息
 	 * 假如订阅的requestCode 是100，那么给定requestCode特定的处理器processorA,且指定该处理器的线程执行器是executorA
@@ -42,6 +54,13 @@ public interface RemotingClient extends BaseRemotingService {
 	 */
 	void registerProcessor(final byte requestCode, final NettyRequestProcessor processor, final ExecutorService executor);
 	
+	/**
+	 * 注册不会阻塞的处理器，{@link PipelineModel#IO_THREAD}模式下直接在IO线程中执行，其他模式下在公共线程池中执行
+	 * @param requestCode
+	 * @param processor
+	 */
+	void registerIoThreadProcessor(final byte requestCode, final NettyRequestProcessor processor);
+	
 	
 	/**
 	 * 注册channel inactive的处理器
@@ -18,12 +18,19 @@ import org.laopopo.remoting.model.RemotingTransporter;
  * 1)作为服务端自然要处理来自客户端请求的一些请求，每一个请求都会有一个与之对应的处理器
  * 2)这样做的好处就是简化了netty的handler的配置，将handler中的业务逻辑放置到每一个对应的处理器中来
  * @time 2016年8月10日14:48:00
- * @modifytime
+ * @modifytime 2016年10月27日 增加注册在IO线程中执行的处理器
  */
 public interface RemotingServer extends BaseRemotingService {
 
 	void registerProecessor(final byte requestCode, final NettyRequestProcessor processor,final ExecutorService executor);
 	
+	/**
+	 * 注册不会阻塞的处理器，{@link PipelineModel#IO_THREAD}模式下直接在IO线程中执行，其他模式下在公共线程池中执行
+	 * @param requestCode
+	 * @param processor
+	 */
+	void registerIoThreadProcessor(final byte requestCode, final NettyRequestProcessor processor);
+	
 	void registerChannelInactiveProcessor(final NettyChannelInactiveProcessor processor,final ExecutorService executor);
 	
 	void registerDefaultProcessor(final NettyRequestProcessor processor, final ExecutorService executor);
@@ -0,0 +1,101 @@
+package org.laopopo.remoting.netty.compress;
+
+import io.netty.util.AttributeKey;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 每条连接上的压缩上下文，保存对端支持的压缩方式和每个服务观察到的压缩率
+ * 编码器总是在该连接的executor中执行，所以不需要同步，只有peerMask会被解码的线程修改
+ * @time 2016年10月24日
+ * @modifytime
+ */
+public class CompressContext {
+
+	public static final AttributeKey<CompressContext> KEY = AttributeKey.valueOf("laopopo.compress.context");
+
+	//没有服务名的消息(例如响应)使用的key
+	private static final String CONNECTION_KEY = "";
+
+	//对端能够解压的压缩方式，协商完成之前为0，即不压缩
+	private volatile int peerMask;
+
+	private final Map<String, RatioStats> ratios = new HashMap<String, RatioStats>();
+
+	/**
+	 * 根据策略，消息体大小，对端支持的压缩方式以及观察到的压缩率，选择本次的压缩方式
+	 * @param policy
+	 * @param serviceName
+	 * @param length
+	 * @return
+	 */
+	public CompressType select(CompressPolicy policy, String serviceName, int length) {
+		CompressType type = policy.compressType(serviceName);
+		if (type == CompressType.NONE || (peerMask & type.mask()) == 0 || length < policy.threshold(serviceName)) {
+			return CompressType.NONE;
+		}
+		RatioStats stats = ratios.get(key(serviceName));
+		if (stats != null && stats.ratio > policy.getMaxRatio()) {
+			//压不动，暂停压缩，每隔probeInterval个消息重新试一次
+			if (++stats.skipped < policy.getProbeInterval()) {
+				return CompressType.NONE;
+			}
+			stats.skipped = 0;
+		}
+		return type;
+	}
+
+	/**
+	 * 记录一次压缩的结果
+	 * @param serviceName
+	 * @param length 压缩前的长度
+	 * @param compressedLength 压缩后的长度
+	 */
+	public void record(String serviceName, int length, int compressedLength) {
+		String key = key(serviceName);
+		RatioStats stats = ratios.get(key);
+		if (stats == null) {
+			stats = new RatioStats();
+			ratios.put(key, stats);
+		}
+		stats.update((double) compressedLength / length);
+	}
+
+	/**
+	 * 该服务在这条连接上观察到的压缩率，没有压缩过返回0
+	 * @param serviceName
+	 * @return
+	 */
+	public double ratio(String serviceName) {
+		RatioStats stats = ratios.get(key(serviceName));
+		return stats == null ? 0d : stats.ratio;
+	}
+
+	public int getPeerMask() {
+		return peerMask;
+	}
+
+	public void setPeerMask(int peerMask) {
+		this.peerMask = peerMask;
+	}
+
+	private static String key(String serviceName) {
+		return serviceName == null ? CONNECTION_KEY : serviceName;
+	}
+
+	static class RatioStats {
+
+		private static final double ALPHA = 0.25d;
+
+		double ratio;   //压缩率的指数移动平均
+		int skipped;    //暂停压缩之后跳过的消息数
+
+		void update(double sample) {
+			ratio = ratio == 0d ? sample : ratio + ALPHA * (sample - ratio);
+		}
+	}
+
+}
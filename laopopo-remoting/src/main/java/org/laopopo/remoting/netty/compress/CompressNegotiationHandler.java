@@ -0,0 +1,59 @@
+package org.laopopo.remoting.netty.compress;
+
+import static org.laopopo.common.protocal.LaopopoProtocol.COMPRESS_NEGOTIATION;
+import static org.laopopo.common.protocal.LaopopoProtocol.HEAD_LENGTH;
+import static org.laopopo.common.protocal.LaopopoProtocol.MAGIC;
+import static org.laopopo.common.protocal.LaopopoProtocol.UNCOMPRESS;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import org.laopopo.remoting.model.RemotingTransporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 压缩方式的协商，连接建立之后两端各自发送一个只有协议头的协商帧，sign中是本端能够解压的压缩方式的掩码
+ * 收到对端的协商帧之前不压缩，老版本的对端不认识该类型的帧会直接忽略，也就永远不会收到压缩的消息
+ * @time 2016年10月24日
+ * @modifytime
+ */
+@ChannelHandler.Sharable
+public class CompressNegotiationHandler extends ChannelInboundHandlerAdapter {
+
+	private static final Logger logger = LoggerFactory.getLogger(CompressNegotiationHandler.class);
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		ctx.channel().attr(CompressContext.KEY).setIfAbsent(new CompressContext());
+	}
+
+	@Override
+	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		ByteBuf negotiation = ctx.alloc().buffer(HEAD_LENGTH);
+		negotiation.writeShort(MAGIC)
+				   .writeByte(COMPRESS_NEGOTIATION)          //传输类型
+				   .writeByte(CompressType.supportedMask())  //本端能够解压的压缩方式
+				   .writeLong(0)
+				   .writeInt(0)
+				   .writeByte(UNCOMPRESS);
+		ctx.writeAndFlush(negotiation);
+		super.channelActive(ctx);
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof RemotingTransporter && ((RemotingTransporter) msg).getTransporterType() == COMPRESS_NEGOTIATION) {
+			RemotingTransporter negotiation = (RemotingTransporter) msg;
+			negotiation.release();
+			ctx.channel().attr(CompressContext.KEY).get().setPeerMask(negotiation.getCode());
+			logger.info("channel [{}] peer supported compress mask [{}]", ctx.channel(), negotiation.getCode());
+			return;
+		}
+		super.channelRead(ctx, msg);
+	}
+
+}
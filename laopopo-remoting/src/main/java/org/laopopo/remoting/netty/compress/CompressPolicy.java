@@ -0,0 +1,103 @@
+package org.laopopo.remoting.netty.compress;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 压缩策略的配置，配置在{@link org.laopopo.remoting.netty.NettyClientConfig}或者{@link org.laopopo.remoting.netty.NettyServerConfig}上，
+ * 作用于该端所有的连接：
+ * 1)消息体小于阈值的时候不压缩，小消息压缩得不偿失
+ * 2)某个服务的消息可以单独配置压缩方式和阈值，例如只对跨机房调用的大请求压缩
+ * 3)某个服务在某条连接上观察到的压缩率(压缩后/压缩前)高于maxRatio的时候，说明数据压不动，暂停压缩，之后每隔一段再尝试一次
+ * @time 2016年10月24日
+ * @modifytime
+ */
+public class CompressPolicy {
+
+	private static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+	private CompressType compressType = CompressType.LZ4;    //默认的压缩方式
+	private int threshold = DEFAULT_THRESHOLD;               //默认的压缩阈值，单位字节
+	private double maxRatio = 0.8d;                          //压缩率高于该值的时候认为不值得压缩
+	private int probeInterval = 64;                          //暂停压缩之后，每隔多少个消息尝试压缩一次
+
+	//服务单独的压缩方式和阈值
+	private final Map<String, CompressType> serviceCompressTypes = new ConcurrentHashMap<String, CompressType>();
+	private final Map<String, Integer> serviceThresholds = new ConcurrentHashMap<String, Integer>();
+
+	public CompressPolicy() {
+	}
+
+	public CompressPolicy(CompressType compressType, int threshold) {
+		this.compressType = compressType;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * 为某个服务单独设置压缩方式和阈值
+	 * @param serviceName
+	 * @param compressType
+	 * @param threshold
+	 * @return
+	 */
+	public CompressPolicy serviceCompress(String serviceName, CompressType compressType, int threshold) {
+		serviceCompressTypes.put(serviceName, compressType);
+		serviceThresholds.put(serviceName, threshold);
+		return this;
+	}
+
+	public CompressType compressType(String serviceName) {
+		if (serviceName != null) {
+			CompressType type = serviceCompressTypes.get(serviceName);
+			if (type != null) {
+				return type;
+			}
+		}
+		return compressType;
+	}
+
+	public int threshold(String serviceName) {
+		if (serviceName != null) {
+			Integer serviceThreshold = serviceThresholds.get(serviceName);
+			if (serviceThreshold != null) {
+				return serviceThreshold;
+			}
+		}
+		return threshold;
+	}
+
+	public CompressType getCompressType() {
+		return compressType;
+	}
+
+	public void setCompressType(CompressType compressType) {
+		this.compressType = compressType;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
+	}
+
+	public double getMaxRatio() {
+		return maxRatio;
+	}
+
+	public void setMaxRatio(double maxRatio) {
+		this.maxRatio = maxRatio;
+	}
+
+	public int getProbeInterval() {
+		return probeInterval;
+	}
+
+	public void setProbeInterval(int probeInterval) {
+		this.probeInterval = probeInterval;
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.laopopo.remoting.netty.compress;
+
+import org.laopopo.common.protocal.LaopopoProtocol;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 消息体的压缩方式，value是协议头中compress字节的值，mask用于连接建立时告知对端自己支持哪些压缩方式
+ * @time 2016年10月24日
+ * @modifytime
+ */
+public enum CompressType {
+
+	NONE(LaopopoProtocol.UNCOMPRESS, 0, null),
+	SNAPPY(LaopopoProtocol.COMPRESS, 1, new SnappyCompressor()),
+	LZ4(LaopopoProtocol.COMPRESS_LZ4, 1 << 1, new Lz4Compressor());
+
+	private final byte value;
+	private final int mask;
+	private final Compressor compressor;
+
+	CompressType(byte value, int mask, Compressor compressor) {
+		this.value = value;
+		this.mask = mask;
+		this.compressor = compressor;
+	}
+
+	public byte value() {
+		return value;
+	}
+
+	public int mask() {
+		return mask;
+	}
+
+	public Compressor compressor() {
+		return compressor;
+	}
+
+	/**
+	 * 本端能够解压的所有压缩方式
+	 * @return
+	 */
+	public static int supportedMask() {
+		int mask = 0;
+		for (CompressType type : values()) {
+			mask |= type.mask;
+		}
+		return mask;
+	}
+
+	public static CompressType parse(byte value) {
+		for (CompressType type : values()) {
+			if (type.value == value) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,49 @@
+package org.laopopo.remoting.netty.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.io.IOException;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 直接在ByteBuf上压缩和解压，heap的ByteBuf使用底层数组，direct的ByteBuf使用nioBuffer，都不会拷贝出中间的byte[]
+ * @time 2016年10月24日
+ * @modifytime
+ */
+public interface Compressor {
+
+	/**
+	 * 压缩in中从index开始的length个字节，不修改in的readerIndex和writerIndex
+	 * @param alloc
+	 * @param in
+	 * @param index
+	 * @param length
+	 * @return 压缩之后的数据，调用者负责release
+	 * @throws IOException
+	 */
+	ByteBuf compress(ByteBufAllocator alloc, ByteBuf in, int index, int length) throws IOException;
+
+	/**
+	 * 压缩数据解压之后的长度，用于在解压之前检查消息体的大小
+	 * @param in
+	 * @param index
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	int uncompressedLength(ByteBuf in, int index, int length) throws IOException;
+
+	/**
+	 * 解压in中从index开始的length个字节，不修改in的readerIndex和writerIndex
+	 * @param alloc
+	 * @param in
+	 * @param index
+	 * @param length
+	 * @return 解压之后的数据，调用者负责release
+	 * @throws IOException
+	 */
+	ByteBuf uncompress(ByteBufAllocator alloc, ByteBuf in, int index, int length) throws IOException;
+
+}
@@ -0,0 +1,111 @@
+package org.laopopo.remoting.netty.compress;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.xerial.snappy.Snappy;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 基于snappy-java的压缩，和原来的{@link Snappy#compress(byte[])}格式相同
+ * snappy-java只支持byte[]和direct的ByteBuffer，所以heap的ByteBuf使用底层数组，direct的ByteBuf使用nioBuffer
+ * @time 2016年10月24日
+ * @modifytime
+ */
+public class SnappyCompressor implements Compressor {
+
+	@Override
+	public ByteBuf compress(ByteBufAllocator alloc, ByteBuf in, int index, int length) throws IOException {
+		int maxLength = Snappy.maxCompressedLength(length);
+		ByteBuffer src = directNioBuffer(in, index, length);
+		if (src != null) {
+			ByteBuf out = alloc.directBuffer(maxLength);
+			try {
+				out.writerIndex(Snappy.compress(src, out.nioBuffer(0, maxLength)));
+				return out;
+			} catch (IOException e) {
+				out.release();
+				throw e;
+			}
+		}
+		if (!in.hasArray()) {
+			//例如CompositeByteBuf，既没有底层数组也不是单个direct的ByteBuffer
+			ByteBuf heap = alloc.heapBuffer(length).writeBytes(in, index, length);
+			try {
+				return compress(alloc, heap, heap.readerIndex(), length);
+			} finally {
+				heap.release();
+			}
+		}
+		ByteBuf out = alloc.heapBuffer(maxLength);
+		try {
+			out.writerIndex(Snappy.rawCompress(in.array(), in.arrayOffset() + index, length, out.array(), out.arrayOffset()));
+			return out;
+		} catch (IOException e) {
+			out.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public int uncompressedLength(ByteBuf in, int index, int length) throws IOException {
+		ByteBuffer src = directNioBuffer(in, index, length);
+		if (src != null) {
+			return Snappy.uncompressedLength(src);
+		}
+		if (!in.hasArray()) {
+			ByteBuf heap = in.alloc().heapBuffer(length).writeBytes(in, index, length);
+			try {
+				return uncompressedLength(heap, heap.readerIndex(), length);
+			} finally {
+				heap.release();
+			}
+		}
+		return Snappy.uncompressedLength(in.array(), in.arrayOffset() + index, length);
+	}
+
+	@Override
+	public ByteBuf uncompress(ByteBufAllocator alloc, ByteBuf in, int index, int length) throws IOException {
+		int uncompressedLength = uncompressedLength(in, index, length);
+		ByteBuffer src = directNioBuffer(in, index, length);
+		if (src != null) {
+			ByteBuf out = alloc.directBuffer(uncompressedLength);
+			try {
+				out.writerIndex(Snappy.uncompress(src, out.nioBuffer(0, uncompressedLength)));
+				return out;
+			} catch (IOException e) {
+				out.release();
+				throw e;
+			}
+		}
+		if (!in.hasArray()) {
+			ByteBuf heap = alloc.heapBuffer(length).writeBytes(in, index, length);
+			try {
+				return uncompress(alloc, heap, heap.readerIndex(), length);
+			} finally {
+				heap.release();
+			}
+		}
+		ByteBuf out = alloc.heapBuffer(uncompressedLength);
+		try {
+			out.writerIndex(Snappy.rawUncompress(in.array(), in.arrayOffset() + index, length, out.array(), out.arrayOffset()));
+			return out;
+		} catch (IOException e) {
+			out.release();
+			throw e;
+		}
+	}
+
+	private static ByteBuffer directNioBuffer(ByteBuf buf, int index, int length) {
+		if (buf.hasArray() || buf.nioBufferCount() != 1) {
+			return null;
+		}
+		ByteBuffer nioBuffer = buf.nioBuffer(index, length);
+		return nioBuffer.isDirect() ? nioBuffer : null;
+	}
+
+}
@@ -1,81 +1,113 @@
 package org.laopopo.remoting.netty.decode;
 
+import static org.laopopo.common.protocal.LaopopoProtocol.HEAD_LENGTH;
 import static org.laopopo.common.protocal.LaopopoProtocol.MAGIC;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.handler.codec.ByteToMessageDecoder;
 
 import java.util.List;
 
 import org.laopopo.common.exception.remoting.RemotingContextException;
-import org.laopopo.common.protocal.LaopopoProtocol;
 import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.compress.CompressType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xerial.snappy.Snappy;
 
 /**
- * 
+ *
  * @author BazingaLyn
  * @description Netty 对{@link RemotingTransporter}的解码器
  * @time 2016年8月10日
- * @modifytime
+ * @modifytime 2016年10月23日 ReplayingDecoder换成ByteToMessageDecoder，每一帧只在数据到齐之后解码一次，不再因为半包反复重放；支持零拷贝的解码模式；直接在ByteBuf上解压snappy和lz4
  */
-public class RemotingTransporterDecoder extends ReplayingDecoder<RemotingTransporterDecoder.State> {
-	
+public class RemotingTransporterDecoder extends ByteToMessageDecoder {
+
 	private static final Logger logger = LoggerFactory.getLogger(RemotingTransporterDecoder.class);
 
 	private static final int MAX_BODY_SIZE = 1024 * 1024 * 5;
 
-	private final LaopopoProtocol header = new LaopopoProtocol();
+	//协议头中各个字段相对于帧起始位置的偏移量
+	private static final int TYPE_OFFSET = 2;
+	private static final int SIGN_OFFSET = 3;
+	private static final int ID_OFFSET = 4;
+	private static final int BODY_LENGTH_OFFSET = 12;
+	private static final int COMPRESS_OFFSET = 16;
+
+	//是否使用零拷贝的方式解码消息体
+	private final boolean zeroCopy;
 
 	public RemotingTransporterDecoder() {
-		//设置(下文#state()的默认返回对象)
-		super(State.HEADER_MAGIC);
+		this(false);
+	}
+
+	public RemotingTransporterDecoder(boolean zeroCopy) {
+		this.zeroCopy = zeroCopy;
 	}
 
 	@Override
 	protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-		switch (state()) {
-		case HEADER_MAGIC:
-			checkMagic(in.readShort()); // MAGIC
-			checkpoint(State.HEADER_TYPE);
-		case HEADER_TYPE :
-			header.type(in.readByte());
-			checkpoint(State.HEADER_SIGN);
-		case HEADER_SIGN:
-			header.sign(in.readByte()); // 消息标志位
-			checkpoint(State.HEADER_ID);
-		case HEADER_ID:
-			header.id(in.readLong()); // 消息id
-			checkpoint(State.HEADER_BODY_LENGTH);
-		case HEADER_BODY_LENGTH:
-			header.bodyLength(in.readInt()); // 消息体长度
-			checkpoint(State.HEADER_COMPRESS);
-		case HEADER_COMPRESS:
-			header.setCompress(in.readByte()); // 消息是否压缩
-			checkpoint(State.BODY);
-		case BODY:
-				int bodyLength = checkBodyLength(header.bodyLength());
-				byte[] bytes = new byte[bodyLength];
-				in.readBytes(bytes);
-				if(header.compress() == LaopopoProtocol.COMPRESS){
-					bytes = Snappy.uncompress(bytes);
+		//一次读事件中可能有多个完整的帧，全部解码出来
+		while (in.readableBytes() >= HEAD_LENGTH) {
+			int frameIndex = in.readerIndex();
+			checkMagic(in.getShort(frameIndex));
+			int bodyLength = checkBodyLength(in.getInt(frameIndex + BODY_LENGTH_OFFSET));
+			//半包，等数据到齐之后再解码，协议头不需要保存，下次重新读取即可
+			if (in.readableBytes() < HEAD_LENGTH + bodyLength) {
+				return;
+			}
+
+			byte type = in.getByte(frameIndex + TYPE_OFFSET);          // 传输类型
+			byte sign = in.getByte(frameIndex + SIGN_OFFSET);          // 消息标志位
+			long id = in.getLong(frameIndex + ID_OFFSET);              // 消息id
+			byte compress = in.getByte(frameIndex + COMPRESS_OFFSET);  // 消息是否压缩
+			in.skipBytes(HEAD_LENGTH);
+
+			CompressType compressType = checkCompressType(compress);
+			if(compressType != CompressType.NONE){
+				//直接在累积的ByteBuf上解压，解压之后的ByteBuf由本解码器创建
+				int index = in.readerIndex();
+				checkBodyLength(compressType.compressor().uncompressedLength(in, index, bodyLength));
+				ByteBuf body = compressType.compressor().uncompress(ctx.alloc(), in, index, bodyLength);
+				in.skipBytes(bodyLength);
+				if(zeroCopy){
+					out.add(RemotingTransporter.newByteBufInstance(id, sign, type, body));
+					continue;
+				}
+				try {
+					byte[] bytes = new byte[body.readableBytes()];
+					body.readBytes(bytes);
+					out.add(RemotingTransporter.newInstance(id, sign, type, bytes));
+				} finally {
+					body.release();
 				}
-				out.add(RemotingTransporter.newInstance(header.id(), header.sign(),header.type(), bytes));
-				break;
-		default:
-			break;
+				continue;
+			}
+			if(zeroCopy){
+				//retained slice和累积的ByteBuf共享内存，反序列化之后由上层release
+				out.add(RemotingTransporter.newByteBufInstance(id, sign, type, in.readRetainedSlice(bodyLength)));
+				continue;
+			}
+			byte[] bytes = new byte[bodyLength];
+			in.readBytes(bytes);
+			out.add(RemotingTransporter.newInstance(id, sign, type, bytes));
 		}
-		checkpoint(State.HEADER_MAGIC);
 	}
-	
+
 	private int checkBodyLength(int bodyLength) throws RemotingContextException {
-		if (bodyLength > MAX_BODY_SIZE) {
+		if (bodyLength < 0 || bodyLength > MAX_BODY_SIZE) {
             throw new RemotingContextException("body of request is bigger than limit value "+ MAX_BODY_SIZE);
         }
         return bodyLength;
 	}
+
+	private CompressType checkCompressType(byte compress) throws RemotingContextException {
+		CompressType compressType = CompressType.parse(compress);
+		if (compressType == null) {
+			throw new RemotingContextException("unknown compress type " + compress);
+		}
+		return compressType;
+	}
 	
 	private void checkMagic(short magic) throws RemotingContextException {
 		if (MAGIC != magic) {
@@ -84,8 +116,4 @@ public class RemotingTransporterDecoder extends ReplayingDecoder<RemotingTranspo
         }
 	}
 
-	enum State {
-		HEADER_MAGIC, HEADER_TYPE, HEADER_SIGN, HEADER_ID, HEADER_BODY_LENGTH,HEADER_COMPRESS, BODY
-	}
-
 }
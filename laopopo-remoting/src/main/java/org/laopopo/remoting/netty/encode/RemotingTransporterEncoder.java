@@ -10,42 +10,93 @@ import io.netty.handler.codec.MessageToByteEncoder;
 import java.io.IOException;
 
 import org.laopopo.common.protocal.LaopopoProtocol;
+import org.laopopo.common.transport.body.RequestCustomBody;
 import org.laopopo.remoting.model.RemotingTransporter;
+import org.laopopo.remoting.netty.compress.CompressContext;
+import org.laopopo.remoting.netty.compress.CompressPolicy;
+import org.laopopo.remoting.netty.compress.CompressType;
 
 /**
  * 
  * @author BazingaLyn
  * @description Netty 对{@link RemotingTransporter}的编码器
  * @time 2016年8月10日
- * @modifytime
+ * @modifytime 2016年10月24日 消息体直接序列化到out中，bodyLength在序列化之后回填；按照压缩策略压缩消息体
  */
 @ChannelHandler.Sharable
 public class RemotingTransporterEncoder extends MessageToByteEncoder<RemotingTransporter> {
 	
+	//bodyLength在协议头中的偏移量 magic(2) + type(1) + sign(1) + id(8)
+	private static final int BODY_LENGTH_OFFSET = 12;
+	//compress在协议头中的偏移量
+	private static final int COMPRESS_OFFSET = 16;
+	
+	//压缩策略，为null的时候不压缩
+	private final CompressPolicy compressPolicy;
+	
+	public RemotingTransporterEncoder() {
+		this(null);
+	}
+	
+	public RemotingTransporterEncoder(CompressPolicy compressPolicy) {
+		this.compressPolicy = compressPolicy;
+	}
 
 	@Override
 	protected void encode(ChannelHandlerContext ctx, RemotingTransporter msg, ByteBuf out) throws IOException   {
-		doEncodeRemotingTransporter(msg, out);
+		doEncodeRemotingTransporter(ctx, msg, out);
 	}
 
-	private void doEncodeRemotingTransporter(RemotingTransporter msg, ByteBuf out) throws IOException {
-		byte[] body = serializerImpl().writeObject(msg.getCustomHeader());
-		
-		
-		byte isCompress = LaopopoProtocol.UNCOMPRESS;
-//		if(body.length > 1024){ //经过测试，压缩之后的效率低于不压缩
-//			isCompress = LaopopoProtocol.COMPRESS;
-//			body = Snappy.compress(body);
-//		}
+	private void doEncodeRemotingTransporter(ChannelHandlerContext ctx, RemotingTransporter msg, ByteBuf out) throws IOException {
 		
+		int headerIndex = out.writerIndex();
 		out.writeShort(MAGIC). 	           //协议头
 		writeByte(msg.getTransporterType())// 传输类型 sign 是请求还是响应
 		.writeByte(msg.getCode())          // 请求类型requestcode 表明主题信息的类型，也代表请求的类型
 		.writeLong(msg.getOpaque())        //requestId
-		.writeInt(body.length)             //length
-		.writeByte(isCompress)			   //是否压缩
-		.writeBytes(body);
+		.writeInt(0)                       //length 先占位，序列化之后回填
+		.writeByte(LaopopoProtocol.UNCOMPRESS); //是否压缩，压缩之后回填
 		
+		//消息体直接序列化到out中，不再先生成一个byte[]
+		int bodyIndex = out.writerIndex();
+		if (null != msg.getCustomHeader()) {
+			serializerImpl().writeObject(out, msg.getCustomHeader());
+		}
+		int bodyLength = out.writerIndex() - bodyIndex;
+		if (compressPolicy != null && bodyLength > 0) {
+			bodyLength = compress(ctx, msg, out, headerIndex, bodyIndex, bodyLength);
+		}
+		out.setInt(headerIndex + BODY_LENGTH_OFFSET, bodyLength);
+	}
+
+	/**
+	 * 按照压缩策略压缩已经序列化到out中的消息体，压缩之后更小的话用压缩的数据覆盖原来的消息体
+	 * @return 最终消息体的长度
+	 */
+	private int compress(ChannelHandlerContext ctx, RemotingTransporter msg, ByteBuf out, int headerIndex, int bodyIndex, int bodyLength) throws IOException {
+		CompressContext context = ctx.channel().attr(CompressContext.KEY).get();
+		if (context == null) {
+			return bodyLength;
+		}
+		String serviceName = msg.getCustomHeader() instanceof RequestCustomBody ? ((RequestCustomBody) msg.getCustomHeader()).getServiceName() : null;
+		CompressType compressType = context.select(compressPolicy, serviceName, bodyLength);
+		if (compressType == CompressType.NONE) {
+			return bodyLength;
+		}
+		ByteBuf compressed = compressType.compressor().compress(ctx.alloc(), out, bodyIndex, bodyLength);
+		try {
+			int compressedLength = compressed.readableBytes();
+			context.record(serviceName, bodyLength, compressedLength);
+			if (compressedLength >= bodyLength) {
+				return bodyLength;
+			}
+			out.writerIndex(bodyIndex);
+			out.writeBytes(compressed);
+			out.setByte(headerIndex + COMPRESS_OFFSET, compressType.value());
+			return compressedLength;
+		} finally {
+			compressed.release();
+		}
 	}
 
 }
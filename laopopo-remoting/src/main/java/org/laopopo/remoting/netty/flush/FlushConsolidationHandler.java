@@ -0,0 +1,138 @@
+package org.laopopo.remoting.netty.flush;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ *
+ * @author BazingaLyn
+ * @description 合并flush，减少write系统调用的次数，需要放在pipeline的最前面(最靠近head)，每个channel一个实例
+ * 1)读事件中产生的flush推迟到channelReadComplete的时候一起flush
+ * 2)不在读事件中的flush(业务线程调用writeAndFlush)先计数，在executor上提交一个flush任务，
+ *   在这个任务执行之前排在它前面的write都会被这一次flush带出去
+ * 3)无论哪种情况，累积的flush达到explicitFlushAfterFlushes次都会立即flush，避免延迟过大
+ * netty 4.1.0中还没有FlushConsolidationHandler，这里是按照相同思路的实现
+ * @time 2016年10月25日
+ * @modifytime
+ */
+public class FlushConsolidationHandler extends ChannelDuplexHandler {
+
+	public static final int DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES = 256;
+
+	private final int explicitFlushAfterFlushes;
+	private final boolean consolidateWhenNoReadInProgress;
+	private final Runnable flushTask;
+
+	private int flushPendingCount;
+	private boolean readInProgress;
+	private ChannelHandlerContext ctx;
+	private boolean flushTaskScheduled;
+
+	public FlushConsolidationHandler() {
+		this(DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true);
+	}
+
+	/**
+	 * @param explicitFlushAfterFlushes 累积多少次flush之后立即flush
+	 * @param consolidateWhenNoReadInProgress 不在读事件中的flush是否也合并
+	 */
+	public FlushConsolidationHandler(int explicitFlushAfterFlushes, boolean consolidateWhenNoReadInProgress) {
+		if (explicitFlushAfterFlushes <= 0) {
+			throw new IllegalArgumentException("explicitFlushAfterFlushes: " + explicitFlushAfterFlushes + " (expected: > 0)");
+		}
+		this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+		this.consolidateWhenNoReadInProgress = consolidateWhenNoReadInProgress;
+		this.flushTask = consolidateWhenNoReadInProgress ? new Runnable() {
+
+			@Override
+			public void run() {
+				flushTaskScheduled = false;
+				if (flushPendingCount > 0 && !readInProgress) {
+					flushNow(FlushConsolidationHandler.this.ctx);
+				}
+			}
+		} : null;
+	}
+
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		if (readInProgress) {
+			// 读事件中的flush等到channelReadComplete的时候一起flush
+			if (++flushPendingCount == explicitFlushAfterFlushes) {
+				flushNow(ctx);
+			}
+		} else if (consolidateWhenNoReadInProgress) {
+			if (++flushPendingCount == explicitFlushAfterFlushes) {
+				flushNow(ctx);
+			} else if (!flushTaskScheduled) {
+				flushTaskScheduled = true;
+				ctx.executor().execute(flushTask);
+			}
+		} else {
+			flushNow(ctx);
+		}
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		readInProgress = true;
+		ctx.fireChannelRead(msg);
+	}
+
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		readInProgress = false;
+		flushIfNeeded(ctx);
+		ctx.fireChannelReadComplete();
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		// 写缓冲区满了之后不再积压，尽快把数据写出去
+		if (!ctx.channel().isWritable()) {
+			flushIfNeeded(ctx);
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		flushIfNeeded(ctx);
+		ctx.fireExceptionCaught(cause);
+	}
+
+	@Override
+	public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		flushIfNeeded(ctx);
+		ctx.disconnect(promise);
+	}
+
+	@Override
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		flushIfNeeded(ctx);
+		ctx.close(promise);
+	}
+
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		flushIfNeeded(ctx);
+	}
+
+	private void flushIfNeeded(ChannelHandlerContext ctx) {
+		if (flushPendingCount > 0) {
+			flushNow(ctx);
+		}
+	}
+
+	private void flushNow(ChannelHandlerContext ctx) {
+		flushPendingCount = 0;
+		ctx.flush();
+	}
+
+}